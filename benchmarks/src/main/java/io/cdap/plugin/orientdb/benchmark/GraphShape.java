@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb.benchmark;
+
+import java.util.SplittableRandom;
+import javax.annotation.Nullable;
+
+/**
+ * Shapes of the graphs written by the benchmarks.
+ */
+public enum GraphShape {
+  /**
+   * Every vertex has the same number of out edges and all vertices are equally likely to be connected.
+   */
+  UNIFORM("uniform") {
+    @Override
+    int nextFanout(SplittableRandom random, int meanFanout) {
+      return meanFanout;
+    }
+
+    @Override
+    int nextVertex(SplittableRandom random, int numVertices) {
+      return random.nextInt(numVertices);
+    }
+  },
+  /**
+   * The number of out edges follows a Pareto distribution, and a few hub vertices are part of most edges,
+   * like in social networks.
+   */
+  POWER_LAW("powerLaw") {
+    @Override
+    int nextFanout(SplittableRandom random, int meanFanout) {
+      // Pareto distribution with shape 2, which has a mean of twice its scale.
+      double scale = meanFanout / 2.0;
+      double fanout = scale / Math.sqrt(1.0 - random.nextDouble());
+      return (int) Math.min(fanout, MAX_FANOUT_FACTOR * meanFanout);
+    }
+
+    @Override
+    int nextVertex(SplittableRandom random, int numVertices) {
+      double uniform = random.nextDouble();
+      return (int) (numVertices * uniform * uniform * uniform);
+    }
+  };
+
+  // Caps the fanout of power law graphs, so that single records don't dominate a run.
+  private static final int MAX_FANOUT_FACTOR = 100;
+
+  private final String value;
+
+  GraphShape(String value) {
+    this.value = value;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the number of out edges of the next source vertex.
+   */
+  abstract int nextFanout(SplittableRandom random, int meanFanout);
+
+  /**
+   * Returns the index of the next vertex, between 0 inclusive and the given number of vertices exclusive.
+   */
+  abstract int nextVertex(SplittableRandom random, int numVertices);
+
+  /**
+   * Returns the {@link GraphShape} with the given value or {@code null} if there is none.
+   */
+  @Nullable
+  public static GraphShape fromValue(String value) {
+    for (GraphShape shape : values()) {
+      if (shape.value.equalsIgnoreCase(value)) {
+        return shape;
+      }
+    }
+    return null;
+  }
+}
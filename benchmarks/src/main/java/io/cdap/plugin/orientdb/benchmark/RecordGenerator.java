@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb.benchmark;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates the input records of the benchmarks. Every vertex referenced by a record is either one of the vertices
+ * that exist before the benchmark starts, or a vertex that has never been written before.
+ */
+public class RecordGenerator {
+  public static final String VERTEX = "person";
+  public static final String EDGE = "follows";
+  public static final Schema SCHEMA = Schema.recordOf(
+    "person",
+    Schema.Field.of(VERTEX, Schema.of(Schema.Type.STRING)),
+    Schema.Field.of(EDGE, Schema.arrayOf(Schema.of(Schema.Type.STRING))));
+
+  private final GraphShape shape;
+  private final double existingFraction;
+  private final int meanFanout;
+  private final String[] existingVertices;
+  private final SplittableRandom random;
+  private long newVertices;
+
+  /**
+   * @param existingFraction probability that a referenced vertex is one of the existing vertices
+   */
+  public RecordGenerator(GraphShape shape, double existingFraction, int meanFanout, int numExistingVertices,
+                         long seed) {
+    this.shape = shape;
+    this.existingFraction = existingFraction;
+    this.meanFanout = meanFanout;
+    this.existingVertices = new String[numExistingVertices];
+    for (int i = 0; i < numExistingVertices; i++) {
+      existingVertices[i] = getExistingVertex(i);
+    }
+    this.random = new SplittableRandom(seed);
+  }
+
+  /**
+   * Returns the key of the existing vertex with the given index.
+   */
+  public static String getExistingVertex(int index) {
+    return "v" + index;
+  }
+
+  public StructuredRecord next() {
+    String source = nextVertex();
+    int fanout = shape.nextFanout(random, meanFanout);
+    List<String> destinations = new ArrayList<>(fanout);
+    for (int i = 0; i < fanout; i++) {
+      destinations.add(nextVertex());
+    }
+    return StructuredRecord.builder(SCHEMA)
+      .set(VERTEX, source)
+      .set(EDGE, destinations)
+      .build();
+  }
+
+  private String nextVertex() {
+    if (existingVertices.length > 0 && random.nextDouble() < existingFraction) {
+      return existingVertices[shape.nextVertex(random, existingVertices.length)];
+    }
+    return "n" + newVertices++;
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb.benchmark;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import com.tinkerpop.blueprints.impls.orient.OrientVertexType;
+import io.cdap.plugin.orientdb.OrientDBConfig;
+import io.cdap.plugin.orientdb.OrientDBConnections;
+import io.cdap.plugin.orientdb.OrientDBRecordWriter;
+import io.cdap.plugin.orientdb.OrientDBSink;
+import io.cdap.plugin.orientdb.WriteMethod;
+import io.cdap.plugin.orientdb.WriteMode;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link OrientDBRecordWriter} against an in-process OrientDB database.
+ *
+ * {@link #write()} measures the throughput in records per second. Run with {@code -prof gc} to get the allocated
+ * bytes per record from {@code gc.alloc.rate.norm}, which include about a hundred bytes for generating the input
+ * record. {@link #writeBatch()} measures the latency of writing and committing one batch.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+public class RecordWriterBenchmark {
+  private static final String USERNAME = "admin";
+  private static final String PASSWORD = "admin";
+
+  /**
+   * Shape of the written graph, see {@link GraphShape}.
+   */
+  @Param({"uniform", "powerLaw"})
+  public String shape;
+
+  /**
+   * Probability that a vertex referenced by a record already exists. Low values simulate initial loads,
+   * high values incremental loads.
+   */
+  @Param({"0.1", "0.9"})
+  public double existingFraction;
+
+  @Param("5")
+  public int fanout;
+
+  /**
+   * Number of vertices created before the benchmark starts.
+   */
+  @Param("100000")
+  public int existingVertices;
+
+  /**
+   * Either 'memory' or 'plocal'.
+   */
+  @Param("memory")
+  public String database;
+
+  @Param("transactional")
+  public String writeMode;
+
+  @Param("blueprints")
+  public String writeMethod;
+
+  @Param("1000")
+  public int batchSize;
+
+  @Param("10000")
+  public int vertexCacheSize;
+
+  @Param("0")
+  public int writerThreads;
+
+  private String connectionString;
+  private Path plocalDirectory;
+  private Configuration hConf;
+  private RecordGenerator generator;
+  private OrientDBRecordWriter writer;
+
+  @Setup(Level.Trial)
+  public void createDatabase() throws IOException {
+    if ("plocal".equals(database)) {
+      plocalDirectory = Files.createTempDirectory("orientdb-benchmark");
+      connectionString = "plocal:" + plocalDirectory.resolve("graph");
+    } else if ("memory".equals(database)) {
+      connectionString = "memory:benchmark-" + System.nanoTime();
+    } else {
+      throw new IllegalArgumentException(String.format("Unsupported database '%s'.", database));
+    }
+
+    OrientGraphNoTx graph = new OrientGraphNoTx(connectionString, USERNAME, PASSWORD);
+    try {
+      // Same schema as created by the sink with the default vertex index type.
+      OrientVertexType vertexType = graph.createVertexType(RecordGenerator.VERTEX);
+      vertexType.createProperty(RecordGenerator.VERTEX, OType.STRING);
+      vertexType.createIndex(RecordGenerator.VERTEX + "." + RecordGenerator.VERTEX,
+                             OClass.INDEX_TYPE.UNIQUE_HASH_INDEX, RecordGenerator.VERTEX);
+      graph.createEdgeType(RecordGenerator.EDGE);
+
+      graph.declareIntent(new OIntentMassiveInsert());
+      String vertexClass = "class:" + RecordGenerator.VERTEX;
+      for (int i = 0; i < existingVertices; i++) {
+        graph.addVertex(vertexClass, RecordGenerator.VERTEX, RecordGenerator.getExistingVertex(i));
+      }
+      graph.declareIntent(null);
+    } finally {
+      graph.shutdown();
+    }
+
+    hConf = new Configuration(false);
+    hConf.set(OrientDBSink.ORIENTDB_CONNECTION_STRING, connectionString);
+    hConf.set(OrientDBSink.ORIENTDB_USERNAME, USERNAME);
+    hConf.set(OrientDBSink.ORIENTDB_PASSWORD, PASSWORD);
+    hConf.set(OrientDBSink.ORIENTDB_VERTEX, RecordGenerator.VERTEX);
+    hConf.set(OrientDBSink.ORIENTDB_EDGE, RecordGenerator.EDGE);
+    hConf.setInt(OrientDBSink.ORIENTDB_BATCH_SIZE, batchSize);
+    hConf.setInt(OrientDBSink.ORIENTDB_VERTEX_CACHE_SIZE, vertexCacheSize);
+    hConf.setEnum(OrientDBSink.ORIENTDB_WRITE_MODE, parse(WriteMode.fromValue(writeMode), "write mode", writeMode));
+    hConf.setEnum(OrientDBSink.ORIENTDB_WRITE_METHOD,
+                  parse(WriteMethod.fromValue(writeMethod), "write method", writeMethod));
+    hConf.setInt(OrientDBSink.ORIENTDB_WRITER_THREADS, writerThreads);
+    hConf.setInt(OrientDBSink.ORIENTDB_MAX_POOL_SIZE,
+                 Math.max(OrientDBConfig.DEFAULT_MAX_POOL_SIZE, writerThreads));
+
+    generator = new RecordGenerator(parse(GraphShape.fromValue(shape), "graph shape", shape), existingFraction,
+                                    fanout, existingVertices, 42L);
+  }
+
+  @Setup(Level.Iteration)
+  public void openWriter() {
+    writer = new OrientDBRecordWriter(hConf);
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeWriter() throws IOException, InterruptedException {
+    writer.close(null);
+  }
+
+  @TearDown(Level.Trial)
+  public void dropDatabase() throws IOException {
+    OrientDBConnections.closeAll();
+    ODatabaseDocumentTx database = new ODatabaseDocumentTx(connectionString);
+    database.open(USERNAME, PASSWORD);
+    database.drop();
+    if (plocalDirectory != null) {
+      Files.deleteIfExists(plocalDirectory);
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public void write() throws IOException, InterruptedException {
+    writer.write(NullWritable.get(), generator.next());
+  }
+
+  /**
+   * Writes exactly one batch, so that every invocation ends with a commit. Only meaningful with a positive batch size
+   * and without writer threads, which commit in the background.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public void writeBatch() throws IOException, InterruptedException {
+    for (int i = 0; i < batchSize; i++) {
+      writer.write(NullWritable.get(), generator.next());
+    }
+  }
+
+  private static <T> T parse(T value, String name, String param) {
+    if (value == null) {
+      throw new IllegalArgumentException(String.format("Unsupported %s '%s'.", name, param));
+    }
+    return value;
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import org.apache.hadoop.conf.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes {@link GraphOperation}s to OrientDB on background threads, so that the task thread can convert the next
+ * records while the writer threads wait on the database. Each writer thread has its own bounded queue and its own
+ * {@link GraphWriter}. Operations are routed by source vertex, so that all edges of a vertex are written by
+ * the same thread. Producers block while the queue is full, and the first failure of any writer thread stops all of
+ * them and is rethrown by the next call to {@link #write(GraphOperation)} or {@link #close()}.
+ */
+public class AsyncGraphWriter {
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncGraphWriter.class);
+  // Marks the end of the operations of a queue.
+  private static final GraphOperation END = new GraphOperation(null, Collections.emptyList());
+  private static final long OFFER_TIMEOUT_MILLIS = 100;
+  // Maximum number of operations taken from a queue at once.
+  private static final int MAX_DRAIN = 256;
+
+  private final List<BlockingQueue<GraphOperation>> queues;
+  private final List<Thread> threads;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+  public AsyncGraphWriter(Configuration hConf, int numThreads, int queueSize) {
+    this.queues = new ArrayList<>(numThreads);
+    this.threads = new ArrayList<>(numThreads);
+    int writerId = hConf.getInt(OrientDBSink.ORIENTDB_WRITER_ID, -1);
+    for (int i = 0; i < numThreads; i++) {
+      BlockingQueue<GraphOperation> queue = new ArrayBlockingQueue<>(queueSize);
+      Configuration writerConf = hConf;
+      if (writerId >= 0) {
+        // Every thread writes to clusters of its own.
+        writerConf = new Configuration(hConf);
+        writerConf.setInt(OrientDBSink.ORIENTDB_WRITER_ID, writerId * numThreads + i);
+      }
+      GraphWriter graphWriter = GraphWriter.create(writerConf);
+      Thread thread = new Thread(() -> drain(queue, graphWriter), "orientdb-writer-" + i);
+      thread.setDaemon(true);
+      queues.add(queue);
+      threads.add(thread);
+    }
+    threads.forEach(Thread::start);
+  }
+
+  /**
+   * Queues the given operation, blocking while the queue of its writer thread is full.
+   */
+  public void write(GraphOperation operation) throws IOException, InterruptedException {
+    checkFailure();
+    BlockingQueue<GraphOperation> queue = queues.get(Math.floorMod(operation.getSourceVertex().hashCode(),
+                                                                   queues.size()));
+    while (!queue.offer(operation, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+      // The writer thread may have stopped because of a failure, don't wait for it forever.
+      checkFailure();
+    }
+  }
+
+  /**
+   * Waits for all queued operations to be written and committed, and stops the writer threads.
+   */
+  public void close() throws IOException, InterruptedException {
+    try {
+      for (int i = 0; i < threads.size(); i++) {
+        Thread thread = threads.get(i);
+        BlockingQueue<GraphOperation> queue = queues.get(i);
+        while (thread.isAlive() && !queue.offer(END, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+          // Wait for the writer thread to make room or to stop.
+        }
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    } catch (InterruptedException ex) {
+      // Stops the writer threads.
+      failure.compareAndSet(null, ex);
+      throw ex;
+    }
+    checkFailure();
+  }
+
+  /**
+   * Stops the writer threads without writing the queued operations. Pending batches are rolled back, as far as
+   * possible.
+   */
+  public void abort() throws InterruptedException {
+    failure.compareAndSet(null, new CancellationException("Writing to OrientDB was aborted."));
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    Throwable cause = failure.get();
+    if (cause != null) {
+      throw new IOException("Failed to write records to OrientDB.", cause);
+    }
+  }
+
+  private void drain(BlockingQueue<GraphOperation> queue, GraphWriter graphWriter) {
+    List<GraphOperation> operations = new ArrayList<>(MAX_DRAIN);
+    try {
+      while (failure.get() == null) {
+        GraphOperation first = queue.poll(OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        operations.add(first);
+        queue.drainTo(operations, MAX_DRAIN - 1);
+        for (GraphOperation operation : operations) {
+          if (operation == END) {
+            graphWriter.close();
+            return;
+          }
+          graphWriter.write(operation);
+        }
+        operations.clear();
+      }
+    } catch (Throwable t) {
+      failure.compareAndSet(null, t);
+    }
+    try {
+      graphWriter.abort();
+    } catch (RuntimeException ex) {
+      LOG.warn("Failed to roll back the pending batch of {}.", Thread.currentThread().getName(), ex);
+    }
+  }
+}
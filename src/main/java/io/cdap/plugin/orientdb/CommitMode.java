@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * When the writes of a task become visible in OrientDB.
+ */
+public enum CommitMode {
+  /**
+   * Every task writes to the graph directly, batches are committed while the task runs.
+   */
+  DIRECT("direct"),
+  /**
+   * Every task attempt stores its operations in a staging class first. They are written to the graph when the
+   * attempt is committed and discarded when it is aborted, so that only one attempt of each task writes the graph.
+   */
+  STAGED("staged");
+
+  private final String value;
+
+  CommitMode(String value) {
+    this.value = value;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the {@link CommitMode} with the given value or {@code null} if there is none.
+   */
+  @Nullable
+  public static CommitMode fromValue(String value) {
+    for (CommitMode mode : values()) {
+      if (mode.value.equalsIgnoreCase(value)) {
+        return mode;
+      }
+    }
+    return null;
+  }
+
+  public static String getSupportedValues() {
+    return Arrays.stream(values()).map(CommitMode::getValue).collect(Collectors.joining(", "));
+  }
+}
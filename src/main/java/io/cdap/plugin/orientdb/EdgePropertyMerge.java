@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * How a property value of an edge is combined with the value the edge has already.
+ */
+public enum EdgePropertyMerge {
+  /**
+   * The new value replaces the existing one.
+   */
+  OVERWRITE("overwrite"),
+  /**
+   * The new value is added to the existing one. Only applies to numbers.
+   */
+  SUM("sum"),
+  /**
+   * The greater of both values is kept. Only applies to numbers.
+   */
+  MAX("max");
+
+  private final String value;
+
+  EdgePropertyMerge(String value) {
+    this.value = value;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the {@link EdgePropertyMerge} with the given value or {@code null} if there is none.
+   */
+  @Nullable
+  public static EdgePropertyMerge fromValue(String value) {
+    for (EdgePropertyMerge merge : values()) {
+      if (merge.value.equalsIgnoreCase(value)) {
+        return merge;
+      }
+    }
+    return null;
+  }
+
+  public static String getSupportedValues() {
+    return Arrays.stream(values()).map(EdgePropertyMerge::getValue).collect(Collectors.joining(", "));
+  }
+
+  /**
+   * Parses a comma separated list of {@code property:merge} pairs, such as {@code weight:sum,updated:max}.
+   *
+   * @throws IllegalArgumentException if a pair is malformed or names an unsupported merge
+   */
+  public static Map<String, EdgePropertyMerge> parse(@Nullable String merges) {
+    if (merges == null || merges.trim().isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Map<String, EdgePropertyMerge> result = new LinkedHashMap<>();
+    for (String pair : merges.split(",")) {
+      String[] parts = pair.split(":");
+      if (parts.length != 2 || parts[0].trim().isEmpty()) {
+        throw new IllegalArgumentException(String.format("Invalid edge property merge '%s', expected " +
+                                                           "'property:merge'.", pair.trim()));
+      }
+      EdgePropertyMerge merge = fromValue(parts[1].trim());
+      if (merge == null) {
+        throw new IllegalArgumentException(String.format("Edge property merge '%s' is not supported.",
+                                                         parts[1].trim()));
+      }
+      result.put(parts[0].trim(), merge);
+    }
+    return result;
+  }
+
+  /**
+   * Combines the value an edge has already with a new value.
+   *
+   * @param existing the current value of the property or {@code null} if the edge doesn't have it
+   * @param value the new value, not {@code null}
+   * @return the value the property should be set to
+   */
+  public Object merge(@Nullable Object existing, Object value) {
+    if (this == OVERWRITE || !(existing instanceof Number) || !(value instanceof Number)) {
+      return value;
+    }
+    Number a = (Number) existing;
+    Number b = (Number) value;
+    if (this == MAX) {
+      return a.doubleValue() > b.doubleValue() ? convert(a, b) : b;
+    }
+    if (b instanceof Integer) {
+      return a.intValue() + b.intValue();
+    }
+    if (b instanceof Long) {
+      return a.longValue() + b.longValue();
+    }
+    if (b instanceof Float) {
+      return a.floatValue() + b.floatValue();
+    }
+    return a.doubleValue() + b.doubleValue();
+  }
+
+  /**
+   * Converts the given number to the type of the other one.
+   */
+  private static Number convert(Number number, Number type) {
+    if (type instanceof Integer) {
+      return number.intValue();
+    }
+    if (type instanceof Long) {
+      return number.longValue();
+    }
+    if (type instanceof Float) {
+      return number.floatValue();
+    }
+    return number.doubleValue();
+  }
+}
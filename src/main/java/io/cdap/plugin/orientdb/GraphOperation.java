@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A source vertex and the vertices it has out edges to, as converted from an input {@link StructuredRecord}.
+ * Edges may carry properties, which are then held in the same order as the destination vertices. The source vertex
+ * may carry properties as well, which are written when it is upserted.
+ */
+public final class GraphOperation {
+  private final String sourceVertex;
+  private final List<String> destinationVertices;
+  @Nullable
+  private final List<Map<String, Object>> edgeProperties;
+  private final Map<String, Object> vertexProperties;
+
+  public GraphOperation(String sourceVertex, List<String> destinationVertices) {
+    this(sourceVertex, destinationVertices, null);
+  }
+
+  public GraphOperation(String sourceVertex, List<String> destinationVertices,
+                        @Nullable List<Map<String, Object>> edgeProperties) {
+    this(sourceVertex, destinationVertices, edgeProperties, Collections.emptyMap());
+  }
+
+  public GraphOperation(String sourceVertex, List<String> destinationVertices,
+                        @Nullable List<Map<String, Object>> edgeProperties, Map<String, Object> vertexProperties) {
+    this.sourceVertex = sourceVertex;
+    this.destinationVertices = destinationVertices;
+    this.edgeProperties = edgeProperties;
+    this.vertexProperties = vertexProperties;
+  }
+
+  /**
+   * Converts an input record, reading the source vertex from the vertex field and the destination vertices
+   * from the edge field. Arrays may be given as collections or as Java arrays, a missing array has no edges.
+   * Elements of the edge array are either destination vertex keys or records, which hold the destination vertex key
+   * in the edge target field and the edge properties in all other fields. Null properties are not written.
+   * Properties of the source vertex are read from the fields of the given vertex property mapping.
+   */
+  @SuppressWarnings("unchecked")
+  public static GraphOperation fromRecord(StructuredRecord record, String vertexName, String edgeName,
+                                          String edgeTargetField, VertexPropertyMapping vertexPropertyMapping) {
+    List<?> edges = toList(record.get(edgeName));
+    Map<String, Object> vertexProperties = vertexPropertyMapping.toProperties(record);
+    if (!containsRecords(edges)) {
+      return new GraphOperation(record.get(vertexName), (List<String>) edges, null, vertexProperties);
+    }
+
+    List<String> destinationVertices = new ArrayList<>(edges.size());
+    List<Map<String, Object>> edgeProperties = new ArrayList<>(edges.size());
+    for (Object edge : edges) {
+      if (edge == null) {
+        continue;
+      }
+      StructuredRecord edgeRecord = (StructuredRecord) edge;
+      Map<String, Object> properties = new LinkedHashMap<>();
+      for (Schema.Field field : edgeRecord.getSchema().getFields()) {
+        Object value = edgeRecord.get(field.getName());
+        if (value != null && !field.getName().equals(edgeTargetField)) {
+          properties.put(field.getName(), value);
+        }
+      }
+      destinationVertices.add(edgeRecord.get(edgeTargetField));
+      edgeProperties.add(properties);
+    }
+    return new GraphOperation(record.get(vertexName), destinationVertices, edgeProperties, vertexProperties);
+  }
+
+  private static boolean containsRecords(List<?> edges) {
+    for (Object edge : edges) {
+      if (edge != null) {
+        return edge instanceof StructuredRecord;
+      }
+    }
+    return false;
+  }
+
+  private static List<?> toList(Object array) {
+    if (array == null) {
+      return Collections.emptyList();
+    }
+    if (array instanceof List) {
+      return (List<?>) array;
+    }
+    if (array instanceof Collection) {
+      return new ArrayList<>((Collection<?>) array);
+    }
+    if (array instanceof Object[]) {
+      return Arrays.asList((Object[]) array);
+    }
+    throw new IllegalArgumentException(String.format("Unsupported edge field value of type '%s'.",
+                                                     array.getClass().getName()));
+  }
+
+  public String getSourceVertex() {
+    return sourceVertex;
+  }
+
+  public List<String> getDestinationVertices() {
+    return destinationVertices;
+  }
+
+  /**
+   * Returns the properties of the edge to the destination vertex at the given index, empty if it has none.
+   */
+  public Map<String, Object> getEdgeProperties(int index) {
+    return edgeProperties == null ? Collections.emptyMap() : edgeProperties.get(index);
+  }
+
+  /**
+   * Returns whether the edges of this operation were given as records, which may carry properties.
+   */
+  public boolean hasEdgeProperties() {
+    return edgeProperties != null;
+  }
+
+  /**
+   * Returns the properties of the source vertex, empty if it has none.
+   */
+  public Map<String, Object> getVertexProperties() {
+    return vertexProperties;
+  }
+}
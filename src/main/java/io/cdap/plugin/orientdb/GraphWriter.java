@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import org.apache.hadoop.conf.Configuration;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link GraphOperation}s to OrientDB through a single connection. Implementations are not thread safe.
+ */
+public interface GraphWriter {
+
+  /**
+   * Creates the {@link GraphWriter} for the write method configured in the given configuration.
+   */
+  static GraphWriter create(Configuration hConf) {
+    WriteMethod writeMethod = hConf.getEnum(OrientDBSink.ORIENTDB_WRITE_METHOD, WriteMethod.BLUEPRINTS);
+    switch (writeMethod) {
+      case BLUEPRINTS:
+        return new OrientDBGraphWriter(hConf);
+      case SCRIPT:
+        return new ScriptGraphWriter(hConf);
+      default:
+        throw new IllegalStateException(String.format("Unsupported write method '%s'.", writeMethod));
+    }
+  }
+
+  void write(GraphOperation operation) throws IOException, InterruptedException;
+
+  /**
+   * Writes and commits all pending operations, so that no transaction is left open until the next write.
+   */
+  void flush() throws IOException, InterruptedException;
+
+  /**
+   * Writes all pending operations and returns the connection to the pool.
+   */
+  void close() throws IOException, InterruptedException;
+
+  /**
+   * Discards all pending operations, as far as possible, and returns the connection to the pool.
+   */
+  void abort();
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Histogram of latencies with power of two buckets of microseconds. Recording only increments array elements, so
+ * that it can be used for every lookup and commit without allocating. Percentiles are accurate to a factor of two,
+ * which is enough to tell whether an operation takes micro-, milli- or whole seconds.
+ */
+public class LatencyHistogram {
+  // Bucket i holds latencies of less than 2^i microseconds, the last one everything above.
+  private static final int BUCKETS = 40;
+
+  private final long[] counts = new long[BUCKETS];
+  private long count;
+  private long totalNanos;
+  private long maxNanos;
+
+  /**
+   * Records a latency that started at the given {@link System#nanoTime()}.
+   */
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+    counts[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros))]++;
+    count++;
+    totalNanos += nanos;
+    maxNanos = Math.max(maxNanos, nanos);
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  public long getMaxNanos() {
+    return maxNanos;
+  }
+
+  /**
+   * Returns an upper bound of the given percentile in nanoseconds, or 0 if nothing was recorded.
+   *
+   * @param percentile percentile between 0 and 100
+   */
+  public long getPercentileNanos(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS - 1; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(maxNanos, TimeUnit.MICROSECONDS.toNanos(1L << i));
+      }
+    }
+    return maxNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("count=%d, mean=%.2fms, p50=%.2fms, p99=%.2fms, max=%.2fms", count,
+                         count == 0 ? 0d : toMillis(totalNanos / count), toMillis(getPercentileNanos(50)),
+                         toMillis(getPercentileNanos(99)), toMillis(maxNanos));
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / 1e6;
+  }
+}
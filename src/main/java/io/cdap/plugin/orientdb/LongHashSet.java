@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash set of primitive longs. Used to hold the packed record ids of the out neighbours of a vertex
+ * without boxing every id.
+ */
+public class LongHashSet {
+  private static final int MIN_CAPACITY = 16;
+  // Marks an empty slot. The value itself is tracked separately through containsEmpty.
+  private static final long EMPTY = 0L;
+
+  private long[] slots;
+  private int mask;
+  private int size;
+  private boolean containsEmpty;
+
+  public LongHashSet() {
+    this(MIN_CAPACITY);
+  }
+
+  public LongHashSet(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    while (capacity < expectedSize * 2) {
+      capacity <<= 1;
+    }
+    this.slots = new long[capacity];
+    this.mask = capacity - 1;
+  }
+
+  /**
+   * Adds the given value to the set.
+   *
+   * @return {@code true} if the value was not contained in the set before
+   */
+  public boolean add(long value) {
+    if (value == EMPTY) {
+      if (containsEmpty) {
+        return false;
+      }
+      containsEmpty = true;
+      size++;
+      return true;
+    }
+
+    int index = indexOf(value);
+    if (slots[index] == value) {
+      return false;
+    }
+    slots[index] = value;
+    if (++size * 2 > slots.length) {
+      rehash(slots.length << 1);
+    }
+    return true;
+  }
+
+  public boolean contains(long value) {
+    if (value == EMPTY) {
+      return containsEmpty;
+    }
+    return slots[indexOf(value)] == value;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void clear() {
+    Arrays.fill(slots, EMPTY);
+    containsEmpty = false;
+    size = 0;
+  }
+
+  /**
+   * Returns the slot holding the given value, or the empty slot where it would be inserted.
+   */
+  private int indexOf(long value) {
+    int index = hash(value) & mask;
+    while (slots[index] != EMPTY && slots[index] != value) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldSlots = slots;
+    slots = new long[capacity];
+    mask = capacity - 1;
+    for (long value : oldSlots) {
+      if (value != EMPTY) {
+        slots[indexOf(value)] = value;
+      }
+    }
+  }
+
+  private static int hash(long value) {
+    // Finalization step of MurmurHash3, spreads cluster ids and positions over all bits.
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+    return (int) value;
+  }
+}
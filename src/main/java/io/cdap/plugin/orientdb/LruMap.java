@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Map in access order that evicts its least recently used entry once it holds more than a maximum number of entries.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+final class LruMap<K, V> extends LinkedHashMap<K, V> {
+  private static final long serialVersionUID = 1L;
+
+  private final int maxSize;
+  private long evictions;
+
+  LruMap(int maxSize) {
+    super(16, 0.75f, true);
+    this.maxSize = maxSize;
+  }
+
+  @Override
+  protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+    if (size() > maxSize) {
+      evictions++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of entries evicted so far.
+   */
+  long getEvictions() {
+    return evictions;
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Open addressing hash map from vertex keys to packed record ids, held in direct buffers outside of the heap, so
+ * that caches of tens of millions of vertices don't slow down garbage collection. Every entry takes 16 bytes, a
+ * 63 bit hash of the key and the record id packed by {@link RecordIds#pack}. Keys themselves are not stored, so keys
+ * with the same hash share an entry and callers have to verify the key of the record found.
+ * Lookups and inserts don't allocate. Once the map holds as many entries as its memory budget allows, inserting
+ * evicts an entry that was not used recently, like the CLOCK algorithm.
+ */
+public class OffHeapVertexMap {
+  /**
+   * Returned by {@link #get} for keys that are not in the map. Not a valid packed record id, since cluster ids
+   * are never that low.
+   */
+  public static final long NOT_FOUND = Long.MIN_VALUE;
+
+  private static final int ENTRY_BYTES = 16;
+  // Slots per buffer, 64 MB, so that maps can grow beyond the maximum size of a single buffer.
+  private static final int SEGMENT_BITS = 22;
+  private static final int MIN_SLOTS = 16;
+  private static final long EMPTY = 0L;
+  // Set in the stored hash of entries that were put or read since the clock hand passed them.
+  private static final long REFERENCED = 1L << 63;
+
+  private final ByteBuffer[] segments;
+  private final long capacity;
+  private final long maxSize;
+  private long size;
+  private long clockHand;
+  private long evictions;
+
+  /**
+   * @param memoryBudget maximum number of bytes held by the map
+   */
+  public OffHeapVertexMap(long memoryBudget) {
+    this.capacity = Math.max(MIN_SLOTS, memoryBudget / ENTRY_BYTES);
+    this.segments = new ByteBuffer[(int) ((capacity - 1) >>> SEGMENT_BITS) + 1];
+    for (int i = 0; i < segments.length; i++) {
+      long segmentSlots = Math.min(capacity - ((long) i << SEGMENT_BITS), 1L << SEGMENT_BITS);
+      segments[i] = ByteBuffer.allocateDirect((int) segmentSlots * ENTRY_BYTES);
+    }
+    // Linear probing slows down quickly once the table is more than three quarters full.
+    this.maxSize = capacity / 4 * 3;
+  }
+
+  /**
+   * Returns the packed record id of the given key, or {@link #NOT_FOUND} if the key is not in the map.
+   */
+  public long get(String key) {
+    long hash = hash(key);
+    for (long slot = hash % capacity; ; slot = next(slot)) {
+      long stored = getHash(slot);
+      if (stored == EMPTY) {
+        return NOT_FOUND;
+      }
+      if ((stored & ~REFERENCED) == hash) {
+        if (stored == hash) {
+          setHash(slot, hash | REFERENCED);
+        }
+        return getRecordId(slot);
+      }
+    }
+  }
+
+  public boolean contains(String key) {
+    return find(hash(key)) >= 0;
+  }
+
+  /**
+   * Maps the given key to the given packed record id, evicting another entry if the map is full.
+   */
+  public void put(String key, long recordId) {
+    long hash = hash(key);
+    long slot = find(hash);
+    if (slot < 0) {
+      if (size >= maxSize) {
+        evict();
+      }
+      slot = hash % capacity;
+      while (getHash(slot) != EMPTY) {
+        slot = next(slot);
+      }
+      size++;
+    }
+    setHash(slot, hash | REFERENCED);
+    setRecordId(slot, recordId);
+  }
+
+  public void remove(String key) {
+    long slot = find(hash(key));
+    if (slot >= 0) {
+      delete(slot);
+    }
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Returns the slot of the given hash or -1 if it's not in the map.
+   */
+  private long find(long hash) {
+    for (long slot = hash % capacity; ; slot = next(slot)) {
+      long stored = getHash(slot);
+      if (stored == EMPTY) {
+        return -1L;
+      }
+      if ((stored & ~REFERENCED) == hash) {
+        return slot;
+      }
+    }
+  }
+
+  /**
+   * Advances the clock hand to the next entry that was not used since the hand last passed it and deletes it.
+   */
+  private void evict() {
+    while (true) {
+      long stored = getHash(clockHand);
+      if (stored == EMPTY) {
+        clockHand = next(clockHand);
+      } else if ((stored & REFERENCED) != 0) {
+        setHash(clockHand, stored & ~REFERENCED);
+        clockHand = next(clockHand);
+      } else {
+        // The hand stays, the slot may be refilled by an entry shifted back.
+        delete(clockHand);
+        evictions++;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Deletes the entry in the given slot, shifting back entries of the same probe sequence, so that no tombstones
+   * are needed.
+   */
+  private void delete(long slot) {
+    long hole = slot;
+    for (long next = next(hole); ; next = next(next)) {
+      long stored = getHash(next);
+      if (stored == EMPTY) {
+        break;
+      }
+      long home = (stored & ~REFERENCED) % capacity;
+      // The entry can fill the hole if the hole lies between its home slot and its current slot.
+      if (Math.floorMod(next - home, capacity) >= Math.floorMod(next - hole, capacity)) {
+        setHash(hole, stored);
+        setRecordId(hole, getRecordId(next));
+        hole = next;
+      }
+    }
+    setHash(hole, EMPTY);
+    size--;
+  }
+
+  /**
+   * Returns a 63 bit hash of the given key that is never {@link #EMPTY}, without allocating.
+   */
+  static long hash(String key) {
+    // FNV-1a over the characters, followed by the finalizer of MurmurHash3 to spread the bits.
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    hash &= ~REFERENCED;
+    return hash == EMPTY ? 1L : hash;
+  }
+
+  private long next(long slot) {
+    return slot + 1 == capacity ? 0L : slot + 1;
+  }
+
+  private long getHash(long slot) {
+    return segments[(int) (slot >>> SEGMENT_BITS)].getLong(offset(slot));
+  }
+
+  private void setHash(long slot, long hash) {
+    segments[(int) (slot >>> SEGMENT_BITS)].putLong(offset(slot), hash);
+  }
+
+  private long getRecordId(long slot) {
+    return segments[(int) (slot >>> SEGMENT_BITS)].getLong(offset(slot) + 8);
+  }
+
+  private void setRecordId(long slot, long recordId) {
+    segments[(int) (slot >>> SEGMENT_BITS)].putLong(offset(slot) + 8, recordId);
+  }
+
+  private static int offset(long slot) {
+    return (int) (slot & ((1L << SEGMENT_BITS) - 1)) * ENTRY_BYTES;
+  }
+}
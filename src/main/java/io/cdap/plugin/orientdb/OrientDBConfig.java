@@ -16,7 +16,8 @@
 
 package io.cdap.plugin.orientdb;
 
-import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.data.schema.Schema;
@@ -24,6 +25,16 @@ import io.cdap.cdap.api.plugin.PluginConfig;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.plugin.common.IdUtils;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
 /**
 * {@link PluginConfig} for {@link OrientDBSink}.
 */
@@ -34,6 +45,55 @@ public class OrientDBConfig extends PluginConfig {
   public static final String PASSWORD = "password";
   public static final String VERTEX = "vertex";
   public static final String EDGE = "edge";
+  public static final String EDGE_TARGET_FIELD = "edgeTargetField";
+  public static final String EDGE_PROPERTY_MERGE = "edgePropertyMerge";
+  public static final String VERTEX_PROPERTIES = "vertexProperties";
+  public static final String LIGHTWEIGHT_EDGES = "lightweightEdges";
+  public static final String SYNC_MODE = "syncMode";
+  public static final String VERTEX_CACHE_SIZE = "vertexCacheSize";
+  public static final String OFF_HEAP_VERTEX_CACHE_SIZE = "offHeapVertexCacheSize";
+  public static final String BATCH_SIZE = "batchSize";
+  public static final String COMMIT_INTERVAL = "commitInterval";
+  public static final String WRITE_MODE = "writeMode";
+  public static final String WRITE_METHOD = "writeMethod";
+  public static final String COMMIT_MODE = "commitMode";
+  public static final String VERTEX_INDEX_TYPE = "vertexIndexType";
+  public static final String MAX_RETRIES = "maxRetries";
+  public static final String RETRY_BACKOFF = "retryBackoff";
+  public static final String MIN_POOL_SIZE = "minPoolSize";
+  public static final String MAX_POOL_SIZE = "maxPoolSize";
+  public static final String WRITER_THREADS = "writerThreads";
+  public static final String WRITE_QUEUE_SIZE = "writeQueueSize";
+  public static final String WRITE_CLUSTERS = "writeClusters";
+  public static final String LOOKUP_BATCH_SIZE = "lookupBatchSize";
+  public static final String KEY_FILTER_FALSE_POSITIVE_RATE = "keyFilterFalsePositiveRate";
+
+  public static final String NO_INDEX = "NONE";
+  public static final Set<OClass.INDEX_TYPE> SUPPORTED_INDEX_TYPES = EnumSet.of(
+    OClass.INDEX_TYPE.UNIQUE_HASH_INDEX, OClass.INDEX_TYPE.UNIQUE,
+    OClass.INDEX_TYPE.NOTUNIQUE_HASH_INDEX, OClass.INDEX_TYPE.NOTUNIQUE);
+
+  // Property names used by OrientDB and Blueprints for every edge.
+  public static final Set<String> RESERVED_EDGE_PROPERTIES = Collections.unmodifiableSet(
+    new HashSet<>(Arrays.asList("id", "label", "in", "out")));
+  public static final Set<Schema.Type> EDGE_PROPERTY_TYPES = EnumSet.of(
+    Schema.Type.BOOLEAN, Schema.Type.INT, Schema.Type.LONG, Schema.Type.FLOAT, Schema.Type.DOUBLE, Schema.Type.STRING);
+  public static final Set<Schema.Type> NUMERIC_TYPES = EnumSet.of(
+    Schema.Type.INT, Schema.Type.LONG, Schema.Type.FLOAT, Schema.Type.DOUBLE);
+
+  public static final String DEFAULT_EDGE_TARGET_FIELD = "target";
+  public static final int DEFAULT_VERTEX_CACHE_SIZE = 10000;
+  public static final int DEFAULT_OFF_HEAP_VERTEX_CACHE_SIZE = 0;
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+  public static final int DEFAULT_MAX_RETRIES = 5;
+  public static final long DEFAULT_RETRY_BACKOFF = 100L;
+  public static final int DEFAULT_MIN_POOL_SIZE = 1;
+  public static final int DEFAULT_MAX_POOL_SIZE = 10;
+  public static final int DEFAULT_WRITER_THREADS = 0;
+  public static final int DEFAULT_WRITE_QUEUE_SIZE = 1000;
+  public static final int DEFAULT_WRITE_CLUSTERS = 0;
+  public static final int DEFAULT_LOOKUP_BATCH_SIZE = 0;
+  public static final double DEFAULT_KEY_FILTER_FALSE_POSITIVE_RATE = 0d;
 
   @Name(REFERENCE_NAME)
   @Description("Reference Name for the OrientDB Sink")
@@ -56,9 +116,172 @@ public class OrientDBConfig extends PluginConfig {
   private String vertexType;
 
   @Name(EDGE)
-  @Description("Column Name corresponding to Edge Type. This column should be an array of String type.")
+  @Description("Column Name corresponding to Edge Type. This column should be an array of String type, or an " +
+    "array of records holding the destination vertex in the edge target field and edge properties in all other " +
+    "fields.")
   private String edgeType;
 
+  @Name(EDGE_TARGET_FIELD)
+  @Description("Field of the edge records that holds the destination vertex. Only used if the edge column is an " +
+    "array of records. Defaults to 'target'.")
+  @Nullable
+  private String edgeTargetField;
+
+  @Name(EDGE_PROPERTY_MERGE)
+  @Description("How edge properties are combined with the values of edges that exist already, as a comma " +
+    "separated list of 'property:merge' pairs. Merge is one of 'overwrite', 'sum' or 'max'. 'sum' and 'max' only " +
+    "apply to numeric properties, and 'sum' requires the 'transactional' write mode and the 'direct' commit " +
+    "mode. Properties that are not listed are overwritten.")
+  @Nullable
+  private String edgePropertyMerge;
+
+  @Name(VERTEX_PROPERTIES)
+  @Description("Fields written as properties of the source vertex, as a comma separated list of 'field:property' " +
+    "pairs. The property name may be omitted to use the field name. Properties are declared on the vertex class " +
+    "with the type of their field and are set whenever the vertex is written, null fields are skipped.")
+  @Nullable
+  private String vertexProperties;
+
+  @Name(SYNC_MODE)
+  @Description("How the out edges of the written source vertices are synchronized with the input. 'append' only " +
+    "adds missing edges. 'replaceOutEdges' additionally removes the out edges of the configured type leading to " +
+    "vertices that none of the records of the source vertex in the run lists, so that a changed graph can be " +
+    "updated without reloading it. Source vertices not written in the run are left untouched. The run that last " +
+    "synchronized a vertex is stored in its 'syncRun' property. Only supported by the 'blueprints' write method. " +
+    "Defaults to 'append'.")
+  @Nullable
+  private String syncMode;
+
+  @Name(LIGHTWEIGHT_EDGES)
+  @Description("Whether edges are written as lightweight edges, which are stored as direct links between the " +
+    "vertices instead of separate edge records, which halves the records written for edges without properties. " +
+    "Can't be used with edge properties. Defaults to false.")
+  @Nullable
+  private Boolean lightweightEdges;
+
+  @Name(VERTEX_CACHE_SIZE)
+  @Description("Maximum number of vertex keys whose record ids are cached by each task, so that vertices appearing " +
+    "in many records are not looked up in OrientDB over and over again. Set to 0 to disable caching. " +
+    "Defaults to 10000.")
+  @Nullable
+  private Integer vertexCacheSize;
+
+  @Name(OFF_HEAP_VERTEX_CACHE_SIZE)
+  @Description("Megabytes of direct memory holding the vertex cache of each task outside of the Java heap, so that " +
+    "the record ids of tens of millions of vertices can be cached without slowing down garbage collection. " +
+    "Every cached vertex takes about 21 bytes. If set, the vertex cache size is ignored, unless it is 0. " +
+    "Only supported by the 'blueprints' write method. " +
+    "Writer threads split the memory of their task. The memory of all tasks running in parallel in a JVM must fit " +
+    "within its -XX:MaxDirectMemorySize option, and the memory of finished tasks is only released by garbage " +
+    "collection. Defaults to 0, which keeps the cache on the heap.")
+  @Nullable
+  private Integer offHeapVertexCacheSize;
+
+  @Name(BATCH_SIZE)
+  @Description("Number of records written in a single OrientDB transaction. Set to 0 to write all records " +
+    "of a task in a single transaction. Defaults to 1000.")
+  @Nullable
+  private Integer batchSize;
+
+  @Name(COMMIT_INTERVAL)
+  @Description("Maximum time in milliseconds a transaction is kept open before it is committed, regardless of " +
+    "the number of records written. Set to 0 to only commit based on the batch size. Defaults to 0.")
+  @Nullable
+  private Long commitInterval;
+
+  @Name(WRITE_MODE)
+  @Description("How records are written to OrientDB. 'transactional' writes records in transactions of " +
+    "'batchSize' records. 'nonTransactional' writes every operation immediately without a transaction. " +
+    "'massiveInsert' additionally declares the massive insert intent, and is meant for initial loads of empty " +
+    "databases. Write ahead logging is configured on the OrientDB server. Defaults to 'transactional'.")
+  @Nullable
+  private String writeMode;
+
+  @Name(WRITE_METHOD)
+  @Description("How vertices and edges are sent to OrientDB. 'blueprints' looks up and creates vertices and edges " +
+    "one by one. 'script' sends every batch as a single SQL script that upserts the vertices and creates missing " +
+    "edges on the server, which saves round trips to remote databases. Defaults to 'blueprints'.")
+  @Nullable
+  private String writeMethod;
+
+  @Name(COMMIT_MODE)
+  @Description("When the writes of a task become visible in OrientDB. 'direct' writes to the graph while the task " +
+    "runs. 'staged' stores the records of every task attempt in a staging class first and writes them to the graph " +
+    "only when the attempt is committed, so that retried and speculative attempts don't write twice. " +
+    "Defaults to 'direct'.")
+  @Nullable
+  private String commitMode;
+
+  @Name(VERTEX_INDEX_TYPE)
+  @Description("Type of the index created on the vertex key property before the pipeline runs, so that vertices " +
+    "can be looked up without scanning the vertex class. One of 'UNIQUE_HASH_INDEX', 'UNIQUE', " +
+    "'NOTUNIQUE_HASH_INDEX' or 'NOTUNIQUE'. Set to 'NONE' to not create an index. " +
+    "Defaults to 'UNIQUE_HASH_INDEX', which can't be created on existing vertices with duplicate keys.")
+  @Nullable
+  private String vertexIndexType;
+
+  @Name(MAX_RETRIES)
+  @Description("Maximum number of times a batch is retried when it fails because of concurrent modifications by " +
+    "other writers. The task fails once retries are exhausted. Defaults to 5.")
+  @Nullable
+  private Integer maxRetries;
+
+  @Name(RETRY_BACKOFF)
+  @Description("Initial time in milliseconds to wait before retrying a failed batch. The time doubles with every " +
+    "attempt. Defaults to 100.")
+  @Nullable
+  private Long retryBackoff;
+
+  @Name(MIN_POOL_SIZE)
+  @Description("Minimum number of connections kept in the connection pool of each executor. Connections are " +
+    "shared by all tasks running in the same executor. Defaults to 1.")
+  @Nullable
+  private Integer minPoolSize;
+
+  @Name(MAX_POOL_SIZE)
+  @Description("Maximum number of connections in the connection pool of each executor. Defaults to 10.")
+  @Nullable
+  private Integer maxPoolSize;
+
+  @Name(WRITER_THREADS)
+  @Description("Number of background threads per task that write to OrientDB. Records are converted on the task " +
+    "thread and handed over to the writer threads, each of which uses its own connection and commits its own " +
+    "batches. Threads may create the same destination vertex, which requires a unique vertex index. " +
+    "0 writes on the task thread. Defaults to 0.")
+  @Nullable
+  private Integer writerThreads;
+
+  @Name(WRITE_QUEUE_SIZE)
+  @Description("Maximum number of records queued for each writer thread. The task waits while the queue is full. " +
+    "Only used when writer threads are enabled. Defaults to 1000.")
+  @Nullable
+  private Integer writeQueueSize;
+
+  @Name(WRITE_CLUSTERS)
+  @Description("Minimum number of clusters of the vertex and edge classes, added before the pipeline runs if the " +
+    "classes have fewer. Every task and writer thread creates its vertices and edges in its own cluster, selected " +
+    "by its task number, so that parallel tasks don't contend on the same cluster. Set it to the number of tasks " +
+    "writing in parallel. 0 leaves the selection of clusters to OrientDB. Defaults to 0.")
+  @Nullable
+  private Integer writeClusters;
+
+  @Name(LOOKUP_BATCH_SIZE)
+  @Description("Number of records whose vertices are looked up together. The distinct vertex keys of the records " +
+    "that aren't cached are looked up with a single query, vertices that don't exist are then created without " +
+    "looking them up again. Only used by the 'blueprints' write method. 0 looks up every vertex on its own. " +
+    "Defaults to 0.")
+  @Nullable
+  private Integer lookupBatchSize;
+
+  @Name(KEY_FILTER_FALSE_POSITIVE_RATE)
+  @Description("False positive rate of a Bloom filter of the existing vertex keys, which is built before the " +
+    "pipeline runs and sent to every task. Vertices whose keys are definitely not in the filter are created without " +
+    "looking them up first, which saves a round trip for every new vertex of loads that mostly add vertices. The " +
+    "filter is limited to 8 MB, which raises the rate for very large graphs. Requires a unique vertex index. Only " +
+    "used by the 'blueprints' write method. 0 looks up every vertex that isn't cached. Defaults to 0.")
+  @Nullable
+  private Double keyFilterFalsePositiveRate;
+
   public OrientDBConfig(String referenceName, String connectionString,
                         String username, String password, String vertexType, String edgeType) {
     this.referenceName = referenceName;
@@ -76,6 +299,28 @@ public class OrientDBConfig extends PluginConfig {
     this.password = builder.password;
     this.vertexType = builder.vertexType;
     this.edgeType = builder.edgeType;
+    this.edgeTargetField = builder.edgeTargetField;
+    this.edgePropertyMerge = builder.edgePropertyMerge;
+    this.vertexProperties = builder.vertexProperties;
+    this.syncMode = builder.syncMode;
+    this.lightweightEdges = builder.lightweightEdges;
+    this.vertexCacheSize = builder.vertexCacheSize;
+    this.offHeapVertexCacheSize = builder.offHeapVertexCacheSize;
+    this.batchSize = builder.batchSize;
+    this.commitInterval = builder.commitInterval;
+    this.writeMode = builder.writeMode;
+    this.writeMethod = builder.writeMethod;
+    this.commitMode = builder.commitMode;
+    this.vertexIndexType = builder.vertexIndexType;
+    this.maxRetries = builder.maxRetries;
+    this.retryBackoff = builder.retryBackoff;
+    this.minPoolSize = builder.minPoolSize;
+    this.maxPoolSize = builder.maxPoolSize;
+    this.writerThreads = builder.writerThreads;
+    this.writeQueueSize = builder.writeQueueSize;
+    this.writeClusters = builder.writeClusters;
+    this.lookupBatchSize = builder.lookupBatchSize;
+    this.keyFilterFalsePositiveRate = builder.keyFilterFalsePositiveRate;
   }
 
   public String getReferenceName() {
@@ -102,6 +347,137 @@ public class OrientDBConfig extends PluginConfig {
     return edgeType;
   }
 
+  public String getEdgeTargetField() {
+    return edgeTargetField == null ? DEFAULT_EDGE_TARGET_FIELD : edgeTargetField;
+  }
+
+  @Nullable
+  public String getEdgePropertyMerge() {
+    return edgePropertyMerge;
+  }
+
+  /**
+   * Returns the merge of every edge property that is not overwritten.
+   *
+   * @throws IllegalArgumentException if the edge property merge is invalid
+   */
+  public Map<String, EdgePropertyMerge> getEdgePropertyMerges() {
+    return EdgePropertyMerge.parse(edgePropertyMerge);
+  }
+
+  @Nullable
+  public String getVertexProperties() {
+    return vertexProperties;
+  }
+
+  /**
+   * Returns the mapping of input fields to properties of the source vertex.
+   *
+   * @throws IllegalArgumentException if the vertex properties are invalid
+   */
+  public VertexPropertyMapping getVertexPropertyMapping() {
+    return VertexPropertyMapping.parse(vertexProperties);
+  }
+
+  public SyncMode getSyncMode() {
+    return syncMode == null ? SyncMode.APPEND : SyncMode.fromValue(syncMode);
+  }
+
+  public boolean isLightweightEdges() {
+    return lightweightEdges != null && lightweightEdges;
+  }
+
+  /**
+   * Returns the schema of the elements of the edge field if it is an array of records, {@code null} otherwise.
+   */
+  @Nullable
+  public Schema getEdgeRecordSchema(Schema inputSchema) {
+    Schema.Field edgeField = inputSchema.getField(edgeType);
+    if (edgeField == null) {
+      return null;
+    }
+    Schema componentSchema = getComponentSchema(edgeField.getSchema());
+    return componentSchema != null && componentSchema.getType() == Schema.Type.RECORD ? componentSchema : null;
+  }
+
+  public int getVertexCacheSize() {
+    return vertexCacheSize == null ? DEFAULT_VERTEX_CACHE_SIZE : vertexCacheSize;
+  }
+
+  public int getOffHeapVertexCacheSize() {
+    return offHeapVertexCacheSize == null ? DEFAULT_OFF_HEAP_VERTEX_CACHE_SIZE : offHeapVertexCacheSize;
+  }
+
+  public int getBatchSize() {
+    return batchSize == null ? DEFAULT_BATCH_SIZE : batchSize;
+  }
+
+  public long getCommitInterval() {
+    return commitInterval == null ? 0L : commitInterval;
+  }
+
+  public WriteMode getWriteMode() {
+    return writeMode == null ? WriteMode.TRANSACTIONAL : WriteMode.fromValue(writeMode);
+  }
+
+  public WriteMethod getWriteMethod() {
+    return writeMethod == null ? WriteMethod.BLUEPRINTS : WriteMethod.fromValue(writeMethod);
+  }
+
+  public CommitMode getCommitMode() {
+    return commitMode == null ? CommitMode.DIRECT : CommitMode.fromValue(commitMode);
+  }
+
+  /**
+   * Returns the type of the index to create on the vertex key property or {@code null} if no index should be created.
+   */
+  @Nullable
+  public OClass.INDEX_TYPE getVertexIndexType() {
+    if (vertexIndexType == null) {
+      return OClass.INDEX_TYPE.UNIQUE_HASH_INDEX;
+    }
+    if (NO_INDEX.equalsIgnoreCase(vertexIndexType)) {
+      return null;
+    }
+    return OClass.INDEX_TYPE.valueOf(vertexIndexType.toUpperCase());
+  }
+
+  public int getMaxRetries() {
+    return maxRetries == null ? DEFAULT_MAX_RETRIES : maxRetries;
+  }
+
+  public long getRetryBackoff() {
+    return retryBackoff == null ? DEFAULT_RETRY_BACKOFF : retryBackoff;
+  }
+
+  public int getMinPoolSize() {
+    return minPoolSize == null ? DEFAULT_MIN_POOL_SIZE : minPoolSize;
+  }
+
+  public int getMaxPoolSize() {
+    return maxPoolSize == null ? DEFAULT_MAX_POOL_SIZE : maxPoolSize;
+  }
+
+  public int getWriterThreads() {
+    return writerThreads == null ? DEFAULT_WRITER_THREADS : writerThreads;
+  }
+
+  public int getWriteQueueSize() {
+    return writeQueueSize == null ? DEFAULT_WRITE_QUEUE_SIZE : writeQueueSize;
+  }
+
+  public int getWriteClusters() {
+    return writeClusters == null ? DEFAULT_WRITE_CLUSTERS : writeClusters;
+  }
+
+  public int getLookupBatchSize() {
+    return lookupBatchSize == null ? DEFAULT_LOOKUP_BATCH_SIZE : lookupBatchSize;
+  }
+
+  public double getKeyFilterFalsePositiveRate() {
+    return keyFilterFalsePositiveRate == null ? DEFAULT_KEY_FILTER_FALSE_POSITIVE_RATE : keyFilterFalsePositiveRate;
+  }
+
   public void validate(FailureCollector failureCollector, Schema inputSchema) {
     try {
       IdUtils.validateId(referenceName);
@@ -109,25 +485,7 @@ public class OrientDBConfig extends PluginConfig {
       failureCollector.addFailure(ex.getMessage(), null).withConfigProperty(REFERENCE_NAME);
     }
 
-    Schema.Field vertexField = inputSchema.getField(vertexType);
-    if (vertexField == null) {
-      failureCollector.addFailure(String.format("Field '%s' is not present in input schema.", vertexType),
-                                  null).withConfigProperty(VERTEX)
-        .withInputSchemaField(VERTEX, null);
-    } else {
-      Schema vertexFieldSchema = vertexField.getSchema();
-
-      if (vertexFieldSchema.isNullable()) {
-        vertexFieldSchema = vertexFieldSchema.getNonNullable();
-      }
-
-      if (vertexFieldSchema.getLogicalType() != null || vertexFieldSchema.getType() != Schema.Type.STRING) {
-        failureCollector.addFailure(String.format("Field '%s' must be of type 'string' but is of type '%s'.",
-                                                  vertexField.getName(), vertexFieldSchema.getDisplayName()),
-                                    null).withConfigProperty(VERTEX)
-          .withInputSchemaField(VERTEX, null);
-      }
-    }
+    validateVertexField(failureCollector, inputSchema, vertexType, VERTEX);
 
     Schema.Field edgeField = inputSchema.getField(edgeType);
     if (edgeField == null) {
@@ -141,26 +499,405 @@ public class OrientDBConfig extends PluginConfig {
         edgeFieldSchema = edgeFieldSchema.getNonNullable();
       }
 
-      Schema componentSchema = (edgeFieldSchema != null && edgeFieldSchema.getType() == Schema.Type.ARRAY) ?
-        edgeFieldSchema.getComponentSchema() : null;
-
-      if (componentSchema != null && componentSchema.isNullable()) {
-        componentSchema = componentSchema.getNonNullable();
-      }
+      Schema componentSchema = getComponentSchema(edgeFieldSchema);
 
-      if (componentSchema == null || componentSchema.getLogicalType() != null ||
+      if (componentSchema != null && componentSchema.getType() == Schema.Type.RECORD) {
+        validateEdgeRecord(failureCollector, componentSchema);
+        if (isLightweightEdges()) {
+          failureCollector.addFailure("Lightweight edges can't have properties.",
+                                      "Turn off lightweight edges or change the edge field to an array of strings.")
+            .withConfigProperty(LIGHTWEIGHT_EDGES)
+            .withConfigProperty(EDGE);
+        }
+      } else if (componentSchema == null || componentSchema.getLogicalType() != null ||
         componentSchema.getType() != Schema.Type.STRING) {
-        failureCollector.addFailure(String.format("Field '%s' must be of type 'array of string' but is of type '%s'.",
+        failureCollector.addFailure(String.format("Field '%s' must be of type 'array of string' or 'array of " +
+                                                    "record' but is of type '%s'.",
                                                   edgeField.getName(), edgeFieldSchema.getDisplayName()),
                                     null).withConfigProperty(EDGE)
           .withInputSchemaField(EDGE);
+      } else if (edgePropertyMerge != null && !edgePropertyMerge.trim().isEmpty()) {
+        failureCollector.addFailure("Edge property merge only applies to edges given as records.",
+                                    "Remove the edge property merge or change the edge field to an array of records.")
+          .withConfigProperty(EDGE_PROPERTY_MERGE);
+      }
+    }
+
+    validateVertexProperties(failureCollector, inputSchema);
+
+    if (syncMode != null && SyncMode.fromValue(syncMode) == null) {
+      failureCollector.addFailure(String.format("Sync mode '%s' is not supported.", syncMode),
+                                  String.format("Supported sync modes are: %s.", SyncMode.getSupportedValues()))
+        .withConfigProperty(SYNC_MODE);
+    } else if (getSyncMode() == SyncMode.REPLACE_OUT_EDGES && getWriteMethod() != WriteMethod.BLUEPRINTS) {
+      failureCollector.addFailure(String.format("Sync mode '%s' is only supported by the '%s' write method.",
+                                                syncMode, WriteMethod.BLUEPRINTS.getValue()),
+                                  String.format("Set the write method to '%s'.", WriteMethod.BLUEPRINTS.getValue()))
+        .withConfigProperty(SYNC_MODE)
+        .withConfigProperty(WRITE_METHOD);
+    }
+
+    if (vertexCacheSize != null && vertexCacheSize < 0) {
+      failureCollector.addFailure(String.format("Vertex cache size '%d' must not be negative.", vertexCacheSize),
+                                  "Set the cache size to 0 to disable caching.")
+        .withConfigProperty(VERTEX_CACHE_SIZE);
+    }
+
+    if (getOffHeapVertexCacheSize() < 0) {
+      failureCollector.addFailure(String.format("Off-heap vertex cache size '%d' must not be negative.",
+                                                getOffHeapVertexCacheSize()),
+                                  "Set the off-heap cache size to 0 to keep the cache on the heap.")
+        .withConfigProperty(OFF_HEAP_VERTEX_CACHE_SIZE);
+    } else if (getOffHeapVertexCacheSize() > 0 && getWriteMethod() == WriteMethod.SCRIPT) {
+      // Entries only hold a hash of the key, the blueprints write method verifies the key of every vertex it finds.
+      failureCollector.addFailure(String.format("Off-heap vertex cache is not supported by write method '%s'.",
+                                                WriteMethod.SCRIPT.getValue()),
+                                  "Set the off-heap cache size to 0.")
+        .withConfigProperty(OFF_HEAP_VERTEX_CACHE_SIZE)
+        .withConfigProperty(WRITE_METHOD);
+    }
+
+    if (batchSize != null && batchSize < 0) {
+      failureCollector.addFailure(String.format("Batch size '%d' must not be negative.", batchSize),
+                                  "Set the batch size to 0 to write all records of a task in a single transaction.")
+        .withConfigProperty(BATCH_SIZE);
+    }
+
+    if (commitInterval != null && commitInterval < 0) {
+      failureCollector.addFailure(String.format("Commit interval '%d' must not be negative.", commitInterval),
+                                  "Set the commit interval to 0 to only commit based on the batch size.")
+        .withConfigProperty(COMMIT_INTERVAL);
+    }
+
+    if (writeMode != null && WriteMode.fromValue(writeMode) == null) {
+      failureCollector.addFailure(String.format("Write mode '%s' is not supported.", writeMode),
+                                  String.format("Supported write modes are: %s.", WriteMode.getSupportedValues()))
+        .withConfigProperty(WRITE_MODE);
+    }
+
+    if (writeMethod != null && WriteMethod.fromValue(writeMethod) == null) {
+      failureCollector.addFailure(String.format("Write method '%s' is not supported.", writeMethod),
+                                  String.format("Supported write methods are: %s.", WriteMethod.getSupportedValues()))
+        .withConfigProperty(WRITE_METHOD);
+    } else if (getWriteMethod() == WriteMethod.SCRIPT) {
+      validateScriptIdentifiers(failureCollector, inputSchema);
+    }
+
+    if (commitMode != null && CommitMode.fromValue(commitMode) == null) {
+      failureCollector.addFailure(String.format("Commit mode '%s' is not supported.", commitMode),
+                                  String.format("Supported commit modes are: %s.", CommitMode.getSupportedValues()))
+        .withConfigProperty(COMMIT_MODE);
+    } else if (getCommitMode() == CommitMode.STAGED && batchSize != null && batchSize == 0) {
+      failureCollector.addFailure("Staged commits can't write all records of a task in a single transaction.",
+                                  "Set a positive batch size.")
+        .withConfigProperty(COMMIT_MODE)
+        .withConfigProperty(BATCH_SIZE);
+    }
+
+    if (vertexIndexType != null && !NO_INDEX.equalsIgnoreCase(vertexIndexType) &&
+      SUPPORTED_INDEX_TYPES.stream().noneMatch(type -> type.name().equalsIgnoreCase(vertexIndexType))) {
+      failureCollector.addFailure(String.format("Vertex index type '%s' is not supported.", vertexIndexType),
+                                  String.format("Supported index types are: %s, %s.", NO_INDEX,
+                                                SUPPORTED_INDEX_TYPES.stream().map(OClass.INDEX_TYPE::name)
+                                                  .collect(Collectors.joining(", "))))
+        .withConfigProperty(VERTEX_INDEX_TYPE);
+    } else {
+      OClass.INDEX_TYPE indexType = getVertexIndexType();
+      boolean uniqueIndex = indexType == OClass.INDEX_TYPE.UNIQUE || indexType == OClass.INDEX_TYPE.UNIQUE_HASH_INDEX;
+      // Upserts rely on a unique index to find vertices and to not create duplicates.
+      if (getWriteMethod() == WriteMethod.SCRIPT && !uniqueIndex) {
+        failureCollector.addFailure(String.format("Write method '%s' requires a unique vertex index.",
+                                                  WriteMethod.SCRIPT.getValue()),
+                                    String.format("Set the vertex index type to %s or %s.",
+                                                  OClass.INDEX_TYPE.UNIQUE_HASH_INDEX, OClass.INDEX_TYPE.UNIQUE))
+          .withConfigProperty(VERTEX_INDEX_TYPE)
+          .withConfigProperty(WRITE_METHOD);
+      }
+      // Keys created by other tasks after the key filter was built are only detected by a unique index.
+      if (getKeyFilterFalsePositiveRate() > 0d && !uniqueIndex) {
+        failureCollector.addFailure("Key filter requires a unique vertex index.",
+                                    String.format("Set the vertex index type to %s or %s.",
+                                                  OClass.INDEX_TYPE.UNIQUE_HASH_INDEX, OClass.INDEX_TYPE.UNIQUE))
+          .withConfigProperty(VERTEX_INDEX_TYPE)
+          .withConfigProperty(KEY_FILTER_FALSE_POSITIVE_RATE);
+      }
+      // Records are routed to writer threads by source vertex, threads may create the same destination vertex.
+      if (getWriterThreads() > 0 && !uniqueIndex) {
+        failureCollector.addFailure("Writer threads require a unique vertex index.",
+                                    String.format("Set the vertex index type to %s or %s.",
+                                                  OClass.INDEX_TYPE.UNIQUE_HASH_INDEX, OClass.INDEX_TYPE.UNIQUE))
+          .withConfigProperty(VERTEX_INDEX_TYPE)
+          .withConfigProperty(WRITER_THREADS);
+      }
+    }
+
+    if (maxRetries != null && maxRetries < 0) {
+      failureCollector.addFailure(String.format("Maximum number of retries '%d' must not be negative.", maxRetries),
+                                  "Set the maximum number of retries to 0 to disable retries.")
+        .withConfigProperty(MAX_RETRIES);
+    }
+
+    if (retryBackoff != null && retryBackoff < 0) {
+      failureCollector.addFailure(String.format("Retry backoff '%d' must not be negative.", retryBackoff), null)
+        .withConfigProperty(RETRY_BACKOFF);
+    }
+
+    if (getMinPoolSize() < 0) {
+      failureCollector.addFailure(String.format("Minimum pool size '%d' must not be negative.", getMinPoolSize()),
+                                  null)
+        .withConfigProperty(MIN_POOL_SIZE);
+    }
+
+    if (getMaxPoolSize() < 1) {
+      failureCollector.addFailure(String.format("Maximum pool size '%d' must be at least 1.", getMaxPoolSize()), null)
+        .withConfigProperty(MAX_POOL_SIZE);
+    } else if (getMinPoolSize() > getMaxPoolSize()) {
+      failureCollector.addFailure(String.format("Minimum pool size '%d' must not be greater than maximum pool " +
+                                                  "size '%d'.", getMinPoolSize(), getMaxPoolSize()), null)
+        .withConfigProperty(MIN_POOL_SIZE)
+        .withConfigProperty(MAX_POOL_SIZE);
+    }
+
+    if (getWriterThreads() < 0) {
+      failureCollector.addFailure(String.format("Writer threads '%d' must not be negative.", getWriterThreads()),
+                                  null)
+        .withConfigProperty(WRITER_THREADS);
+    } else if (getWriterThreads() > getMaxPoolSize()) {
+      failureCollector.addFailure(String.format("Writer threads '%d' must not be greater than maximum pool " +
+                                                  "size '%d'.", getWriterThreads(), getMaxPoolSize()),
+                                  "Every writer thread needs its own connection, increase the maximum pool size.")
+        .withConfigProperty(WRITER_THREADS);
+    }
+
+    if (getWriteQueueSize() < 1) {
+      failureCollector.addFailure(String.format("Write queue size '%d' must be at least 1.", getWriteQueueSize()),
+                                  null)
+        .withConfigProperty(WRITE_QUEUE_SIZE);
+    }
+
+    if (getWriteClusters() < 0) {
+      failureCollector.addFailure(String.format("Write clusters '%d' must not be negative.", getWriteClusters()),
+                                  null)
+        .withConfigProperty(WRITE_CLUSTERS);
+    }
+
+    if (getLookupBatchSize() < 0) {
+      failureCollector.addFailure(String.format("Lookup batch size '%d' must not be negative.",
+                                                getLookupBatchSize()), null)
+        .withConfigProperty(LOOKUP_BATCH_SIZE);
+    }
+
+    double falsePositiveRate = getKeyFilterFalsePositiveRate();
+    if (falsePositiveRate < 0d || falsePositiveRate >= 1d) {
+      failureCollector.addFailure(String.format("Key filter false positive rate '%s' must be at least 0 and less " +
+                                                  "than 1.", falsePositiveRate),
+                                  "Set the false positive rate to 0 to not use a key filter.")
+        .withConfigProperty(KEY_FILTER_FALSE_POSITIVE_RATE);
+    }
+  }
+
+  @Nullable
+  private static Schema getComponentSchema(Schema fieldSchema) {
+    if (fieldSchema.isNullable()) {
+      fieldSchema = fieldSchema.getNonNullable();
+    }
+    if (fieldSchema.getType() != Schema.Type.ARRAY) {
+      return null;
+    }
+    Schema componentSchema = fieldSchema.getComponentSchema();
+    return componentSchema.isNullable() ? componentSchema.getNonNullable() : componentSchema;
+  }
+
+  /**
+   * Validates the records of the edge field, which must hold the destination vertex in the edge target field and
+   * edge properties of simple types in all other fields, and the merges of these properties.
+   */
+  private void validateEdgeRecord(FailureCollector failureCollector, Schema edgeRecordSchema) {
+    String targetField = getEdgeTargetField();
+    Map<String, Schema.Type> propertyTypes = new HashMap<>();
+    boolean targetFound = false;
+    for (Schema.Field field : edgeRecordSchema.getFields()) {
+      Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+      if (field.getName().equals(targetField)) {
+        targetFound = true;
+        if (fieldSchema.getLogicalType() != null || fieldSchema.getType() != Schema.Type.STRING) {
+          failureCollector.addFailure(String.format("Edge target field '%s' must be of type 'string' but is of " +
+                                                      "type '%s'.", targetField, fieldSchema.getDisplayName()),
+                                      null)
+            .withConfigProperty(EDGE_TARGET_FIELD);
+        }
+      } else if (RESERVED_EDGE_PROPERTIES.contains(field.getName()) || field.getName().startsWith("@")) {
+        failureCollector.addFailure(String.format("Edge property '%s' is reserved by OrientDB.", field.getName()),
+                                    "Rename the field of the edge records.")
+          .withConfigProperty(EDGE);
+      } else if (!EDGE_PROPERTY_TYPES.contains(fieldSchema.getType())) {
+        failureCollector.addFailure(String.format("Edge property '%s' is of unsupported type '%s'.",
+                                                  field.getName(), fieldSchema.getDisplayName()),
+                                    "Supported types are boolean, int, long, float, double and string.")
+          .withConfigProperty(EDGE);
+      } else {
+        propertyTypes.put(field.getName(), fieldSchema.getType());
+      }
+    }
+    if (!targetFound) {
+      failureCollector.addFailure(String.format("Edge target field '%s' is not present in the edge records.",
+                                                targetField), null)
+        .withConfigProperty(EDGE_TARGET_FIELD);
+    }
+
+    Map<String, EdgePropertyMerge> merges;
+    try {
+      merges = getEdgePropertyMerges();
+    } catch (IllegalArgumentException ex) {
+      failureCollector.addFailure(ex.getMessage(),
+                                  String.format("Supported merges are: %s.", EdgePropertyMerge.getSupportedValues()))
+        .withConfigProperty(EDGE_PROPERTY_MERGE);
+      return;
+    }
+    for (Map.Entry<String, EdgePropertyMerge> entry : merges.entrySet()) {
+      Schema.Type type = propertyTypes.get(entry.getKey());
+      if (type == null) {
+        failureCollector.addFailure(String.format("Edge property '%s' is not present in the edge records.",
+                                                  entry.getKey()), null)
+          .withConfigProperty(EDGE_PROPERTY_MERGE);
+      } else if (entry.getValue() != EdgePropertyMerge.OVERWRITE && !NUMERIC_TYPES.contains(type)) {
+        failureCollector.addFailure(String.format("Edge property '%s' of type '%s' can't be merged with '%s'.",
+                                                  entry.getKey(), type.name().toLowerCase(),
+                                                  entry.getValue().getValue()),
+                                    String.format("Use '%s' for non-numeric properties.",
+                                                  EdgePropertyMerge.OVERWRITE.getValue()))
+          .withConfigProperty(EDGE_PROPERTY_MERGE);
+      } else if (entry.getValue() == EdgePropertyMerge.SUM && getWriteMode() != null &&
+        getWriteMode() != WriteMode.TRANSACTIONAL) {
+        // A retried operation or script that was partly applied without a transaction would add its values twice.
+        failureCollector.addFailure(String.format("Edge property '%s' can't be merged with '%s' by write mode '%s'.",
+                                                  entry.getKey(), EdgePropertyMerge.SUM.getValue(),
+                                                  getWriteMode().getValue()),
+                                    String.format("Use write mode '%s'.", WriteMode.TRANSACTIONAL.getValue()))
+          .withConfigProperty(EDGE_PROPERTY_MERGE)
+          .withConfigProperty(WRITE_MODE);
+      } else if (entry.getValue() == EdgePropertyMerge.SUM && getCommitMode() == CommitMode.STAGED) {
+        // Staged batches are committed one by one, a retried commit writes the batches committed already again.
+        failureCollector.addFailure(String.format("Edge property '%s' can't be merged with '%s' by commit mode '%s'.",
+                                                  entry.getKey(), EdgePropertyMerge.SUM.getValue(),
+                                                  CommitMode.STAGED.getValue()),
+                                    String.format("Use commit mode '%s'.", CommitMode.DIRECT.getValue()))
+          .withConfigProperty(EDGE_PROPERTY_MERGE)
+          .withConfigProperty(COMMIT_MODE);
+      }
+    }
+  }
+
+  /**
+   * Validates that the fields mapped to vertex properties are present in the input schema and can be stored, and
+   * that the properties don't clash with the properties OrientDB and the sink use.
+   */
+  private void validateVertexProperties(FailureCollector failureCollector, Schema inputSchema) {
+    VertexPropertyMapping mapping;
+    try {
+      mapping = getVertexPropertyMapping();
+    } catch (IllegalArgumentException ex) {
+      failureCollector.addFailure(ex.getMessage(), null).withConfigProperty(VERTEX_PROPERTIES);
+      return;
+    }
+    for (Map.Entry<String, String> entry : mapping.getProperties().entrySet()) {
+      String property = entry.getValue();
+      Schema.Field field = inputSchema.getField(entry.getKey());
+      if (field == null) {
+        failureCollector.addFailure(String.format("Field '%s' is not present in input schema.", entry.getKey()),
+                                    null)
+          .withConfigProperty(VERTEX_PROPERTIES);
+      } else if (PropertyTypes.getType(field.getSchema()) == null) {
+        failureCollector.addFailure(String.format("Field '%s' of type '%s' can't be written as a vertex property.",
+                                                  field.getName(), field.getSchema().getDisplayName()),
+                                    "Maps must have string keys, unions other than nullable types are not " +
+                                      "supported.")
+          .withConfigProperty(VERTEX_PROPERTIES)
+          .withInputSchemaField(field.getName());
+      }
+      // Blueprints keeps the edges of a vertex in 'out_<edge>' and 'in_<edge>' properties.
+      if (property.equals(vertexType) || property.startsWith("@") || property.equals("out_" + edgeType) ||
+        property.equals("in_" + edgeType)) {
+        failureCollector.addFailure(String.format("Vertex property '%s' is reserved for the vertex key or by " +
+                                                    "OrientDB.", property),
+                                    "Map the field to a property of another name.")
+          .withConfigProperty(VERTEX_PROPERTIES);
+      }
+    }
+  }
+
+  /**
+   * Validates that the names of the classes and properties written by scripts can be quoted as SQL identifiers.
+   * OrientDB quotes identifiers with backticks and can't escape backticks within them.
+   */
+  private void validateScriptIdentifiers(FailureCollector failureCollector, Schema inputSchema) {
+    validateScriptIdentifier(failureCollector, vertexType, VERTEX);
+    validateScriptIdentifier(failureCollector, edgeType, EDGE);
+    Schema edgeRecordSchema = getEdgeRecordSchema(inputSchema);
+    if (edgeRecordSchema != null) {
+      for (Schema.Field field : edgeRecordSchema.getFields()) {
+        validateScriptIdentifier(failureCollector, field.getName(), EDGE);
+      }
+    }
+    try {
+      for (String property : getVertexPropertyMapping().getProperties().values()) {
+        validateScriptIdentifier(failureCollector, property, VERTEX_PROPERTIES);
+      }
+    } catch (IllegalArgumentException ex) {
+      // Reported by the validation of the vertex properties.
+    }
+  }
+
+  private static void validateScriptIdentifier(FailureCollector failureCollector, String name,
+                                               String configProperty) {
+    if (name.indexOf('`') >= 0) {
+      failureCollector.addFailure(String.format("Name '%s' can't be written by write method '%s' since it contains " +
+                                                  "a backtick.", name, WriteMethod.SCRIPT.getValue()),
+                                  String.format("Rename it or set the write method to '%s'.",
+                                                WriteMethod.BLUEPRINTS.getValue()))
+        .withConfigProperty(configProperty)
+        .withConfigProperty(WRITE_METHOD);
+    }
+  }
+
+  /**
+   * Validates that the given vertex field is present in the input schema and is of type string.
+   */
+  static void validateVertexField(FailureCollector failureCollector, Schema inputSchema, String vertexType,
+                                  String configProperty) {
+    Schema.Field vertexField = inputSchema.getField(vertexType);
+    if (vertexField == null) {
+      failureCollector.addFailure(String.format("Field '%s' is not present in input schema.", vertexType),
+                                  null).withConfigProperty(configProperty)
+        .withInputSchemaField(configProperty, null);
+    } else {
+      Schema vertexFieldSchema = vertexField.getSchema();
+
+      if (vertexFieldSchema.isNullable()) {
+        vertexFieldSchema = vertexFieldSchema.getNonNullable();
+      }
+
+      if (vertexFieldSchema.getLogicalType() != null || vertexFieldSchema.getType() != Schema.Type.STRING) {
+        failureCollector.addFailure(String.format("Field '%s' must be of type 'string' but is of type '%s'.",
+                                                  vertexField.getName(), vertexFieldSchema.getDisplayName()),
+                                    null).withConfigProperty(configProperty)
+          .withInputSchemaField(configProperty, null);
       }
     }
   }
 
   public void validateDBConnection(FailureCollector failureCollector) {
+    validateDBConnection(failureCollector, connectionString, username, password);
+  }
+
+  /**
+   * Validates that a connection to the given database can be established, with the connection properties named like
+   * the ones of this config.
+   */
+  static void validateDBConnection(FailureCollector failureCollector, String connectionString, String username,
+                                   String password) {
     try {
-      new OrientGraph(connectionString, username, password);
+      openNoTxGraph(connectionString, username, password).shutdown();
     } catch (Exception ex) {
       failureCollector.addFailure(String.format("Cannot authenticate to '%s' with user name and password '%s':'%s'",
                                                 connectionString, username, password), null)
@@ -171,6 +908,22 @@ public class OrientDBConfig extends PluginConfig {
     }
   }
 
+  /**
+   * Opens a non-transactional graph outside of the connection pools, which are only kept by the JVMs running tasks.
+   * Call {@link com.tinkerpop.blueprints.impls.orient.OrientBaseGraph#shutdown()} to close it.
+   */
+  public OrientGraphNoTx getNoTxGraph() {
+    return openNoTxGraph(connectionString, username, password);
+  }
+
+  /**
+   * Opens a non-transactional graph of the given database outside of the connection pools, for the one-off
+   * connections of pipeline configuration and preparation.
+   */
+  static OrientGraphNoTx openNoTxGraph(String connectionString, String username, String password) {
+    return new OrientGraphNoTx(connectionString, username, password);
+  }
+
   public static Builder builder() {
     return new Builder();
   }
@@ -182,7 +935,29 @@ public class OrientDBConfig extends PluginConfig {
       .setUsername(copy.getUsername())
       .setPassword(copy.getPassword())
       .setVertexType(copy.getVertexType())
-      .setEdgeType(copy.getEdgeType());
+      .setEdgeType(copy.getEdgeType())
+      .setEdgeTargetField(copy.edgeTargetField)
+      .setEdgePropertyMerge(copy.edgePropertyMerge)
+      .setVertexProperties(copy.vertexProperties)
+      .setSyncMode(copy.syncMode)
+      .setLightweightEdges(copy.lightweightEdges)
+      .setVertexCacheSize(copy.vertexCacheSize)
+      .setOffHeapVertexCacheSize(copy.offHeapVertexCacheSize)
+      .setBatchSize(copy.batchSize)
+      .setCommitInterval(copy.commitInterval)
+      .setWriteMode(copy.writeMode)
+      .setWriteMethod(copy.writeMethod)
+      .setCommitMode(copy.commitMode)
+      .setVertexIndexType(copy.vertexIndexType)
+      .setMaxRetries(copy.maxRetries)
+      .setRetryBackoff(copy.retryBackoff)
+      .setMinPoolSize(copy.minPoolSize)
+      .setMaxPoolSize(copy.maxPoolSize)
+      .setWriterThreads(copy.writerThreads)
+      .setWriteQueueSize(copy.writeQueueSize)
+      .setWriteClusters(copy.writeClusters)
+      .setLookupBatchSize(copy.lookupBatchSize)
+      .setKeyFilterFalsePositiveRate(copy.keyFilterFalsePositiveRate);
   }
 
   public static final class Builder {
@@ -192,7 +967,28 @@ public class OrientDBConfig extends PluginConfig {
     private String password;
     private String vertexType;
     private String edgeType;
-
+    private String edgeTargetField;
+    private String edgePropertyMerge;
+    private String vertexProperties;
+    private String syncMode;
+    private Boolean lightweightEdges;
+    private Integer vertexCacheSize;
+    private Integer offHeapVertexCacheSize;
+    private Integer batchSize;
+    private Long commitInterval;
+    private String writeMode;
+    private String writeMethod;
+    private String commitMode;
+    private String vertexIndexType;
+    private Integer maxRetries;
+    private Long retryBackoff;
+    private Integer minPoolSize;
+    private Integer maxPoolSize;
+    private Integer writerThreads;
+    private Integer writeQueueSize;
+    private Integer writeClusters;
+    private Integer lookupBatchSize;
+    private Double keyFilterFalsePositiveRate;
 
     private Builder() {
     }
@@ -227,6 +1023,116 @@ public class OrientDBConfig extends PluginConfig {
       return this;
     }
 
+    public Builder setEdgeTargetField(String edgeTargetField) {
+      this.edgeTargetField = edgeTargetField;
+      return this;
+    }
+
+    public Builder setEdgePropertyMerge(String edgePropertyMerge) {
+      this.edgePropertyMerge = edgePropertyMerge;
+      return this;
+    }
+
+    public Builder setVertexProperties(String vertexProperties) {
+      this.vertexProperties = vertexProperties;
+      return this;
+    }
+
+    public Builder setSyncMode(String syncMode) {
+      this.syncMode = syncMode;
+      return this;
+    }
+
+    public Builder setLightweightEdges(Boolean lightweightEdges) {
+      this.lightweightEdges = lightweightEdges;
+      return this;
+    }
+
+    public Builder setVertexCacheSize(Integer vertexCacheSize) {
+      this.vertexCacheSize = vertexCacheSize;
+      return this;
+    }
+
+    public Builder setOffHeapVertexCacheSize(Integer offHeapVertexCacheSize) {
+      this.offHeapVertexCacheSize = offHeapVertexCacheSize;
+      return this;
+    }
+
+    public Builder setBatchSize(Integer batchSize) {
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    public Builder setCommitInterval(Long commitInterval) {
+      this.commitInterval = commitInterval;
+      return this;
+    }
+
+    public Builder setWriteMode(String writeMode) {
+      this.writeMode = writeMode;
+      return this;
+    }
+
+    public Builder setWriteMethod(String writeMethod) {
+      this.writeMethod = writeMethod;
+      return this;
+    }
+
+    public Builder setCommitMode(String commitMode) {
+      this.commitMode = commitMode;
+      return this;
+    }
+
+    public Builder setVertexIndexType(String vertexIndexType) {
+      this.vertexIndexType = vertexIndexType;
+      return this;
+    }
+
+    public Builder setMaxRetries(Integer maxRetries) {
+      this.maxRetries = maxRetries;
+      return this;
+    }
+
+    public Builder setRetryBackoff(Long retryBackoff) {
+      this.retryBackoff = retryBackoff;
+      return this;
+    }
+
+    public Builder setMinPoolSize(Integer minPoolSize) {
+      this.minPoolSize = minPoolSize;
+      return this;
+    }
+
+    public Builder setMaxPoolSize(Integer maxPoolSize) {
+      this.maxPoolSize = maxPoolSize;
+      return this;
+    }
+
+    public Builder setWriterThreads(Integer writerThreads) {
+      this.writerThreads = writerThreads;
+      return this;
+    }
+
+    public Builder setWriteQueueSize(Integer writeQueueSize) {
+      this.writeQueueSize = writeQueueSize;
+      return this;
+    }
+
+    public Builder setWriteClusters(Integer writeClusters) {
+      this.writeClusters = writeClusters;
+      return this;
+    }
+
+    public Builder setLookupBatchSize(Integer lookupBatchSize) {
+      this.lookupBatchSize = lookupBatchSize;
+      return this;
+    }
+
+    public Builder setKeyFilterFalsePositiveRate(Double keyFilterFalsePositiveRate) {
+      this.keyFilterFalsePositiveRate = keyFilterFalsePositiveRate;
+      return this;
+    }
+
     public OrientDBConfig build() {
       return new OrientDBConfig(this);
     }
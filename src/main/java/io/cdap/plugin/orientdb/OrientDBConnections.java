@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * JVM wide pools of OrientDB connections, one per connection string and user. Graphs obtained from here are
+ * returned to their pool by calling {@link com.tinkerpop.blueprints.impls.orient.OrientBaseGraph#shutdown()}, so
+ * that tasks running one after the other in the same JVM don't pay the connection setup cost again.
+ * All pools are closed when the JVM shuts down, so they are only used by the JVMs running tasks. Pipeline
+ * configuration and preparation open one-off graphs with {@link OrientDBConfig#getNoTxGraph()} instead.
+ */
+public final class OrientDBConnections {
+  private static final Logger LOG = LoggerFactory.getLogger(OrientDBConnections.class);
+  private static final Map<ConnectionKey, OrientGraphFactory> FACTORIES = new ConcurrentHashMap<>();
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(OrientDBConnections::closeAll, "orientdb-connections-shutdown"));
+  }
+
+  private OrientDBConnections() {
+  }
+
+  /**
+   * Returns a transactional graph from the pool of the given connection, creating the pool if necessary.
+   * Pool sizes only take effect when the pool is created.
+   */
+  public static OrientGraph getTx(String connectionString, String username, String password,
+                                  int minPoolSize, int maxPoolSize) {
+    return acquire(connectionString, username, password, minPoolSize, maxPoolSize, OrientGraphFactory::getTx);
+  }
+
+  /**
+   * Returns a non-transactional graph from the pool of the given connection, creating the pool if necessary.
+   * Pool sizes only take effect when the pool is created.
+   */
+  public static OrientGraphNoTx getNoTx(String connectionString, String username, String password,
+                                        int minPoolSize, int maxPoolSize) {
+    return acquire(connectionString, username, password, minPoolSize, maxPoolSize, OrientGraphFactory::getNoTx);
+  }
+
+  /**
+   * Returns whether this JVM holds a pool of the given connection.
+   */
+  static boolean isPooled(String connectionString, String username, String password) {
+    return FACTORIES.containsKey(new ConnectionKey(connectionString, username, password));
+  }
+
+  /**
+   * Closes all pools and the connections held by them.
+   */
+  public static void closeAll() {
+    for (ConnectionKey key : FACTORIES.keySet()) {
+      OrientGraphFactory factory = FACTORIES.remove(key);
+      if (factory != null) {
+        close(key, factory);
+      }
+    }
+  }
+
+  static <T> T acquire(String connectionString, String username, String password,
+                       int minPoolSize, int maxPoolSize, Function<OrientGraphFactory, T> graphSupplier) {
+    ConnectionKey key = new ConnectionKey(connectionString, username, password);
+    boolean[] created = new boolean[1];
+    OrientGraphFactory factory = FACTORIES.computeIfAbsent(key, k -> {
+      created[0] = true;
+      return new OrientGraphFactory(connectionString, username, password).setupPool(minPoolSize, maxPoolSize);
+    });
+    try {
+      return graphSupplier.apply(factory);
+    } catch (RuntimeException ex) {
+      // Don't keep pools around for connections that cannot be established, for example because of a wrong password.
+      // Failures of pools that served graphs before, such as an exhausted pool, leave the graphs in use untouched.
+      if (created[0] && FACTORIES.remove(key, factory)) {
+        close(key, factory);
+      }
+      throw ex;
+    }
+  }
+
+  private static void close(ConnectionKey key, OrientGraphFactory factory) {
+    try {
+      factory.close();
+    } catch (Exception ex) {
+      LOG.warn("Exception while closing the OrientDB connection pool of '{}'.", key.connectionString, ex);
+    }
+  }
+
+  /**
+   * Identifies a pool of connections.
+   */
+  private static final class ConnectionKey {
+    private final String connectionString;
+    private final String username;
+    private final String password;
+
+    private ConnectionKey(String connectionString, String username, String password) {
+      this.connectionString = connectionString;
+      this.username = username;
+      this.password = password;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      ConnectionKey that = (ConnectionKey) o;
+      return Objects.equals(connectionString, that.connectionString) &&
+        Objects.equals(username, that.username) &&
+        Objects.equals(password, that.password);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(connectionString, username, password);
+    }
+  }
+}
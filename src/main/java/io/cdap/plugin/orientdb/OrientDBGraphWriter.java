@@ -0,0 +1,740 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.common.concur.ONeedRetryException;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.storage.ORecordDuplicatedException;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientEdge;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+import org.apache.hadoop.conf.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * {@link GraphWriter} that looks up and creates vertices and edges through the Blueprints API, batching them into
+ * transactions and retrying failed batches.
+ */
+public class OrientDBGraphWriter implements GraphWriter {
+  private static final Logger LOG = LoggerFactory.getLogger(OrientDBGraphWriter.class);
+  // Maximum number of source vertices whose out neighbours are tracked within a batch.
+  private static final int MAX_TRACKED_SOURCES = 10000;
+  private static final long MAX_RETRY_BACKOFF = TimeUnit.SECONDS.toMillis(30);
+
+  private final String connectionString;
+  private final String username;
+  private final String password;
+  private final String vertexName;
+  private final String edgeName;
+  private final Map<String, EdgePropertyMerge> edgePropertyMerges;
+  private final boolean lightweightEdges;
+  // Field of source vertices holding their out edges.
+  private final String outEdgesField;
+  // Run the out edges of source vertices are replaced for, or null if edges are only added.
+  @Nullable
+  private final String syncRun;
+  private final String[] keyArray = new String[1];
+  private final String[] valueArray = new String[1];
+  // Index of this writer among the parallel writers, selecting the clusters it writes to, or -1.
+  private final int writerId;
+  private final VertexCache vertexCache;
+  // Keys of the vertices that existed when the run was prepared or were created by this writer, or null.
+  @Nullable
+  private final VertexKeyFilter keyFilter;
+  // Key the vertex cache is shared by in this JVM, or null if the cache is used by this writer only.
+  @Nullable
+  private final String sharedVertexCacheKey;
+  private final int batchSize;
+  private final int lookupBatchSize;
+  private final long commitInterval;
+  private final WriteMode writeMode;
+  private final Map<String, LongHashSet> outNeighbours;
+  private final int maxRetries;
+  private final long retryBackoff;
+  private final int minPoolSize;
+  private final int maxPoolSize;
+  // Operations of the current transaction, replayed when the transaction has to be retried.
+  private final List<GraphOperation> batch = new ArrayList<>();
+  // Operations whose vertices are looked up together before they are written.
+  private final List<GraphOperation> pending = new ArrayList<>();
+  // Record ids of the vertices of the current batch by key, null for keys of vertices that don't exist yet.
+  private final Map<String, ORID> resolvedVertices = new HashMap<>();
+  private final WriteMetrics metrics;
+
+  private OrientBaseGraph graph;
+  // Class and cluster of created vertices and edges, as passed to Blueprints.
+  private String vertexClass;
+  private String edgeClass;
+  @Nullable
+  private String edgeCluster;
+  // Sorted ids of the clusters holding edge records, as opposed to vertex records linked by lightweight edges.
+  private int[] edgeClusterIds;
+  private boolean initialized;
+  private int recordsInBatch;
+  private long batchStartTime;
+  private int failedAttempts;
+  // Whether failed operations are written again, which looks up all vertices since the key filter may be outdated.
+  private boolean recovering;
+
+  public OrientDBGraphWriter(Configuration hConf) {
+    this.connectionString = hConf.get(OrientDBSink.ORIENTDB_CONNECTION_STRING);
+    this.username = hConf.get(OrientDBSink.ORIENTDB_USERNAME);
+    this.password = hConf.get(OrientDBSink.ORIENTDB_PASSWORD);
+    this.vertexName = hConf.get(OrientDBSink.ORIENTDB_VERTEX);
+    this.edgeName = hConf.get(OrientDBSink.ORIENTDB_EDGE);
+    this.edgePropertyMerges = EdgePropertyMerge.parse(hConf.get(OrientDBSink.ORIENTDB_EDGE_PROPERTY_MERGE));
+    this.lightweightEdges = hConf.getBoolean(OrientDBSink.ORIENTDB_LIGHTWEIGHT_EDGES, false);
+    this.outEdgesField = OrientVertex.getConnectionFieldName(Direction.OUT, edgeName, true);
+    this.syncRun = hConf.getEnum(OrientDBSink.ORIENTDB_SYNC_MODE, SyncMode.APPEND) == SyncMode.REPLACE_OUT_EDGES
+      ? hConf.get(OrientDBSink.ORIENTDB_SYNC_RUN) : null;
+    this.writerId = hConf.getInt(OrientDBSink.ORIENTDB_WRITER_ID, -1);
+    this.sharedVertexCacheKey = hConf.getBoolean(OrientDBSink.ORIENTDB_SHARE_VERTEX_CACHE, false)
+      ? String.format("%s|%s", connectionString, vertexName) : null;
+    int vertexCacheSize = hConf.getInt(OrientDBSink.ORIENTDB_VERTEX_CACHE_SIZE,
+                                       OrientDBConfig.DEFAULT_VERTEX_CACHE_SIZE);
+    long vertexCacheMemory = getVertexCacheMemory(hConf);
+    this.vertexCache = sharedVertexCacheKey == null ? new VertexCache(vertexCacheSize, vertexCacheMemory)
+      : VertexCache.acquire(sharedVertexCacheKey, vertexCacheSize, vertexCacheMemory);
+    String keyFilter = hConf.get(OrientDBSink.ORIENTDB_KEY_FILTER);
+    this.keyFilter = keyFilter == null ? null : VertexKeyFilter.deserialize(keyFilter);
+    this.batchSize = hConf.getInt(OrientDBSink.ORIENTDB_BATCH_SIZE, OrientDBConfig.DEFAULT_BATCH_SIZE);
+    this.lookupBatchSize = hConf.getInt(OrientDBSink.ORIENTDB_LOOKUP_BATCH_SIZE,
+                                        OrientDBConfig.DEFAULT_LOOKUP_BATCH_SIZE);
+    this.commitInterval = hConf.getLong(OrientDBSink.ORIENTDB_COMMIT_INTERVAL, 0L);
+    this.writeMode = hConf.getEnum(OrientDBSink.ORIENTDB_WRITE_MODE, WriteMode.TRANSACTIONAL);
+    this.outNeighbours = new LruMap<>(MAX_TRACKED_SOURCES);
+    this.maxRetries = hConf.getInt(OrientDBSink.ORIENTDB_MAX_RETRIES, OrientDBConfig.DEFAULT_MAX_RETRIES);
+    this.retryBackoff = hConf.getLong(OrientDBSink.ORIENTDB_RETRY_BACKOFF, OrientDBConfig.DEFAULT_RETRY_BACKOFF);
+    this.minPoolSize = hConf.getInt(OrientDBSink.ORIENTDB_MIN_POOL_SIZE, OrientDBConfig.DEFAULT_MIN_POOL_SIZE);
+    this.maxPoolSize = hConf.getInt(OrientDBSink.ORIENTDB_MAX_POOL_SIZE, OrientDBConfig.DEFAULT_MAX_POOL_SIZE);
+    this.metrics = new WriteMetrics(hConf.get(OrientDBSink.ORIENTDB_METRICS_KEY));
+  }
+
+  @Override
+  public void write(GraphOperation operation) throws IOException, InterruptedException {
+    if (!initialized) {
+      initialized = true;
+      initializeGraph();
+    }
+
+    if (graph instanceof OrientGraph) {
+      batch.add(operation);
+    }
+    if (lookupBatchSize > 0) {
+      pending.add(operation);
+      if (pending.size() >= lookupBatchSize) {
+        writePending();
+      }
+    } else {
+      try {
+        writeOperation(operation);
+      } catch (RuntimeException ex) {
+        recover(ex, operation);
+      }
+      markWritten();
+    }
+
+    recordsInBatch++;
+    if (isBatchComplete()) {
+      completeBatch();
+    }
+  }
+
+  @Override
+  public void flush() throws IOException, InterruptedException {
+    if (graph != null && recordsInBatch > 0) {
+      completeBatch();
+    }
+  }
+
+  @Override
+  public void close() throws IOException, InterruptedException {
+    if (graph != null) {
+      if (recordsInBatch > 0) {
+        try {
+          completeBatch();
+        } catch (Exception ex) {
+          // Rolls back the open transaction and returns the connection, so that later writers get one.
+          try {
+            abort();
+          } catch (RuntimeException abortException) {
+            ex.addSuppressed(abortException);
+          }
+          throw ex;
+        }
+      }
+      release();
+    }
+    metrics.report();
+    LOG.info("Wrote records to OrientDB in '{}' mode: {}.", writeMode.getValue(), metrics);
+    LOG.debug("Vertex cache hits: {}, misses: {}, evictions: {}.",
+              vertexCache.getHits(), vertexCache.getMisses(), vertexCache.getEvictions());
+    if (sharedVertexCacheKey != null) {
+      // All vertices are committed, so that the next writer can use the cached record ids.
+      VertexCache.release(sharedVertexCacheKey, vertexCache);
+    }
+  }
+
+  @Override
+  public void abort() {
+    pending.clear();
+    resolvedVertices.clear();
+    if (graph != null) {
+      try {
+        if (graph instanceof OrientGraph) {
+          graph.rollback();
+        }
+      } finally {
+        release();
+      }
+    }
+    metrics.rollback();
+    metrics.report();
+  }
+
+  private void release() {
+    try {
+      if (writeMode == WriteMode.MASSIVE_INSERT) {
+        graph.declareIntent(null);
+      }
+    } finally {
+      // Returns the connection to the pool.
+      graph.shutdown();
+      graph = null;
+    }
+  }
+
+  /**
+   * Marks the operations written so far as persisted if they are written without a transaction.
+   */
+  private void markWritten() {
+    if (!(graph instanceof OrientGraph)) {
+      // Without a transaction everything is persisted right away.
+      vertexCache.markCommitted();
+      metrics.commit();
+      failedAttempts = 0;
+    }
+  }
+
+  /**
+   * Writes the pending operations after looking up all their vertices that aren't known yet with a single query.
+   */
+  private void writePending() throws IOException, InterruptedException {
+    resolveVertices();
+    for (GraphOperation operation : pending) {
+      try {
+        writeOperation(operation);
+      } catch (RuntimeException ex) {
+        recover(ex, operation);
+        if (graph instanceof OrientGraph) {
+          // All operations of the transaction have been written again, including the remaining pending ones.
+          break;
+        }
+      }
+      markWritten();
+    }
+    pending.clear();
+    if (!(graph instanceof OrientGraph)) {
+      // Vertices created without a transaction are found by the next query.
+      resolvedVertices.clear();
+    }
+  }
+
+  /**
+   * Collects the distinct keys of the vertices of the pending operations that are neither cached nor resolved in
+   * this batch already, and looks them up with a single query. Keys that aren't found are resolved to {@code null},
+   * so that their vertices get created without looking them up again.
+   */
+  private void resolveVertices() {
+    Set<String> keys = new LinkedHashSet<>();
+    for (GraphOperation operation : pending) {
+      addUnresolvedKey(operation.getSourceVertex(), keys);
+      for (String destinationVertex : operation.getDestinationVertices()) {
+        addUnresolvedKey(destinationVertex, keys);
+      }
+    }
+    if (keys.isEmpty()) {
+      return;
+    }
+
+    long startTime = System.nanoTime();
+    List<ODocument> vertices;
+    try {
+      vertices = graph.getRawGraph().query(new OSQLSynchQuery<ODocument>(
+        String.format("SELECT FROM `%s` WHERE `%s` IN ?", vertexName, vertexName)), new ArrayList<>(keys));
+    } catch (RuntimeException ex) {
+      // The vertices are looked up one by one instead, which recovers from failures like any other write.
+      LOG.debug("Failed to look up {} vertices at once: {}", keys.size(), ex.getMessage());
+      return;
+    }
+    metrics.getLookups().recordSince(startTime);
+    for (String key : keys) {
+      resolvedVertices.put(key, null);
+    }
+    for (ODocument vertex : vertices) {
+      // Keeps the first vertex of a key, like looking it up on its own. There should ideally be only one.
+      resolvedVertices.putIfAbsent(vertex.field(vertexName), vertex.getIdentity());
+    }
+  }
+
+  private void addUnresolvedKey(String vertexValue, Set<String> keys) {
+    if (resolvedVertices.containsKey(vertexValue) || vertexCache.contains(vertexValue)) {
+      return;
+    }
+    if (isAbsent(vertexValue)) {
+      resolvedVertices.put(vertexValue, null);
+      metrics.increment(WriteMetrics.Counter.LOOKUPS_SKIPPED);
+    } else {
+      keys.add(vertexValue);
+    }
+  }
+
+  /**
+   * Returns whether no vertex with the given key exists according to the key filter. Vertices created by other
+   * writers since the filter was built are missed, creating them again fails on the unique index and the operation
+   * is written again with lookups.
+   */
+  private boolean isAbsent(String vertexValue) {
+    return keyFilter != null && !recovering && !keyFilter.mightContain(vertexValue);
+  }
+
+  private boolean isBatchComplete() {
+    if (batchSize > 0 && recordsInBatch >= batchSize) {
+      return true;
+    }
+    return commitInterval > 0 && System.currentTimeMillis() - batchStartTime >= commitInterval;
+  }
+
+  private void writeOperation(GraphOperation operation) {
+    String sourceVertexValue = operation.getSourceVertex();
+    Vertex sourceVertex = getOrCreateVertex(sourceVertexValue, operation.getVertexProperties());
+    List<String> destinationVertexValues = operation.getDestinationVertices();
+    List<Vertex> destinationVertices = new ArrayList<>(destinationVertexValues.size());
+    for (String destinationVertexValue : destinationVertexValues) {
+      destinationVertices.add(getOrCreateVertex(destinationVertexValue, Collections.emptyMap()));
+    }
+    // Only the first record of a source vertex in the run replaces its out edges, later ones add to them.
+    boolean replaceOutEdges = syncRun != null && !syncRun.equals(sourceVertex.getProperty(SyncMode.RUN_PROPERTY));
+    if (replaceOutEdges) {
+      removeStaleOutEdges(sourceVertexValue, (OrientVertex) sourceVertex, destinationVertices);
+    }
+    LongHashSet sourceOutNeighbours = getOutNeighbours(sourceVertexValue, sourceVertex);
+    for (int i = 0; i < destinationVertices.size(); i++) {
+      Vertex destinationVertex = destinationVertices.get(i);
+      Map<String, Object> properties = operation.getEdgeProperties(i);
+      // If an edge already exists between the two vertices, don't add another one.
+      if (sourceOutNeighbours.add(RecordIds.pack((ORID) destinationVertex.getId()))) {
+        if (properties.isEmpty()) {
+          graph.addEdge(edgeClass, sourceVertex, destinationVertex, edgeName);
+        } else {
+          ((OrientVertex) sourceVertex).addEdge(edgeName, (OrientVertex) destinationVertex, edgeName, edgeCluster,
+                                                properties);
+        }
+        metrics.incrementPending(WriteMetrics.Counter.EDGES_CREATED);
+      } else if (properties.isEmpty()) {
+        metrics.incrementPending(WriteMetrics.Counter.EDGES_SKIPPED);
+      } else {
+        mergeEdgeProperties((OrientVertex) sourceVertex, (OrientVertex) destinationVertex, properties);
+        metrics.incrementPending(WriteMetrics.Counter.EDGES_UPDATED);
+      }
+    }
+    if (replaceOutEdges) {
+      // Set last, so that the edges are replaced again if writing the record fails without a transaction.
+      sourceVertex.setProperty(SyncMode.RUN_PROPERTY, syncRun);
+    }
+  }
+
+  /**
+   * Removes the out edges of the given source vertex that lead to none of the given destination vertices.
+   */
+  private void removeStaleOutEdges(String sourceVertexValue, OrientVertex sourceVertex,
+                                   List<Vertex> destinationVertices) {
+    LongHashSet destinations = new LongHashSet(destinationVertices.size());
+    for (Vertex destinationVertex : destinationVertices) {
+      destinations.add(RecordIds.pack((ORID) destinationVertex.getId()));
+    }
+    List<Edge> staleEdges = new ArrayList<>();
+    for (Edge edge : sourceVertex.getEdges(Direction.OUT, edgeName)) {
+      // The destination vertex is never loaded, its record id is read from the edge or the lightweight link.
+      if (!destinations.contains(RecordIds.pack(((OrientEdge) edge).getInVertex().getIdentity()))) {
+        staleEdges.add(edge);
+      }
+    }
+    for (Edge edge : staleEdges) {
+      edge.remove();
+      metrics.incrementPending(WriteMetrics.Counter.EDGES_REMOVED);
+    }
+    if (!staleEdges.isEmpty()) {
+      // Read again without the removed edges.
+      outNeighbours.remove(sourceVertexValue);
+    }
+  }
+
+  /**
+   * Merges the given properties into the existing edge between the given vertices.
+   */
+  private void mergeEdgeProperties(OrientVertex sourceVertex, OrientVertex destinationVertex,
+                                   Map<String, Object> properties) {
+    for (Edge edge : sourceVertex.getEdges(destinationVertex, Direction.OUT, edgeName)) {
+      Map<String, Object> merged = new HashMap<>(properties.size());
+      for (Map.Entry<String, Object> property : properties.entrySet()) {
+        EdgePropertyMerge merge = edgePropertyMerges.getOrDefault(property.getKey(), EdgePropertyMerge.OVERWRITE);
+        merged.put(property.getKey(), merge.merge(edge.getProperty(property.getKey()), property.getValue()));
+      }
+      // Saves the edge once for all properties.
+      ((OrientEdge) edge).setProperties(merged);
+      return;
+    }
+  }
+
+  private void completeBatch() throws IOException, InterruptedException {
+    if (!pending.isEmpty()) {
+      writePending();
+    }
+    if (graph instanceof OrientGraph) {
+      while (true) {
+        try {
+          long startTime = System.nanoTime();
+          graph.commit();
+          metrics.getCommits().recordSince(startTime);
+          break;
+        } catch (RuntimeException ex) {
+          recover(ex, null);
+        }
+      }
+      vertexCache.markCommitted();
+      metrics.increment(WriteMetrics.Counter.BATCHES_COMMITTED);
+      metrics.commit();
+      batch.clear();
+      failedAttempts = 0;
+    }
+    // Neighbour sets and resolved vertices may hold temporary record ids, which are replaced on commit.
+    outNeighbours.clear();
+    resolvedVertices.clear();
+    recordsInBatch = 0;
+    batchStartTime = System.currentTimeMillis();
+    metrics.maybeReport();
+  }
+
+  /**
+   * Recovers from a failed write or commit. Transactions are rolled back and all operations written in them are
+   * replayed, without a transaction only the given operation is written again. Failures caused by concurrent writers
+   * are retried with exponential backoff, any other failure or running out of retries fails the task, so that
+   * records are never dropped silently.
+   */
+  private void recover(RuntimeException failure, @Nullable GraphOperation operation)
+    throws IOException, InterruptedException {
+    RuntimeException lastFailure = failure;
+    while (true) {
+      if (graph instanceof OrientGraph) {
+        graph.rollback();
+        metrics.increment(WriteMetrics.Counter.ROLLBACKS);
+      }
+      metrics.rollback();
+      vertexCache.removeUncommitted();
+      outNeighbours.clear();
+      // Vertices are looked up one by one again, resolved ones may have been rolled back or created by others.
+      resolvedVertices.clear();
+      // Drop records cached by OrientDB, they may be outdated versions of records modified by other writers.
+      graph.getRawGraph().getLocalCache().clear();
+
+      if (!isRetryable(lastFailure)) {
+        metrics.increment(WriteMetrics.Counter.FAILURES);
+        throw new IOException("Failed to write records to OrientDB.", lastFailure);
+      }
+      if (++failedAttempts > maxRetries) {
+        metrics.increment(WriteMetrics.Counter.FAILURES);
+        throw new IOException(String.format("Failed to write records to OrientDB after %d retries.", maxRetries),
+                              lastFailure);
+      }
+
+      metrics.increment(WriteMetrics.Counter.RETRIES);
+      backoff(retryBackoff, failedAttempts, lastFailure);
+
+      recovering = true;
+      try {
+        if (graph instanceof OrientGraph) {
+          for (GraphOperation batchOperation : batch) {
+            writeOperation(batchOperation);
+          }
+        } else if (operation != null) {
+          writeOperation(operation);
+        }
+        return;
+      } catch (RuntimeException ex) {
+        lastFailure = ex;
+      } finally {
+        recovering = false;
+      }
+    }
+  }
+
+  /**
+   * Waits before the next attempt after the given number of failed attempts. The wait time grows exponentially and
+   * is randomized, so that conflicting tasks don't retry in lockstep.
+   */
+  static void backoff(long retryBackoff, int failedAttempts, Throwable failure) throws InterruptedException {
+    long backoff = Math.min(MAX_RETRY_BACKOFF, retryBackoff << Math.min(failedAttempts - 1, 30));
+    LOG.debug("Retrying write to OrientDB in {} ms after attempt {} failed: {}",
+              backoff, failedAttempts, failure.getMessage());
+    TimeUnit.MILLISECONDS.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+  }
+
+  static boolean isRetryable(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      // Duplicates are created when another writer added the same vertex, which is found on the next attempt.
+      if (cause instanceof ONeedRetryException || cause instanceof ORecordDuplicatedException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the packed record ids of all vertices the given source vertex has an out edge to. The ids are read
+   * from the database once per source and batch, and kept up to date as edges get added.
+   */
+  private LongHashSet getOutNeighbours(String sourceVertexValue, Vertex sourceVertex) {
+    LongHashSet neighbours = outNeighbours.get(sourceVertexValue);
+    if (neighbours == null) {
+      long startTime = System.nanoTime();
+      neighbours = new LongHashSet();
+      Object outEdges = ((OrientVertex) sourceVertex).getRecord().rawField(outEdgesField);
+      if (outEdges instanceof ORidBag) {
+        addOutNeighbours((ORidBag) outEdges, neighbours);
+      } else {
+        for (Vertex neighbour : sourceVertex.getVertices(Direction.OUT, edgeName)) {
+          neighbours.add(RecordIds.pack((ORID) neighbour.getId()));
+        }
+      }
+      metrics.getEdgeScans().recordSince(startTime);
+      outNeighbours.put(sourceVertexValue, neighbours);
+    }
+    return neighbours;
+  }
+
+  /**
+   * Adds the out neighbours linked by the given bag of out edges without loading the neighbours. Lightweight edges
+   * link the neighbour directly, only edge records are loaded to read the neighbour they point to.
+   */
+  private void addOutNeighbours(ORidBag outEdges, LongHashSet neighbours) {
+    if (edgeClusterIds == null) {
+      OClass edgeType = graph.getRawGraph().getMetadata().getSchema().getClass(edgeName);
+      edgeClusterIds = edgeType == null ? new int[0] : edgeType.getPolymorphicClusterIds().clone();
+      Arrays.sort(edgeClusterIds);
+    }
+    Iterator<OIdentifiable> links = outEdges.rawIterator();
+    while (links.hasNext()) {
+      ORID rid = links.next().getIdentity();
+      if (Arrays.binarySearch(edgeClusterIds, rid.getClusterId()) >= 0) {
+        ODocument edge = rid.getRecord();
+        // Raw fields aren't loaded, the neighbour itself is never read.
+        Object in = edge == null ? null : edge.rawField(OrientBaseGraph.CONNECTION_IN);
+        if (!(in instanceof OIdentifiable)) {
+          continue;
+        }
+        rid = ((OIdentifiable) in).getIdentity();
+      }
+      neighbours.add(RecordIds.pack(rid));
+    }
+  }
+
+  /**
+   * Returns the vertex with the given key, which is created with the given properties if it doesn't exist yet.
+   * The properties of an existing vertex are updated instead.
+   */
+  private Vertex getOrCreateVertex(String vertexValue, Map<String, Object> properties) {
+    long cachedRid = vertexCache.getPacked(vertexValue);
+    ORID rid;
+    if (cachedRid != OffHeapVertexMap.NOT_FOUND) {
+      Vertex vertex = graph.getVertex(RecordIds.unpack(cachedRid));
+      if (vertex != null && vertexValue.equals(String.valueOf(vertex.<Object>getProperty(vertexName)))) {
+        metrics.incrementPending(WriteMetrics.Counter.VERTICES_FOUND);
+        updateVertexProperties((OrientVertex) vertex, properties);
+        return vertex;
+      }
+      // The vertex has been removed since it was cached, or it's the vertex of another key with the same hash.
+      vertexCache.remove(vertexValue);
+    }
+
+    Vertex vertex;
+    if (resolvedVertices.containsKey(vertexValue)) {
+      rid = resolvedVertices.get(vertexValue);
+      vertex = rid == null ? null : graph.getVertex(rid);
+    } else if (isAbsent(vertexValue)) {
+      vertex = null;
+      metrics.increment(WriteMetrics.Counter.LOOKUPS_SKIPPED);
+    } else {
+      long startTime = System.nanoTime();
+      vertex = lookupVertex(vertexValue);
+      metrics.getLookups().recordSince(startTime);
+    }
+    if (vertex == null) {
+      vertex = properties.isEmpty() ? graph.addVertex(vertexClass, vertexName, vertexValue)
+        : graph.addVertex(vertexClass, toKeyValues(vertexValue, properties));
+      vertexCache.putCreated(vertexValue, (ORID) vertex.getId());
+      if (keyFilter != null) {
+        // Looked up instead of created again once it's evicted from the cache.
+        keyFilter.add(vertexValue);
+      }
+      if (lookupBatchSize > 0) {
+        // Found by the operations of the batch written later, even if the cache is disabled or evicts it.
+        resolvedVertices.put(vertexValue, (ORID) vertex.getId());
+      }
+      metrics.incrementPending(WriteMetrics.Counter.VERTICES_CREATED);
+    } else {
+      vertexCache.put(vertexValue, (ORID) vertex.getId());
+      metrics.incrementPending(WriteMetrics.Counter.VERTICES_FOUND);
+      updateVertexProperties((OrientVertex) vertex, properties);
+    }
+    return vertex;
+  }
+
+  /**
+   * Returns the key and the given properties of a new vertex as alternating names and values.
+   */
+  private Object[] toKeyValues(String vertexValue, Map<String, Object> properties) {
+    Object[] keyValues = new Object[2 * (properties.size() + 1)];
+    keyValues[0] = vertexName;
+    keyValues[1] = vertexValue;
+    int i = 2;
+    for (Map.Entry<String, Object> property : properties.entrySet()) {
+      keyValues[i++] = property.getKey();
+      keyValues[i++] = property.getValue();
+    }
+    return keyValues;
+  }
+
+  /**
+   * Sets the given properties of an existing vertex. The vertex is only saved if a value changed, so that vertices
+   * appearing in many records aren't written over and over again.
+   */
+  private void updateVertexProperties(OrientVertex vertex, Map<String, Object> properties) {
+    if (properties.isEmpty()) {
+      return;
+    }
+    Map<String, Object> changed = null;
+    for (Map.Entry<String, Object> property : properties.entrySet()) {
+      if (!Objects.deepEquals(vertex.getProperty(property.getKey()), property.getValue())) {
+        if (changed == null) {
+          changed = new HashMap<>(properties.size());
+        }
+        changed.put(property.getKey(), property.getValue());
+      }
+    }
+    if (changed != null) {
+      // Saves the vertex once for all properties.
+      vertex.setProperties(changed);
+      metrics.incrementPending(WriteMetrics.Counter.VERTICES_UPDATED);
+    }
+  }
+
+  @Nullable
+  private Vertex lookupVertex(String vertexValue) {
+    keyArray[0] = vertexName;
+    valueArray[0] = vertexValue;
+    for (Vertex vertex : graph.getVertices(vertexName, keyArray, valueArray)) {
+      // Return the first one. There should ideally be only one.
+      return vertex;
+    }
+    return null;
+  }
+
+  private void initializeGraph() {
+    switch (writeMode) {
+      case TRANSACTIONAL:
+        graph = OrientDBConnections.getTx(connectionString, username, password, minPoolSize, maxPoolSize);
+        break;
+      case NON_TRANSACTIONAL:
+        graph = OrientDBConnections.getNoTx(connectionString, username, password, minPoolSize, maxPoolSize);
+        break;
+      case MASSIVE_INSERT:
+        graph = OrientDBConnections.getNoTx(connectionString, username, password, minPoolSize, maxPoolSize);
+        graph.declareIntent(new OIntentMassiveInsert());
+        break;
+      default:
+        throw new IllegalStateException(String.format("Unsupported write mode '%s'.", writeMode));
+    }
+    // Only applies to this graph, pooled connections may be used by writers with other settings.
+    graph.setUseLightweightEdges(lightweightEdges);
+    String vertexCluster = selectCluster(graph, vertexName, writerId);
+    // Lightweight edges don't have records of their own.
+    edgeCluster = lightweightEdges ? null : selectCluster(graph, edgeName, writerId);
+    vertexClass = vertexCluster == null ? String.format("class:%s", vertexName)
+      : String.format("class:%s,cluster:%s", vertexName, vertexCluster);
+    edgeClass = edgeCluster == null ? String.format("class:%s", edgeName)
+      : String.format("class:%s,cluster:%s", edgeName, edgeCluster);
+    batchStartTime = System.currentTimeMillis();
+  }
+
+  /**
+   * Returns the number of bytes of direct memory available to the vertex cache of a writer. The writer threads of a
+   * task split the budget of the task, unless they share a cache.
+   */
+  static long getVertexCacheMemory(Configuration hConf) {
+    long memory = hConf.getInt(OrientDBSink.ORIENTDB_OFF_HEAP_VERTEX_CACHE_SIZE, 0) * 1024L * 1024L;
+    if (hConf.getBoolean(OrientDBSink.ORIENTDB_SHARE_VERTEX_CACHE, false)) {
+      return memory;
+    }
+    int writerThreads = hConf.getInt(OrientDBSink.ORIENTDB_WRITER_THREADS, OrientDBConfig.DEFAULT_WRITER_THREADS);
+    return memory / Math.max(1, writerThreads);
+  }
+
+  /**
+   * Returns the name of the cluster of the given class that the writer with the given index creates its records in,
+   * or {@code null} to leave the selection to OrientDB. Writers are spread over the clusters of the class in order.
+   */
+  @Nullable
+  static String selectCluster(OrientBaseGraph graph, String className, int writerId) {
+    if (writerId < 0) {
+      return null;
+    }
+    OClass oClass = graph.getRawGraph().getMetadata().getSchema().getClass(className);
+    if (oClass == null) {
+      return null;
+    }
+    int[] clusterIds = oClass.getClusterIds().clone();
+    Arrays.sort(clusterIds);
+    return graph.getRawGraph().getClusterNameById(clusterIds[writerId % clusterIds.length]);
+  }
+}
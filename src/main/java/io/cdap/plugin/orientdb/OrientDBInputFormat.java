@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link InputFormat} that reads the records of an OrientDB class. The class is split by its physical clusters,
+ * including the clusters of its subclasses, so that the clusters are read in parallel. Clusters holding more records
+ * than the split size are divided further into ranges of cluster positions. Records created after the splits were
+ * computed may not be read.
+ */
+public class OrientDBInputFormat extends InputFormat<NullWritable, StructuredRecord> {
+  private static final Logger LOG = LoggerFactory.getLogger(OrientDBInputFormat.class);
+
+  @Override
+  public List<InputSplit> getSplits(JobContext context) throws IOException {
+    Configuration hConf = context.getConfiguration();
+    String className = hConf.get(OrientDBSource.ORIENTDB_CLASS);
+    long splitSize = hConf.getLong(OrientDBSource.ORIENTDB_SPLIT_SIZE, OrientDBSourceConfig.DEFAULT_SPLIT_SIZE);
+
+    OrientGraphNoTx graph = OrientDBSource.getGraph(hConf);
+    try {
+      ODatabaseDocumentTx database = graph.getRawGraph();
+      OClass oClass = database.getMetadata().getSchema().getClass(className);
+      if (oClass == null) {
+        throw new IOException(String.format("Class '%s' does not exist.", className));
+      }
+
+      List<InputSplit> splits = new ArrayList<>();
+      for (int clusterId : oClass.getPolymorphicClusterIds()) {
+        long records = database.countClusterElements(clusterId);
+        if (records == 0) {
+          continue;
+        }
+        // First and last position of the cluster, deleted records leave gaps in between.
+        long[] range = database.getStorage().getClusterDataRange(clusterId);
+        long positions = range[1] - range[0] + 1;
+        long numSplits = Math.min(positions, (records + splitSize - 1) / splitSize);
+        String clusterName = database.getClusterNameById(clusterId);
+        for (long i = 0; i < numSplits; i++) {
+          long firstPosition = range[0] + positions * i / numSplits;
+          long lastPosition = range[0] + positions * (i + 1) / numSplits - 1;
+          splits.add(new OrientDBInputSplit(clusterId, clusterName, firstPosition, lastPosition,
+                                            records / numSplits));
+        }
+      }
+      LOG.debug("Reading class '{}' with {} splits.", className, splits.size());
+      return splits;
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  @Override
+  public RecordReader<NullWritable, StructuredRecord> createRecordReader(InputSplit split,
+                                                                         TaskAttemptContext context) {
+    return new OrientDBRecordReader();
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputSplit;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * {@link InputSplit} of the {@link OrientDBInputFormat}, a range of record positions within a single cluster.
+ */
+public class OrientDBInputSplit extends InputSplit implements Writable {
+  private int clusterId;
+  private String clusterName;
+  private long firstPosition;
+  private long lastPosition;
+  private long estimatedRecords;
+
+  // Used by Hadoop to deserialize splits.
+  public OrientDBInputSplit() {
+  }
+
+  /**
+   * @param firstPosition the first cluster position of the range, inclusive
+   * @param lastPosition the last cluster position of the range, inclusive
+   * @param estimatedRecords the estimated number of records in the range, which may contain deleted positions
+   */
+  public OrientDBInputSplit(int clusterId, String clusterName, long firstPosition, long lastPosition,
+                            long estimatedRecords) {
+    this.clusterId = clusterId;
+    this.clusterName = clusterName;
+    this.firstPosition = firstPosition;
+    this.lastPosition = lastPosition;
+    this.estimatedRecords = estimatedRecords;
+  }
+
+  public int getClusterId() {
+    return clusterId;
+  }
+
+  public String getClusterName() {
+    return clusterName;
+  }
+
+  public long getFirstPosition() {
+    return firstPosition;
+  }
+
+  public long getLastPosition() {
+    return lastPosition;
+  }
+
+  /**
+   * Returns the estimated number of records, which Hadoop uses to schedule larger splits first.
+   */
+  @Override
+  public long getLength() {
+    return estimatedRecords;
+  }
+
+  @Override
+  public String[] getLocations() {
+    return new String[0];
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(clusterId);
+    out.writeUTF(clusterName);
+    out.writeLong(firstPosition);
+    out.writeLong(lastPosition);
+    out.writeLong(estimatedRecords);
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    clusterId = in.readInt();
+    clusterName = in.readUTF();
+    firstPosition = in.readLong();
+    lastPosition = in.readLong();
+    estimatedRecords = in.readLong();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[#%d:%d..#%d:%d]", clusterName, clusterId, firstPosition, clusterId, lastPosition);
+  }
+}
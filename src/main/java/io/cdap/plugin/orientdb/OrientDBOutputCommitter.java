@@ -16,16 +16,34 @@
 
 package io.cdap.plugin.orientdb;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.JobStatus;
 import org.apache.hadoop.mapreduce.OutputCommitter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
 
 /**
-* {@link OutputCommitter} for OrientDB.
+* {@link OutputCommitter} for OrientDB. With the {@link CommitMode#STAGED} commit mode, task attempts store their
+* operations in the {@link StagingArea}. Only the attempt that is committed writes them to the graph, the staged
+* operations of aborted attempts, and of attempts that were lost without being aborted, are deleted. With the
+* {@link CommitMode#DIRECT} commit mode, tasks write to the graph directly and there is nothing to commit.
 */
 public class OrientDBOutputCommitter extends OutputCommitter {
+  private static final Logger LOG = LoggerFactory.getLogger(OrientDBOutputCommitter.class);
+
+  /**
+   * Returns whether the given configuration stages the writes of task attempts.
+   */
+  static boolean isStaged(Configuration hConf) {
+    return hConf.getEnum(OrientDBSink.ORIENTDB_COMMIT_MODE, CommitMode.DIRECT) == CommitMode.STAGED;
+  }
 
   @Override
   public void setupJob(JobContext jobContext) throws IOException {
@@ -39,16 +57,85 @@ public class OrientDBOutputCommitter extends OutputCommitter {
 
   @Override
   public boolean needsTaskCommit(TaskAttemptContext taskContext) throws IOException {
-    return false;
+    return isStaged(taskContext.getConfiguration());
   }
 
+  /**
+   * Writes the staged operations of the task attempt to the graph, in the order they were staged, and deletes them.
+   * If the commit fails, the task is retried and the operations written already are written again, which doesn't
+   * add vertices or edges twice. Summed edge properties would be added twice, so they are rejected with staged
+   * commits.
+   */
   @Override
   public void commitTask(TaskAttemptContext taskContext) throws IOException {
-
+    Configuration hConf = taskContext.getConfiguration();
+    if (!isStaged(hConf)) {
+      return;
+    }
+    TaskAttemptID attemptId = taskContext.getTaskAttemptID();
+    StagingArea stagingArea = new StagingArea(hConf);
+    OrientDBRecordWriter recordWriter = new OrientDBRecordWriter(
+      OrientDBRecordWriter.forTask(hConf, attemptId.getTaskID().getId()));
+    int chunk = 0;
+    try {
+      try {
+        for (List<GraphOperation> operations = stagingArea.read(attemptId, chunk); operations != null;
+             operations = stagingArea.read(attemptId, ++chunk)) {
+          for (GraphOperation operation : operations) {
+            recordWriter.write(operation);
+          }
+          // Chunks are read through the pooled connection of this thread, which is the one of the writer. Closing it
+          // after the read would commit an open transaction of the writer on embedded databases.
+          recordWriter.flush();
+        }
+        recordWriter.close(taskContext);
+      } catch (IOException | RuntimeException e) {
+        try {
+          recordWriter.abort();
+        } catch (RuntimeException abortException) {
+          e.addSuppressed(abortException);
+        }
+        throw e;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(String.format("Interrupted while committing task attempt '%s'.", attemptId));
+    }
+    stagingArea.discard(attemptId);
+    LOG.debug("Committed {} staged chunks of task attempt '{}'.", chunk, attemptId);
   }
 
   @Override
   public void abortTask(TaskAttemptContext taskContext) throws IOException {
+    Configuration hConf = taskContext.getConfiguration();
+    if (isStaged(hConf)) {
+      int chunks = new StagingArea(hConf).discard(taskContext.getTaskAttemptID());
+      LOG.debug("Discarded {} staged chunks of task attempt '{}'.", chunks, taskContext.getTaskAttemptID());
+    }
+  }
+
+  /**
+   * Deletes the staged operations left behind by task attempts of the job that were neither committed nor aborted,
+   * for example because their executor was lost.
+   */
+  @Override
+  public void commitJob(JobContext jobContext) throws IOException {
+    discardJob(jobContext);
+  }
+
+  @Override
+  public void abortJob(JobContext jobContext, JobStatus.State state) throws IOException {
+    discardJob(jobContext);
+  }
 
+  private void discardJob(JobContext jobContext) {
+    Configuration hConf = jobContext.getConfiguration();
+    if (isStaged(hConf)) {
+      int chunks = new StagingArea(hConf).discard(jobContext.getJobID());
+      if (chunks > 0) {
+        LOG.info("Discarded {} staged chunks of task attempts of job '{}' that were not committed.", chunks,
+                 jobContext.getJobID());
+      }
+    }
   }
 }
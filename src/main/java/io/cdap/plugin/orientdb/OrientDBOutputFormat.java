@@ -17,6 +17,7 @@
 package io.cdap.plugin.orientdb;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.OutputCommitter;
@@ -37,7 +38,12 @@ public class OrientDBOutputFormat extends OutputFormat<NullWritable, StructuredR
   @Override
   public RecordWriter<NullWritable, StructuredRecord> getRecordWriter(TaskAttemptContext context)
     throws IOException, InterruptedException {
-    return new OrientDBRecordWriter(context.getConfiguration());
+    Configuration hConf = OrientDBRecordWriter.forTask(context.getConfiguration(),
+                                                       context.getTaskAttemptID().getTaskID().getId());
+    if (OrientDBOutputCommitter.isStaged(hConf)) {
+      return new OrientDBRecordWriter(hConf, context.getTaskAttemptID());
+    }
+    return new OrientDBRecordWriter(hConf);
   }
 
   @Override
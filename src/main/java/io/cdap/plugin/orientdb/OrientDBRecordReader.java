@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * {@link RecordReader} for {@link OrientDBSource}. Reads the records of an {@link OrientDBInputSplit} in pages of the
+ * fetch size, each of which is fetched with a single query that continues after the last record id read, and converts
+ * them to {@link StructuredRecord}s of the configured schema.
+ */
+public class OrientDBRecordReader extends RecordReader<NullWritable, StructuredRecord> {
+  private Schema schema;
+  @Nullable
+  private String recordIdField;
+  private int fetchSize;
+  private OrientDBInputSplit split;
+  private OrientGraphNoTx graph;
+
+  private Iterator<ODocument> page;
+  // Whether the last page was fetched.
+  private boolean exhausted;
+  private ORID lastRecordId;
+  private StructuredRecord current;
+
+  @Override
+  public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+    Configuration hConf = context.getConfiguration();
+    this.schema = Schema.parseJson(hConf.get(OrientDBSource.ORIENTDB_SCHEMA));
+    this.recordIdField = hConf.get(OrientDBSource.ORIENTDB_RECORD_ID_FIELD);
+    this.fetchSize = hConf.getInt(OrientDBSource.ORIENTDB_FETCH_SIZE, OrientDBSourceConfig.DEFAULT_FETCH_SIZE);
+    this.split = (OrientDBInputSplit) split;
+    this.graph = OrientDBSource.getGraph(hConf);
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    while (page == null || !page.hasNext()) {
+      if (exhausted) {
+        return false;
+      }
+      fetchPage();
+    }
+    ODocument document = page.next();
+    lastRecordId = document.getIdentity();
+    current = toRecord(document);
+    return true;
+  }
+
+  private void fetchPage() {
+    // Record ids are compared by cluster position within the cluster, which OrientDB uses to start the scan.
+    String sql = String.format("SELECT FROM cluster:%s WHERE @rid %s %s AND @rid <= %s LIMIT %d",
+                               split.getClusterName(), lastRecordId == null ? ">=" : ">",
+                               lastRecordId == null ? new ORecordId(split.getClusterId(), split.getFirstPosition())
+                                 : lastRecordId,
+                               new ORecordId(split.getClusterId(), split.getLastPosition()), fetchSize);
+    List<ODocument> documents = graph.getRawGraph().query(new OSQLSynchQuery<ODocument>(sql));
+    exhausted = documents.size() < fetchSize;
+    page = documents.iterator();
+  }
+
+  private StructuredRecord toRecord(ODocument document) throws IOException {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    for (Schema.Field field : schema.getFields()) {
+      String name = field.getName();
+      Object value = name.equals(recordIdField) ? document.getIdentity() : document.rawField(name);
+      try {
+        builder.set(name, PropertyTypes.toRecordValue(field.getSchema(), value));
+      } catch (RuntimeException ex) {
+        throw new IOException(String.format("Cannot read property '%s' of record '%s' into field of type '%s': %s",
+                                            name, document.getIdentity(), field.getSchema().getDisplayName(),
+                                            ex.getMessage()), ex);
+      }
+    }
+    return builder.build();
+  }
+
+  @Override
+  public NullWritable getCurrentKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public StructuredRecord getCurrentValue() {
+    return current;
+  }
+
+  @Override
+  public float getProgress() {
+    if (exhausted && (page == null || !page.hasNext())) {
+      return 1f;
+    }
+    if (lastRecordId == null) {
+      return 0f;
+    }
+    long positions = split.getLastPosition() - split.getFirstPosition() + 1;
+    return (float) (lastRecordId.getClusterPosition() - split.getFirstPosition() + 1) / positions;
+  }
+
+  @Override
+  public void close() {
+    if (graph != null) {
+      graph.shutdown();
+      graph = null;
+    }
+  }
+}
@@ -17,99 +17,120 @@
 package io.cdap.plugin.orientdb;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
-import com.tinkerpop.blueprints.Direction;
-import com.tinkerpop.blueprints.Edge;
-import com.tinkerpop.blueprints.Vertex;
-import com.tinkerpop.blueprints.impls.orient.OrientGraph;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
 
 import java.io.IOException;
-import java.util.List;
+import javax.annotation.Nullable;
 
 /**
-* {@link RecordWriter} for {@link OrientDBSink}.
+* {@link RecordWriter} for {@link OrientDBSink}. Writes to the graph directly, or stores the operations of the task
+* attempt in the {@link StagingArea} if the sink commits staged writes.
 */
 public class OrientDBRecordWriter extends RecordWriter<NullWritable, StructuredRecord> {
-  private static final Logger LOG = LoggerFactory.getLogger(OrientDBRecordWriter.class);
-
-  private final String connectionString;
-  private final String username;
-  private final String password;
+  private final Configuration hConf;
   private final String vertexName;
   private final String edgeName;
-  private final String[] keyArray = new String[1];
-  private final String[] valueArray = new String[1];
-  private final String vertexClass;
-  private final String edgeClass;
+  private final String edgeTargetField;
+  private final VertexPropertyMapping vertexPropertyMapping;
+  private final int writerThreads;
+  private final int writeQueueSize;
+  @Nullable
+  private final TaskAttemptID stagingAttemptId;
 
-  private OrientGraph graph;
-  private boolean initialized;
+  private GraphWriter graphWriter;
+  private AsyncGraphWriter asyncWriter;
 
   public OrientDBRecordWriter(Configuration hConf) {
-    this.connectionString = hConf.get(OrientDBSink.ORIENTDB_CONNECTION_STRING);
-    this.username = hConf.get(OrientDBSink.ORIENTDB_USERNAME);
-    this.password = hConf.get(OrientDBSink.ORIENTDB_PASSWORD);
+    this(hConf, null);
+  }
+
+  /**
+   * @param stagingAttemptId the task attempt to stage the operations for, or {@code null} to write them to the graph
+   */
+  public OrientDBRecordWriter(Configuration hConf, @Nullable TaskAttemptID stagingAttemptId) {
+    this.hConf = hConf;
     this.vertexName = hConf.get(OrientDBSink.ORIENTDB_VERTEX);
     this.edgeName = hConf.get(OrientDBSink.ORIENTDB_EDGE);
-    this.vertexClass = String.format("class:%s", vertexName);
-    this.edgeClass = String.format("class:%s", edgeName);
+    this.edgeTargetField = hConf.get(OrientDBSink.ORIENTDB_EDGE_TARGET_FIELD, OrientDBConfig.DEFAULT_EDGE_TARGET_FIELD);
+    this.vertexPropertyMapping = VertexPropertyMapping.parse(hConf.get(OrientDBSink.ORIENTDB_VERTEX_PROPERTIES));
+    this.writerThreads = hConf.getInt(OrientDBSink.ORIENTDB_WRITER_THREADS, OrientDBConfig.DEFAULT_WRITER_THREADS);
+    this.writeQueueSize = hConf.getInt(OrientDBSink.ORIENTDB_WRITE_QUEUE_SIZE,
+                                       OrientDBConfig.DEFAULT_WRITE_QUEUE_SIZE);
+    this.stagingAttemptId = stagingAttemptId;
   }
 
   @Override
   public void write(NullWritable key, StructuredRecord value) throws IOException, InterruptedException {
-    if (!initialized) {
-      initialized = true;
-      initializeRecordWriter();
+    GraphOperation operation = GraphOperation.fromRecord(value, vertexName, edgeName, edgeTargetField,
+                                                         vertexPropertyMapping);
+    write(operation);
+  }
+
+  /**
+   * Returns the configuration of the writers of the task with the given number. If write clusters are configured,
+   * the writers create their records in the clusters selected by the task number.
+   */
+  static Configuration forTask(Configuration hConf, int taskId) {
+    if (hConf.getInt(OrientDBSink.ORIENTDB_WRITE_CLUSTERS, OrientDBConfig.DEFAULT_WRITE_CLUSTERS) == 0) {
+      return hConf;
     }
+    Configuration taskConf = new Configuration(hConf);
+    taskConf.setInt(OrientDBSink.ORIENTDB_WRITER_ID, taskId);
+    return taskConf;
+  }
 
-    String sourceVertexValue = value.get(vertexName);
-    Vertex sourceVertex = getOrCreateVertex(sourceVertexValue);
-    List<String> connections = value.get(edgeName);
-    for (String connection : connections) {
-      boolean addEdge = true;
-      Vertex destinationVertex = getOrCreateVertex(connection);
-      for (Edge outEdge : sourceVertex.getEdges(Direction.OUT, edgeName)) {
-        if (outEdge.getVertex(Direction.IN).equals(destinationVertex)) {
-          // An edge already exists between the two vertices, hence don't add another one.
-          addEdge = false;
-          break;
-        }
+  void write(GraphOperation operation) throws IOException, InterruptedException {
+    if (stagingAttemptId != null) {
+      if (graphWriter == null) {
+        graphWriter = new StagingGraphWriter(hConf, stagingAttemptId);
       }
-
-      if (addEdge) {
-        graph.addEdge(edgeClass, sourceVertex, destinationVertex, edgeName);
+      graphWriter.write(operation);
+    } else if (writerThreads > 0) {
+      if (asyncWriter == null) {
+        asyncWriter = new AsyncGraphWriter(hConf, writerThreads, writeQueueSize);
+      }
+      asyncWriter.write(operation);
+    } else {
+      if (graphWriter == null) {
+        graphWriter = GraphWriter.create(hConf);
       }
+      graphWriter.write(operation);
     }
   }
 
-  @Override
-  public void close(TaskAttemptContext context) throws IOException, InterruptedException {
-    if (graph != null) {
-      try {
-        graph.commit();
-      } catch (Exception ex) {
-        LOG.warn("Exception while trying to commit the OrientGraph operations. Trying to rollback operations.", ex);
-        graph.rollback();
-      }
+  /**
+   * Commits the operations written so far by the writer of this thread. Operations queued for writer threads are
+   * committed by them as their batches complete.
+   */
+  void flush() throws IOException, InterruptedException {
+    if (graphWriter != null) {
+      graphWriter.flush();
     }
   }
 
-  private Vertex getOrCreateVertex(String vertexValue) {
-    keyArray[0] = vertexName;
-    valueArray[0] = vertexValue;
-    for (Vertex vertex : graph.getVertices(vertexName, keyArray, valueArray)) {
-      // Return the first one. There should ideally be only one.
-      return vertex;
+  @Override
+  public void close(TaskAttemptContext context) throws IOException, InterruptedException {
+    if (asyncWriter != null) {
+      asyncWriter.close();
+    }
+    if (graphWriter != null) {
+      graphWriter.close();
     }
-    return graph.addVertex(vertexClass, vertexName, vertexValue);
   }
 
-  private void initializeRecordWriter() {
-    graph = new OrientGraph(connectionString, username, password);
+  /**
+   * Discards the operations that were not written yet, as far as possible, and returns the connections to the pool.
+   */
+  void abort() throws InterruptedException {
+    if (asyncWriter != null) {
+      asyncWriter.abort();
+    }
+    if (graphWriter != null) {
+      graphWriter.abort();
+    }
   }
 }
@@ -16,7 +16,16 @@
 
 package io.cdap.plugin.orientdb;
 
-import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientEdgeType;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+import com.tinkerpop.blueprints.impls.orient.OrientVertexType;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
@@ -28,6 +37,7 @@ import io.cdap.cdap.api.dataset.lib.KeyValue;
 import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
 import io.cdap.cdap.etl.api.batch.BatchSink;
 import io.cdap.cdap.etl.api.batch.BatchSinkContext;
 import io.cdap.plugin.common.batch.ConfigurationUtils;
@@ -36,7 +46,12 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.Job;
 
+import java.io.IOException;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import javax.annotation.Nullable;
 
 /**
  * {@link BatchSink} plugin to write to OrientDB.
@@ -51,8 +66,39 @@ public class OrientDBSink extends BatchSink<StructuredRecord, NullWritable, Stru
   public static final String ORIENTDB_PASSWORD = "orientdb.password";
   public static final String ORIENTDB_VERTEX = "orientdb.vertex";
   public static final String ORIENTDB_EDGE = "orientdb.edge";
+  public static final String ORIENTDB_EDGE_TARGET_FIELD = "orientdb.edge.target.field";
+  public static final String ORIENTDB_EDGE_PROPERTY_MERGE = "orientdb.edge.property.merge";
+  public static final String ORIENTDB_VERTEX_PROPERTIES = "orientdb.vertex.properties";
+  public static final String ORIENTDB_LIGHTWEIGHT_EDGES = "orientdb.lightweight.edges";
+  public static final String ORIENTDB_SYNC_MODE = "orientdb.sync.mode";
+  public static final String ORIENTDB_SYNC_RUN = "orientdb.sync.run";
+  public static final String ORIENTDB_VERTEX_CACHE_SIZE = "orientdb.vertex.cache.size";
+  public static final String ORIENTDB_OFF_HEAP_VERTEX_CACHE_SIZE = "orientdb.off.heap.vertex.cache.size";
+  public static final String ORIENTDB_BATCH_SIZE = "orientdb.batch.size";
+  public static final String ORIENTDB_COMMIT_INTERVAL = "orientdb.commit.interval";
+  public static final String ORIENTDB_WRITE_MODE = "orientdb.write.mode";
+  public static final String ORIENTDB_WRITE_METHOD = "orientdb.write.method";
+  public static final String ORIENTDB_COMMIT_MODE = "orientdb.commit.mode";
+  public static final String ORIENTDB_MAX_RETRIES = "orientdb.max.retries";
+  public static final String ORIENTDB_RETRY_BACKOFF = "orientdb.retry.backoff";
+  public static final String ORIENTDB_MIN_POOL_SIZE = "orientdb.min.pool.size";
+  public static final String ORIENTDB_MAX_POOL_SIZE = "orientdb.max.pool.size";
+  public static final String ORIENTDB_WRITER_THREADS = "orientdb.writer.threads";
+  public static final String ORIENTDB_WRITE_QUEUE_SIZE = "orientdb.write.queue.size";
+  public static final String ORIENTDB_STAGE_NAME = "orientdb.stage.name";
+  public static final String ORIENTDB_METRICS_KEY = "orientdb.metrics.key";
+  public static final String ORIENTDB_SHARE_VERTEX_CACHE = "orientdb.share.vertex.cache";
+  public static final String ORIENTDB_WRITE_CLUSTERS = "orientdb.write.clusters";
+  public static final String ORIENTDB_WRITER_ID = "orientdb.writer.id";
+  public static final String ORIENTDB_LOOKUP_BATCH_SIZE = "orientdb.lookup.batch.size";
+  public static final String ORIENTDB_KEY_FILTER = "orientdb.key.filter";
+
+  private static final Set<OClass.INDEX_TYPE> UNIQUE_INDEX_TYPES = EnumSet.of(
+    OClass.INDEX_TYPE.UNIQUE, OClass.INDEX_TYPE.UNIQUE_HASH_INDEX,
+    OClass.INDEX_TYPE.DICTIONARY, OClass.INDEX_TYPE.DICTIONARY_HASH_INDEX);
 
   private final OrientDBConfig conf;
+  private String metricsKey;
 
   public OrientDBSink(OrientDBConfig conf) {
     this.conf = conf;
@@ -67,18 +113,13 @@ public class OrientDBSink extends BatchSink<StructuredRecord, NullWritable, Stru
     conf.validate(failureCollector, inputSchema);
     conf.validateDBConnection(failureCollector);
     failureCollector.getOrThrowException();
+    validateGraph(conf, failureCollector);
+    failureCollector.getOrThrowException();
   }
 
   @Override
   public void prepareRun(BatchSinkContext context) throws Exception {
-    Job job = JobUtils.createInstance();
-    final Configuration hConf = job.getConfiguration();
-    hConf.set(ORIENTDB_CONNECTION_STRING, conf.getConnectionString());
-    hConf.set(ORIENTDB_VERTEX, conf.getVertexType());
-    hConf.set(ORIENTDB_EDGE, conf.getEdgeType());
-    hConf.set(ORIENTDB_USERNAME, conf.getUsername());
-    hConf.set(ORIENTDB_PASSWORD, conf.getPassword());
-
+    Configuration hConf = createConfiguration(conf, context.getStageName(), WriteMetrics.getKey(context));
     context.addOutput(Output.of(conf.getReferenceName(), new OutputFormatProvider() {
       @Override
       public String getOutputFormatClassName() {
@@ -91,15 +132,301 @@ public class OrientDBSink extends BatchSink<StructuredRecord, NullWritable, Stru
       }
     }));
 
-    OrientGraph graph = new OrientGraph(conf.getConnectionString(), conf.getUsername(), conf.getPassword());
+    FailureCollector failureCollector = context.getFailureCollector();
+    prepareGraph(conf, context.getInputSchema(), failureCollector);
+    failureCollector.getOrThrowException();
+  }
+
+  /**
+   * Returns the configuration of the record writers for the given config.
+   *
+   * @param metricsKey key of the stage metrics the record writers report to
+   */
+  static Configuration createConfiguration(OrientDBConfig conf, String stageName, String metricsKey)
+    throws IOException {
+    Job job = JobUtils.createInstance();
+    Configuration hConf = job.getConfiguration();
+    hConf.set(ORIENTDB_CONNECTION_STRING, conf.getConnectionString());
+    hConf.set(ORIENTDB_VERTEX, conf.getVertexType());
+    hConf.set(ORIENTDB_EDGE, conf.getEdgeType());
+    hConf.set(ORIENTDB_EDGE_TARGET_FIELD, conf.getEdgeTargetField());
+    if (conf.getEdgePropertyMerge() != null) {
+      hConf.set(ORIENTDB_EDGE_PROPERTY_MERGE, conf.getEdgePropertyMerge());
+    }
+    if (conf.getVertexProperties() != null) {
+      hConf.set(ORIENTDB_VERTEX_PROPERTIES, conf.getVertexProperties());
+    }
+    hConf.setBoolean(ORIENTDB_LIGHTWEIGHT_EDGES, conf.isLightweightEdges());
+    hConf.setEnum(ORIENTDB_SYNC_MODE, conf.getSyncMode());
+    if (conf.getSyncMode() == SyncMode.REPLACE_OUT_EDGES) {
+      // Identifies the run, or micro-batch, all tasks synchronize the out edges of their source vertices for.
+      hConf.set(ORIENTDB_SYNC_RUN, UUID.randomUUID().toString());
+    }
+    hConf.set(ORIENTDB_USERNAME, conf.getUsername());
+    hConf.set(ORIENTDB_PASSWORD, conf.getPassword());
+    hConf.setInt(ORIENTDB_VERTEX_CACHE_SIZE, conf.getVertexCacheSize());
+    hConf.setInt(ORIENTDB_OFF_HEAP_VERTEX_CACHE_SIZE, conf.getOffHeapVertexCacheSize());
+    hConf.setInt(ORIENTDB_BATCH_SIZE, conf.getBatchSize());
+    hConf.setLong(ORIENTDB_COMMIT_INTERVAL, conf.getCommitInterval());
+    hConf.setEnum(ORIENTDB_WRITE_MODE, conf.getWriteMode());
+    hConf.setEnum(ORIENTDB_WRITE_METHOD, conf.getWriteMethod());
+    hConf.setEnum(ORIENTDB_COMMIT_MODE, conf.getCommitMode());
+    hConf.setInt(ORIENTDB_MAX_RETRIES, conf.getMaxRetries());
+    hConf.setLong(ORIENTDB_RETRY_BACKOFF, conf.getRetryBackoff());
+    hConf.setInt(ORIENTDB_MIN_POOL_SIZE, conf.getMinPoolSize());
+    hConf.setInt(ORIENTDB_MAX_POOL_SIZE, conf.getMaxPoolSize());
+    hConf.setInt(ORIENTDB_WRITER_THREADS, conf.getWriterThreads());
+    hConf.setInt(ORIENTDB_WRITE_QUEUE_SIZE, conf.getWriteQueueSize());
+    hConf.setInt(ORIENTDB_WRITE_CLUSTERS, conf.getWriteClusters());
+    hConf.setInt(ORIENTDB_LOOKUP_BATCH_SIZE, conf.getLookupBatchSize());
+    if (conf.getKeyFilterFalsePositiveRate() > 0d && conf.getWriteMethod() == WriteMethod.BLUEPRINTS) {
+      OrientGraphNoTx graph = conf.getNoTxGraph();
+      try {
+        hConf.set(ORIENTDB_KEY_FILTER, VertexKeyFilter.build(graph, conf.getVertexType(),
+                                                             conf.getKeyFilterFalsePositiveRate()).serialize());
+      } finally {
+        graph.shutdown();
+      }
+    }
+    hConf.set(ORIENTDB_STAGE_NAME, stageName);
+    hConf.set(ORIENTDB_METRICS_KEY, metricsKey);
+    return hConf;
+  }
+
+  /**
+   * Creates the vertex and edge classes of the given config if they don't exist yet, and declares the properties and
+   * the index written by the record writers.
+   */
+  static void prepareGraph(OrientDBConfig conf, @Nullable Schema inputSchema, FailureCollector failureCollector) {
+    OrientGraphNoTx graph = conf.getNoTxGraph();
+    try {
+      // Create Vertex Type and Edge Type if they don't exist already.
+      OrientVertexType vertexType = graph.getVertexType(conf.getVertexType());
+      if (vertexType == null) {
+        vertexType = graph.createVertexType(conf.getVertexType());
+      }
+
+      OrientEdgeType edgeType = graph.getEdgeType(conf.getEdgeType());
+      if (edgeType == null) {
+        edgeType = graph.createEdgeType(conf.getEdgeType());
+      }
+
+      if (conf.isLightweightEdges()) {
+        createLinkProperties(vertexType, conf.getEdgeType(), failureCollector);
+      }
+      if (conf.getWriteClusters() > 0) {
+        addClusters(graph, vertexType, conf.getWriteClusters());
+        if (!conf.isLightweightEdges()) {
+          addClusters(graph, edgeType, conf.getWriteClusters());
+        }
+      }
+
+      Schema edgeRecordSchema = inputSchema == null ? null : conf.getEdgeRecordSchema(inputSchema);
+      if (edgeRecordSchema != null) {
+        createEdgeProperties(conf, edgeType, edgeRecordSchema, failureCollector);
+      }
+      if (inputSchema != null) {
+        createVertexProperties(conf, vertexType, inputSchema, failureCollector);
+      }
+
+      OClass.INDEX_TYPE indexType = conf.getVertexIndexType();
+      if (indexType != null) {
+        createVertexIndex(conf, vertexType, indexType, failureCollector);
+      }
+      if (conf.getCommitMode() == CommitMode.STAGED) {
+        StagingArea.createClass(graph);
+      }
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  /**
+   * Validates the vertex class against the config if it exists already, without changing the graph, so that an
+   * incompatible vertex key property or index fails the deployment rather than {@link #prepareGraph}.
+   */
+  static void validateGraph(OrientDBConfig conf, FailureCollector failureCollector) {
+    OClass.INDEX_TYPE indexType = conf.getVertexIndexType();
+    if (indexType == null) {
+      return;
+    }
+    OrientGraphNoTx graph = conf.getNoTxGraph();
+    try {
+      OrientVertexType vertexType = graph.getVertexType(conf.getVertexType());
+      if (vertexType != null) {
+        needsVertexIndex(conf, vertexType, indexType, failureCollector);
+      }
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  /**
+   * Adds clusters to the given class until it has at least the given number of clusters, so that parallel writers
+   * create their records in clusters of their own. Clusters are named like the ones OrientDB creates for a class.
+   */
+  static void addClusters(OrientBaseGraph graph, OClass oClass, int clusters) {
+    int suffix = oClass.getClusterIds().length;
+    while (oClass.getClusterIds().length < clusters) {
+      String clusterName = String.format("%s_%d", oClass.getName(), suffix++);
+      // Names of clusters that exist already belong to the class itself or to another class.
+      if (graph.getRawGraph().getClusterIdByName(clusterName) == -1) {
+        oClass.addCluster(clusterName);
+      }
+    }
+  }
+
+  /**
+   * Declares the fields linking vertices through lightweight edges of the configured edge type as link bags, so
+   * that links added by SQL, such as the scripts of {@link ScriptGraphWriter}, are stored like the ones added by
+   * Blueprints. Lightweight edges are turned on for the edge type only, not for the whole database.
+   */
+  static void createLinkProperties(OClass vertexClass, String edgeType, FailureCollector failureCollector) {
+    for (Direction direction : new Direction[] {Direction.OUT, Direction.IN}) {
+      String name = OrientVertex.getConnectionFieldName(direction, edgeType, true);
+      OProperty property = vertexClass.getProperty(name);
+      if (property == null) {
+        vertexClass.createProperty(name, OType.LINKBAG);
+      } else if (property.getType() != OType.LINKBAG) {
+        failureCollector.addFailure(String.format("Property '%s' of vertex class '%s' is of type '%s' instead of " +
+                                                    "'%s'.", name, vertexClass.getName(), property.getType(),
+                                                  OType.LINKBAG),
+                                    "Turn off lightweight edges.")
+          .withConfigProperty(OrientDBConfig.LIGHTWEIGHT_EDGES);
+      }
+    }
+  }
+
+  /**
+   * Declares the edge properties in the schema of the edge class, unless they are declared already. Values are then
+   * stored with the type of their input field, no matter whether they are written through Blueprints or SQL.
+   */
+  private static void createEdgeProperties(OrientDBConfig conf, OClass edgeClass, Schema edgeRecordSchema,
+                                           FailureCollector failureCollector) {
+    for (Schema.Field field : edgeRecordSchema.getFields()) {
+      if (!field.getName().equals(conf.getEdgeTargetField())) {
+        createProperty(edgeClass, field.getName(), field.getSchema(), OrientDBConfig.EDGE, failureCollector);
+      }
+    }
+  }
+
+  /**
+   * Declares the vertex properties in the schema of the vertex class, unless they are declared already, so that
+   * values are stored with the type of their input field.
+   */
+  private static void createVertexProperties(OrientDBConfig conf, OClass vertexClass, Schema inputSchema,
+                                             FailureCollector failureCollector) {
+    for (Map.Entry<String, String> entry : conf.getVertexPropertyMapping().getProperties().entrySet()) {
+      Schema.Field field = inputSchema.getField(entry.getKey());
+      if (field != null) {
+        createProperty(vertexClass, entry.getValue(), field.getSchema(), OrientDBConfig.VERTEX_PROPERTIES,
+                       failureCollector);
+      }
+    }
+  }
 
-    // Create Vertex Type and Edge Type if they don't exist already.
-    if (graph.getVertexType(conf.getVertexType()) == null) {
-      graph.createVertexType(conf.getVertexType());
+  /**
+   * Declares a property of the given class holding values of the given schema. Fails the given config property if
+   * the class declares the property with another type already.
+   */
+  private static void createProperty(OClass oClass, String name, Schema schema, String configProperty,
+                                     FailureCollector failureCollector) {
+    OType type = PropertyTypes.getType(schema);
+    if (type == null) {
+      return;
     }
+    OProperty property = oClass.getProperty(name);
+    if (property == null) {
+      OType linkedType = PropertyTypes.getLinkedType(schema);
+      if (linkedType == null) {
+        oClass.createProperty(name, type);
+      } else {
+        oClass.createProperty(name, type, linkedType);
+      }
+    } else if (property.getType() != type) {
+      failureCollector.addFailure(String.format("Property '%s' of class '%s' is of type '%s' instead of '%s'.",
+                                                name, oClass.getName(), property.getType(), type),
+                                  "Change the type of the input field.")
+        .withConfigProperty(configProperty);
+    }
+  }
+
+  /**
+   * Creates an index of the given type on the vertex key property, unless a compatible one exists already.
+   * Without an index every vertex lookup of {@link OrientDBRecordWriter} has to scan the whole vertex class.
+   */
+  private static void createVertexIndex(OrientDBConfig conf, OClass vertexClass, OClass.INDEX_TYPE indexType,
+                                        FailureCollector failureCollector) {
+    if (!needsVertexIndex(conf, vertexClass, indexType, failureCollector)) {
+      return;
+    }
+    String key = conf.getVertexType();
+    if (vertexClass.getProperty(key) == null) {
+      vertexClass.createProperty(key, OType.STRING);
+    }
+
+    String indexName = String.format("%s.%s", vertexClass.getName(), key);
+    try {
+      vertexClass.createIndex(indexName, indexType, key);
+    } catch (Exception ex) {
+      failureCollector.addFailure(String.format("Cannot create index '%s' of type '%s': %s",
+                                                indexName, indexType, ex.getMessage()),
+                                  "Make sure that existing vertices don't have duplicate keys.")
+        .withStacktrace(ex.getStackTrace())
+        .withConfigProperty(OrientDBConfig.VERTEX_INDEX_TYPE);
+    }
+  }
+
+  /**
+   * Checks the vertex key property and its single-field indexes against the given index type. Returns whether an
+   * index has to be created, that is if the key property is compatible and not indexed yet.
+   */
+  private static boolean needsVertexIndex(OrientDBConfig conf, OClass vertexClass, OClass.INDEX_TYPE indexType,
+                                          FailureCollector failureCollector) {
+    String key = conf.getVertexType();
+    OProperty property = vertexClass.getProperty(key);
+    if (property != null && property.getType() != OType.STRING) {
+      failureCollector.addFailure(String.format("Property '%s' of vertex class '%s' is of type '%s' instead of '%s'.",
+                                                key, vertexClass.getName(), property.getType(), OType.STRING),
+                                  "Use a vertex class whose key property is a string.")
+        .withConfigProperty(OrientDBConfig.VERTEX);
+      return false;
+    }
+
+    boolean unique = UNIQUE_INDEX_TYPES.contains(indexType);
+    boolean indexed = false;
+    for (OIndex<?> index : vertexClass.getInvolvedIndexes(key)) {
+      if (index.getDefinition().getFields().size() != 1) {
+        // Composite indexes are not used to look up vertices by key.
+        continue;
+      }
+      indexed = true;
+      // Index types of plugins such as Lucene are not declared by INDEX_TYPE.
+      boolean uniqueIndex = UNIQUE_INDEX_TYPES.stream().anyMatch(type -> type.name().equalsIgnoreCase(index.getType()));
+      if (uniqueIndex != unique) {
+        failureCollector.addFailure(String.format("Index '%s' of type '%s' on '%s.%s' is incompatible with index " +
+                                                    "type '%s'.", index.getName(), index.getType(),
+                                                  vertexClass.getName(), key, indexType),
+                                    String.format("Drop index '%s' or change the vertex index type.", index.getName()))
+          .withConfigProperty(OrientDBConfig.VERTEX_INDEX_TYPE);
+      }
+    }
+    return !indexed;
+  }
 
-    if (graph.getEdgeType(conf.getEdgeType()) == null) {
-      graph.createEdgeType(conf.getEdgeType());
+  @Override
+  public void initialize(BatchRuntimeContext context) throws Exception {
+    super.initialize(context);
+    // Lets the record writers of this stage report their metrics.
+    metricsKey = WriteMetrics.getKey(context);
+    WriteMetrics.register(metricsKey, context.getMetrics());
+  }
+
+  @Override
+  public void destroy() {
+    super.destroy();
+    if (metricsKey != null) {
+      WriteMetrics.unregister(metricsKey);
     }
   }
 
@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.batch.Input;
+import io.cdap.cdap.api.data.batch.InputFormatProvider;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.dataset.lib.KeyValue;
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.FailureCollector;
+import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.batch.BatchSource;
+import io.cdap.cdap.etl.api.batch.BatchSourceContext;
+import io.cdap.plugin.common.batch.ConfigurationUtils;
+import io.cdap.plugin.common.batch.JobUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.Job;
+
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * {@link BatchSource} plugin to read the vertices or edges of a class from OrientDB.
+ */
+@Plugin(type = BatchSource.PLUGIN_TYPE)
+@Name(OrientDBSource.NAME)
+@Description("Batch Source that reads the vertices or edges of a class from OrientDB.")
+public class OrientDBSource extends BatchSource<NullWritable, StructuredRecord, StructuredRecord> {
+  public static final String NAME = "OrientDB";
+  public static final String ORIENTDB_CLASS = "orientdb.source.class";
+  public static final String ORIENTDB_SCHEMA = "orientdb.source.schema";
+  public static final String ORIENTDB_RECORD_ID_FIELD = "orientdb.source.record.id.field";
+  public static final String ORIENTDB_SPLIT_SIZE = "orientdb.source.split.size";
+  public static final String ORIENTDB_FETCH_SIZE = "orientdb.source.fetch.size";
+
+  private final OrientDBSourceConfig conf;
+
+  public OrientDBSource(OrientDBSourceConfig conf) {
+    this.conf = conf;
+  }
+
+  @Override
+  public void configurePipeline(PipelineConfigurer pipelineConfigurer) {
+    super.configurePipeline(pipelineConfigurer);
+
+    FailureCollector failureCollector = pipelineConfigurer.getStageConfigurer().getFailureCollector();
+    conf.validate(failureCollector);
+    failureCollector.getOrThrowException();
+
+    Schema schema = conf.getSchema();
+    if (schema == null) {
+      conf.validateDBConnection(failureCollector);
+      failureCollector.getOrThrowException();
+      schema = inferSchema(failureCollector);
+      failureCollector.getOrThrowException();
+    }
+    pipelineConfigurer.getStageConfigurer().setOutputSchema(schema);
+  }
+
+  @Override
+  public void prepareRun(BatchSourceContext context) throws Exception {
+    FailureCollector failureCollector = context.getFailureCollector();
+    conf.validate(failureCollector);
+    failureCollector.getOrThrowException();
+    Schema schema = conf.getSchema();
+    if (schema == null) {
+      schema = inferSchema(failureCollector);
+      failureCollector.getOrThrowException();
+    }
+
+    Job job = JobUtils.createInstance();
+    Configuration hConf = job.getConfiguration();
+    hConf.set(OrientDBSink.ORIENTDB_CONNECTION_STRING, conf.getConnectionString());
+    hConf.set(OrientDBSink.ORIENTDB_USERNAME, conf.getUsername());
+    hConf.set(OrientDBSink.ORIENTDB_PASSWORD, conf.getPassword());
+    hConf.set(ORIENTDB_CLASS, conf.getClassName());
+    hConf.set(ORIENTDB_SCHEMA, schema.toString());
+    if (conf.getRecordIdField() != null) {
+      hConf.set(ORIENTDB_RECORD_ID_FIELD, conf.getRecordIdField());
+    }
+    hConf.setLong(ORIENTDB_SPLIT_SIZE, conf.getSplitSize());
+    hConf.setInt(ORIENTDB_FETCH_SIZE, conf.getFetchSize());
+
+    context.setInput(Input.of(conf.getReferenceName(), new InputFormatProvider() {
+      @Override
+      public String getInputFormatClassName() {
+        return OrientDBInputFormat.class.getName();
+      }
+
+      @Override
+      public Map<String, String> getInputFormatConfiguration() {
+        return ConfigurationUtils.getNonDefaultConfigurations(hConf);
+      }
+    }));
+  }
+
+  @Override
+  public void transform(KeyValue<NullWritable, StructuredRecord> input, Emitter<StructuredRecord> emitter) {
+    emitter.emit(input.getValue());
+  }
+
+  @Nullable
+  private Schema inferSchema(FailureCollector failureCollector) {
+    OrientGraphNoTx graph = conf.getNoTxGraph();
+    try {
+      return conf.inferSchema(graph, failureCollector);
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  /**
+   * Returns a non-transactional graph of the database configured in the given configuration from the connection pool.
+   */
+  static OrientGraphNoTx getGraph(Configuration hConf) {
+    return OrientDBConnections.getNoTx(hConf.get(OrientDBSink.ORIENTDB_CONNECTION_STRING),
+                                       hConf.get(OrientDBSink.ORIENTDB_USERNAME),
+                                       hConf.get(OrientDBSink.ORIENTDB_PASSWORD),
+                                       OrientDBConfig.DEFAULT_MIN_POOL_SIZE, OrientDBConfig.DEFAULT_MAX_POOL_SIZE);
+  }
+}
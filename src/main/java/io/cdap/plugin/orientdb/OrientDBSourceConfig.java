@@ -0,0 +1,347 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.plugin.PluginConfig;
+import io.cdap.cdap.etl.api.FailureCollector;
+import io.cdap.plugin.common.IdUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * {@link PluginConfig} for {@link OrientDBSource}.
+ */
+public class OrientDBSourceConfig extends PluginConfig {
+  private static final Logger LOG = LoggerFactory.getLogger(OrientDBSourceConfig.class);
+  public static final String REFERENCE_NAME = OrientDBConfig.REFERENCE_NAME;
+  public static final String CONNECTION_STRING = OrientDBConfig.CONNECTION_STRING;
+  public static final String USERNAME = OrientDBConfig.USERNAME;
+  public static final String PASSWORD = OrientDBConfig.PASSWORD;
+  public static final String CLASS_NAME = "className";
+  public static final String SCHEMA = "schema";
+  public static final String RECORD_ID_FIELD = "recordIdField";
+  public static final String SPLIT_SIZE = "splitSize";
+  public static final String FETCH_SIZE = "fetchSize";
+
+  // Fields holding the vertices an edge connects, which edge classes usually don't declare.
+  public static final String EDGE_OUT = "out";
+  public static final String EDGE_IN = "in";
+
+  public static final long DEFAULT_SPLIT_SIZE = 100000L;
+  public static final int DEFAULT_FETCH_SIZE = 1000;
+
+  @Name(REFERENCE_NAME)
+  @Description("Reference Name for the OrientDB Source")
+  private String referenceName;
+
+  @Name(CONNECTION_STRING)
+  @Description("Specifies the OrientDB connection string. Example: 'remote:localhost:2424/DBName'")
+  private String connectionString;
+
+  @Name(USERNAME)
+  @Description("OrientDB Username")
+  private String username;
+
+  @Name(PASSWORD)
+  @Description("OrientDB Password")
+  private String password;
+
+  @Name(CLASS_NAME)
+  @Description("Vertex or edge class to read. Records of its subclasses are read as well.")
+  private String className;
+
+  @Name(SCHEMA)
+  @Description("Schema of the records read. Fields are read from the properties of the same name. If not set, the " +
+    "schema is inferred from the properties declared on the class, which includes 'out' and 'in' for edge classes.")
+  @Nullable
+  private String schema;
+
+  @Name(RECORD_ID_FIELD)
+  @Description("String field that holds the record id of every record read, such as '#12:0'. Links to other " +
+    "records, like the 'out' and 'in' vertices of edges, are read as record ids as well.")
+  @Nullable
+  private String recordIdField;
+
+  @Name(SPLIT_SIZE)
+  @Description("Maximum number of records read by a single task. Every cluster of the class is read by at least one " +
+    "task, larger clusters are divided into ranges of record ids. Defaults to 100000.")
+  @Nullable
+  private Long splitSize;
+
+  @Name(FETCH_SIZE)
+  @Description("Number of records fetched from OrientDB in a single query. Defaults to 1000.")
+  @Nullable
+  private Integer fetchSize;
+
+  private OrientDBSourceConfig(Builder builder) {
+    this.referenceName = builder.referenceName;
+    this.connectionString = builder.connectionString;
+    this.username = builder.username;
+    this.password = builder.password;
+    this.className = builder.className;
+    this.schema = builder.schema;
+    this.recordIdField = builder.recordIdField;
+    this.splitSize = builder.splitSize;
+    this.fetchSize = builder.fetchSize;
+  }
+
+  public String getReferenceName() {
+    return referenceName;
+  }
+
+  public String getConnectionString() {
+    return connectionString;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public String getPassword() {
+    return password;
+  }
+
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * Returns the configured schema, {@code null} if it is inferred from the class.
+   *
+   * @throws IllegalArgumentException if the schema can't be parsed
+   */
+  @Nullable
+  public Schema getSchema() {
+    if (schema == null || schema.isEmpty()) {
+      return null;
+    }
+    try {
+      return Schema.parseJson(schema);
+    } catch (IOException ex) {
+      throw new IllegalArgumentException(String.format("Invalid schema: %s", ex.getMessage()), ex);
+    }
+  }
+
+  @Nullable
+  public String getRecordIdField() {
+    return recordIdField == null || recordIdField.isEmpty() ? null : recordIdField;
+  }
+
+  public long getSplitSize() {
+    return splitSize == null ? DEFAULT_SPLIT_SIZE : splitSize;
+  }
+
+  public int getFetchSize() {
+    return fetchSize == null ? DEFAULT_FETCH_SIZE : fetchSize;
+  }
+
+  public void validate(FailureCollector failureCollector) {
+    try {
+      IdUtils.validateId(referenceName);
+    } catch (IllegalArgumentException ex) {
+      failureCollector.addFailure(ex.getMessage(), null).withConfigProperty(REFERENCE_NAME);
+    }
+
+    if (className == null || className.isEmpty()) {
+      failureCollector.addFailure("Class name must be specified.", null).withConfigProperty(CLASS_NAME);
+    }
+
+    Schema outputSchema = null;
+    try {
+      outputSchema = getSchema();
+    } catch (IllegalArgumentException ex) {
+      failureCollector.addFailure(ex.getMessage(), null).withConfigProperty(SCHEMA);
+    }
+
+    String recordIdField = getRecordIdField();
+    if (outputSchema != null && recordIdField != null) {
+      Schema.Field field = outputSchema.getField(recordIdField);
+      if (field == null) {
+        failureCollector.addFailure(String.format("Record id field '%s' is not present in the schema.",
+                                                  recordIdField), "Add the field to the schema.")
+          .withConfigProperty(RECORD_ID_FIELD)
+          .withConfigProperty(SCHEMA);
+      } else {
+        Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+        if (fieldSchema.getType() != Schema.Type.STRING) {
+          failureCollector.addFailure(String.format("Record id field '%s' is of type '%s' instead of 'string'.",
+                                                    recordIdField, fieldSchema.getDisplayName()), null)
+            .withConfigProperty(RECORD_ID_FIELD)
+            .withOutputSchemaField(recordIdField);
+        }
+      }
+    }
+
+    if (getSplitSize() < 1) {
+      failureCollector.addFailure(String.format("Split size '%d' must be at least 1.", getSplitSize()), null)
+        .withConfigProperty(SPLIT_SIZE);
+    }
+
+    if (getFetchSize() < 1) {
+      failureCollector.addFailure(String.format("Fetch size '%d' must be at least 1.", getFetchSize()), null)
+        .withConfigProperty(FETCH_SIZE);
+    }
+  }
+
+  public void validateDBConnection(FailureCollector failureCollector) {
+    OrientDBConfig.validateDBConnection(failureCollector, connectionString, username, password);
+  }
+
+  /**
+   * Opens a non-transactional graph outside of the connection pools, which are only kept by the JVMs running tasks.
+   * Call {@link com.tinkerpop.blueprints.impls.orient.OrientBaseGraph#shutdown()} to close it.
+   */
+  public OrientGraphNoTx getNoTxGraph() {
+    return OrientDBConfig.openNoTxGraph(connectionString, username, password);
+  }
+
+  /**
+   * Infers the schema of the records of the class from its declared properties, sorted by name and preceded by the
+   * record id field. Properties of types that can't be read are skipped. Edge classes additionally get the 'out' and
+   * 'in' fields if they don't declare them.
+   *
+   * @return the inferred schema, {@code null} if the class doesn't exist, which is reported to the failure collector
+   */
+  @Nullable
+  public Schema inferSchema(OrientBaseGraph graph, FailureCollector failureCollector) {
+    OClass oClass = graph.getRawGraph().getMetadata().getSchema().getClass(className);
+    if (oClass == null) {
+      failureCollector.addFailure(String.format("Class '%s' does not exist.", className),
+                                  "Specify an existing vertex or edge class.")
+        .withConfigProperty(CLASS_NAME);
+      return null;
+    }
+
+    List<Schema.Field> fields = new ArrayList<>();
+    String recordIdField = getRecordIdField();
+    if (recordIdField != null) {
+      fields.add(Schema.Field.of(recordIdField, Schema.of(Schema.Type.STRING)));
+    }
+    List<OProperty> properties = oClass.properties().stream()
+      .sorted(Comparator.comparing(OProperty::getName))
+      .collect(Collectors.toList());
+    for (OProperty property : properties) {
+      Schema propertySchema = PropertyTypes.getSchema(property.getType(), property.getLinkedType());
+      if (propertySchema == null || property.getName().equals(recordIdField)) {
+        LOG.debug("Skipping property '{}' of type '{}' of class '{}'.", property.getName(), property.getType(),
+                  className);
+        continue;
+      }
+      fields.add(Schema.Field.of(property.getName(), propertySchema));
+    }
+    if (oClass.isEdgeType()) {
+      for (String name : new String[] {EDGE_OUT, EDGE_IN}) {
+        if (oClass.getProperty(name) == null && !name.equals(recordIdField)) {
+          fields.add(Schema.Field.of(name, Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+        }
+      }
+    }
+    return Schema.recordOf(className, fields);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static Builder builder(OrientDBSourceConfig copy) {
+    return new Builder()
+      .setReferenceName(copy.referenceName)
+      .setConnectionString(copy.connectionString)
+      .setUsername(copy.username)
+      .setPassword(copy.password)
+      .setClassName(copy.className)
+      .setSchema(copy.schema)
+      .setRecordIdField(copy.recordIdField)
+      .setSplitSize(copy.splitSize)
+      .setFetchSize(copy.fetchSize);
+  }
+
+  public static final class Builder {
+    private String referenceName;
+    private String connectionString;
+    private String username;
+    private String password;
+    private String className;
+    private String schema;
+    private String recordIdField;
+    private Long splitSize;
+    private Integer fetchSize;
+
+    public Builder setReferenceName(String referenceName) {
+      this.referenceName = referenceName;
+      return this;
+    }
+
+    public Builder setConnectionString(String connectionString) {
+      this.connectionString = connectionString;
+      return this;
+    }
+
+    public Builder setUsername(String username) {
+      this.username = username;
+      return this;
+    }
+
+    public Builder setPassword(String password) {
+      this.password = password;
+      return this;
+    }
+
+    public Builder setClassName(String className) {
+      this.className = className;
+      return this;
+    }
+
+    public Builder setSchema(String schema) {
+      this.schema = schema;
+      return this;
+    }
+
+    public Builder setRecordIdField(String recordIdField) {
+      this.recordIdField = recordIdField;
+      return this;
+    }
+
+    public Builder setSplitSize(Long splitSize) {
+      this.splitSize = splitSize;
+      return this;
+    }
+
+    public Builder setFetchSize(Integer fetchSize) {
+      this.fetchSize = fetchSize;
+      return this;
+    }
+
+    public OrientDBSourceConfig build() {
+      return new OrientDBSourceConfig(this);
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.FailureCollector;
+import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.StageMetrics;
+import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
+import io.cdap.cdap.etl.api.batch.SparkPluginContext;
+import io.cdap.cdap.etl.api.batch.SparkSink;
+import io.cdap.plugin.common.batch.ConfigurationUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.spark.TaskContext;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.VoidFunction;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * {@link SparkSink} plugin to write to OrientDB from realtime as well as batch pipelines. Every partition of a
+ * (micro-)batch is written by an {@link OrientDBRecordWriter} and committed before the batch completes. Connection
+ * pools and vertex caches are kept by the executors across batches, so that writing a batch doesn't start cold.
+ */
+@Plugin(type = SparkSink.PLUGIN_TYPE)
+@Name(OrientDBSparkSink.NAME)
+@Description("Spark Sink that writes to OrientDB, committing every micro-batch of realtime pipelines.")
+public class OrientDBSparkSink extends SparkSink<StructuredRecord> {
+  public static final String NAME = "OrientDB";
+
+  private final OrientDBConfig conf;
+
+  public OrientDBSparkSink(OrientDBConfig conf) {
+    this.conf = conf;
+  }
+
+  @Override
+  public void configurePipeline(PipelineConfigurer pipelineConfigurer) {
+    super.configurePipeline(pipelineConfigurer);
+
+    FailureCollector failureCollector = pipelineConfigurer.getStageConfigurer().getFailureCollector();
+    Schema inputSchema = pipelineConfigurer.getStageConfigurer().getInputSchema();
+    validate(failureCollector, inputSchema);
+    conf.validateDBConnection(failureCollector);
+    failureCollector.getOrThrowException();
+    OrientDBSink.validateGraph(conf, failureCollector);
+    failureCollector.getOrThrowException();
+  }
+
+  @Override
+  public void prepareRun(SparkPluginContext context) {
+    FailureCollector failureCollector = context.getFailureCollector();
+    validate(failureCollector, context.getInputSchema());
+    failureCollector.getOrThrowException();
+    OrientDBSink.prepareGraph(conf, context.getInputSchema(), failureCollector);
+    failureCollector.getOrThrowException();
+  }
+
+  @Override
+  public void run(SparkExecutionPluginContext context, JavaRDD<StructuredRecord> input) throws Exception {
+    Configuration hConf = OrientDBSink.createConfiguration(conf, context.getStageName(),
+                                                           WriteMetrics.getKey(context));
+    hConf.setBoolean(OrientDBSink.ORIENTDB_SHARE_VERTEX_CACHE, true);
+    StageMetrics metrics = context.getMetrics();
+    input.foreachPartition(new PartitionWriter(ConfigurationUtils.getNonDefaultConfigurations(hConf),
+                                               metrics instanceof Serializable ? metrics : null));
+  }
+
+  void validate(FailureCollector failureCollector, @Nullable Schema inputSchema) {
+    conf.validate(failureCollector, inputSchema);
+    if (conf.getCommitMode() == CommitMode.STAGED) {
+      failureCollector.addFailure("Staged commits are only supported by the OrientDB batch sink.",
+                                  String.format("Use commit mode '%s'.", CommitMode.DIRECT.getValue()))
+        .withConfigProperty(OrientDBConfig.COMMIT_MODE);
+    }
+    // The filter would be rebuilt from all vertex keys and shipped to the executors in every micro-batch.
+    if (conf.getKeyFilterFalsePositiveRate() > 0d) {
+      failureCollector.addFailure("Key filters are only supported by the OrientDB batch sink.",
+                                  "Set the false positive rate to 0 to not use a key filter.")
+        .withConfigProperty(OrientDBConfig.KEY_FILTER_FALSE_POSITIVE_RATE);
+    }
+  }
+
+  /**
+   * Writes the records of a partition on an executor and commits them before returning.
+   */
+  static final class PartitionWriter implements VoidFunction<Iterator<StructuredRecord>> {
+    private final HashMap<String, String> settings;
+    @Nullable
+    private final StageMetrics metrics;
+
+    /**
+     * @param settings the configuration of the record writer
+     * @param metrics the metrics of the stage, or {@code null} if they cannot be sent to the executors
+     */
+    PartitionWriter(Map<String, String> settings, @Nullable StageMetrics metrics) {
+      this.settings = new HashMap<>(settings);
+      this.metrics = metrics;
+    }
+
+    @Override
+    public void call(Iterator<StructuredRecord> records) throws Exception {
+      if (!records.hasNext()) {
+        return;
+      }
+      Configuration hConf = new Configuration(false);
+      for (Map.Entry<String, String> entry : settings.entrySet()) {
+        hConf.set(entry.getKey(), entry.getValue());
+      }
+      String metricsKey = hConf.get(OrientDBSink.ORIENTDB_METRICS_KEY);
+      if (metrics != null) {
+        WriteMetrics.register(metricsKey, metrics);
+      }
+      try {
+        write(hConf, records);
+      } finally {
+        if (metrics != null) {
+          WriteMetrics.unregister(metricsKey);
+        }
+      }
+    }
+
+    private static void write(Configuration hConf, Iterator<StructuredRecord> records) throws Exception {
+      // Partitions of a micro-batch are numbered like the tasks of a batch job.
+      int taskId = TaskContext.getPartitionId();
+      OrientDBRecordWriter writer = new OrientDBRecordWriter(OrientDBRecordWriter.forTask(hConf, taskId));
+      try {
+        while (records.hasNext()) {
+          writer.write(NullWritable.get(), records.next());
+        }
+        writer.close(null);
+      } catch (Exception ex) {
+        try {
+          writer.abort();
+        } catch (Exception abortException) {
+          ex.addSuppressed(abortException);
+        }
+        throw ex;
+      }
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.FailureCollector;
+import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.StageConfigurer;
+import io.cdap.cdap.etl.api.StageMetrics;
+import io.cdap.cdap.etl.api.batch.BatchAggregator;
+import io.cdap.cdap.etl.api.batch.BatchAggregatorContext;
+import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link BatchAggregator} that routes all records of a vertex to the same partition. Placed right before an
+ * {@link OrientDBSink}, it makes sure that a vertex and its out edges are only ever written by a single task, so
+ * that parallel tasks don't conflict with each other while creating or updating the same vertex.
+ * Optionally, the records of a vertex are merged into one, so that the sink loads every vertex and its edges only once.
+ */
+@Plugin(type = BatchAggregator.PLUGIN_TYPE)
+@Name(OrientDBVertexPartitioner.NAME)
+@Description("Partitions records by vertex, so that all records of a vertex are written to OrientDB by the same task.")
+public class OrientDBVertexPartitioner extends BatchAggregator<String, StructuredRecord, StructuredRecord> {
+  public static final String NAME = "OrientDBVertexPartitioner";
+  static final String RECORDS_DROPPED = "records.dropped";
+  private static final Logger LOG = LoggerFactory.getLogger(OrientDBVertexPartitioner.class);
+
+  private final OrientDBVertexPartitionerConfig conf;
+  private StageMetrics metrics;
+  private long droppedRecords;
+
+  public OrientDBVertexPartitioner(OrientDBVertexPartitionerConfig conf) {
+    this.conf = conf;
+  }
+
+  @Override
+  public void configurePipeline(PipelineConfigurer pipelineConfigurer) {
+    StageConfigurer stageConfigurer = pipelineConfigurer.getStageConfigurer();
+    FailureCollector failureCollector = stageConfigurer.getFailureCollector();
+    Schema inputSchema = stageConfigurer.getInputSchema();
+    conf.validate(failureCollector, inputSchema);
+    failureCollector.getOrThrowException();
+    stageConfigurer.setOutputSchema(inputSchema);
+  }
+
+  @Override
+  public void prepareRun(BatchAggregatorContext context) throws Exception {
+    if (conf.getNumPartitions() != null) {
+      context.setNumPartitions(conf.getNumPartitions());
+    }
+  }
+
+  @Override
+  public void initialize(BatchRuntimeContext context) throws Exception {
+    super.initialize(context);
+    metrics = context.getMetrics();
+  }
+
+  @Override
+  public void groupBy(StructuredRecord groupValue, Emitter<String> emitter) throws Exception {
+    String vertexValue = groupValue.get(conf.getVertexType());
+    if (vertexValue != null) {
+      emitter.emit(vertexValue);
+      return;
+    }
+    // Records without a vertex can't be written by the sink. Grouping them under a key of their own would merge them
+    // with the records of a vertex with that key.
+    if (droppedRecords++ == 0) {
+      LOG.warn("Dropping records without a value in vertex field '{}'.", conf.getVertexType());
+    }
+    if (metrics != null) {
+      metrics.count(RECORDS_DROPPED, 1);
+    }
+  }
+
+  @Override
+  public void aggregate(String groupKey, Iterator<StructuredRecord> groupValues,
+                        Emitter<StructuredRecord> emitter) throws Exception {
+    if (!conf.isMergeRecords()) {
+      while (groupValues.hasNext()) {
+        emitter.emit(groupValues.next());
+      }
+      return;
+    }
+    StructuredRecord first = groupValues.next();
+    emitter.emit(groupValues.hasNext() ? merge(first, groupValues) : first);
+  }
+
+  /**
+   * Merges records of the same vertex into a single record. Edges are combined in the order they appear, dropping
+   * duplicate target vertices. Edge records are all kept, since the sink merges their properties by edge key, and
+   * dropping identical ones would change sums. Other fields take the last non-null value, in the order of the group,
+   * which is arbitrary after the shuffle.
+   */
+  private StructuredRecord merge(StructuredRecord first, Iterator<StructuredRecord> others) {
+    String edgeName = conf.getEdgeType();
+    Map<String, Object> values = new LinkedHashMap<>();
+    List<Object> edges = new ArrayList<>();
+    Set<String> targets = new HashSet<>();
+    boolean hasEdges = false;
+    StructuredRecord record = first;
+    while (true) {
+      for (Schema.Field field : record.getSchema().getFields()) {
+        Object value = record.get(field.getName());
+        if (value == null) {
+          continue;
+        }
+        if (field.getName().equals(edgeName)) {
+          addEdges(edges, targets, value);
+          hasEdges = true;
+        } else {
+          values.put(field.getName(), value);
+        }
+      }
+      if (!others.hasNext()) {
+        break;
+      }
+      record = others.next();
+    }
+
+    StructuredRecord.Builder builder = StructuredRecord.builder(first.getSchema());
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      builder.set(entry.getKey(), entry.getValue());
+    }
+    if (hasEdges) {
+      builder.set(edgeName, edges);
+    }
+    return builder.build();
+  }
+
+  private static void addEdges(List<Object> edges, Set<String> targets, Object array) {
+    Collection<?> values;
+    if (array instanceof Collection) {
+      values = (Collection<?>) array;
+    } else if (array instanceof Object[]) {
+      values = Arrays.asList((Object[]) array);
+    } else {
+      throw new IllegalArgumentException(String.format("Unsupported edge field value of type '%s'.",
+                                                       array.getClass().getName()));
+    }
+    for (Object edge : values) {
+      if (!(edge instanceof String) || targets.add((String) edge)) {
+        edges.add(edge);
+      }
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.plugin.PluginConfig;
+import io.cdap.cdap.etl.api.FailureCollector;
+
+import javax.annotation.Nullable;
+
+/**
+ * {@link PluginConfig} for {@link OrientDBVertexPartitioner}.
+ */
+public class OrientDBVertexPartitionerConfig extends PluginConfig {
+  public static final String VERTEX = "vertex";
+  public static final String NUM_PARTITIONS = "numPartitions";
+  public static final String EDGE = "edge";
+  public static final String MERGE_RECORDS = "mergeRecords";
+
+  @Name(VERTEX)
+  @Description("Column Name corresponding to Vertex Type. Records are partitioned by the value of this column. " +
+    "This column should be of String type.")
+  private String vertexType;
+
+  @Name(NUM_PARTITIONS)
+  @Description("Number of partitions to use when grouping records by vertex. " +
+    "If not specified, the execution framework will decide how many to use.")
+  @Nullable
+  private Integer numPartitions;
+
+  @Name(EDGE)
+  @Description("Column Name corresponding to Edge Type. Required to merge records. " +
+    "This column should be an array of strings or records.")
+  @Nullable
+  private String edgeType;
+
+  @Name(MERGE_RECORDS)
+  @Description("Whether to merge all records of a vertex into a single record, so that the OrientDB sink writes " +
+    "every vertex only once. The edges of the records are combined and duplicate target vertices removed, edge " +
+    "records are all kept. Other columns take the last non-null value in an arbitrary order. Defaults to false.")
+  @Nullable
+  private Boolean mergeRecords;
+
+  public OrientDBVertexPartitionerConfig(String vertexType, @Nullable Integer numPartitions) {
+    this(vertexType, numPartitions, null, null);
+  }
+
+  public OrientDBVertexPartitionerConfig(String vertexType, @Nullable Integer numPartitions,
+                                         @Nullable String edgeType, @Nullable Boolean mergeRecords) {
+    this.vertexType = vertexType;
+    this.numPartitions = numPartitions;
+    this.edgeType = edgeType;
+    this.mergeRecords = mergeRecords;
+  }
+
+  public String getVertexType() {
+    return vertexType;
+  }
+
+  @Nullable
+  public Integer getNumPartitions() {
+    return numPartitions;
+  }
+
+  @Nullable
+  public String getEdgeType() {
+    return edgeType;
+  }
+
+  public boolean isMergeRecords() {
+    return mergeRecords != null && mergeRecords;
+  }
+
+  public void validate(FailureCollector failureCollector, @Nullable Schema inputSchema) {
+    if (inputSchema != null) {
+      OrientDBConfig.validateVertexField(failureCollector, inputSchema, vertexType, VERTEX);
+    }
+
+    if (numPartitions != null && numPartitions < 1) {
+      failureCollector.addFailure(String.format("Number of partitions '%d' must be at least 1.", numPartitions),
+                                  null)
+        .withConfigProperty(NUM_PARTITIONS);
+    }
+
+    if (edgeType == null || edgeType.trim().isEmpty()) {
+      if (isMergeRecords()) {
+        failureCollector.addFailure("Merging records requires the edge column.", "Set the edge column name.")
+          .withConfigProperty(EDGE)
+          .withConfigProperty(MERGE_RECORDS);
+      }
+    } else if (inputSchema != null) {
+      Schema.Field edgeField = inputSchema.getField(edgeType);
+      Schema edgeFieldSchema = edgeField == null ? null : edgeField.getSchema();
+      if (edgeFieldSchema != null && edgeFieldSchema.isNullable()) {
+        edgeFieldSchema = edgeFieldSchema.getNonNullable();
+      }
+      if (edgeFieldSchema == null) {
+        failureCollector.addFailure(String.format("Field '%s' is not present in input schema.", edgeType), null)
+          .withConfigProperty(EDGE)
+          .withInputSchemaField(EDGE, null);
+      } else if (edgeFieldSchema.getType() != Schema.Type.ARRAY) {
+        failureCollector.addFailure(String.format("Field '%s' must be of type 'array' but is of type '%s'.",
+                                                  edgeType, edgeFieldSchema.getDisplayName()), null)
+          .withConfigProperty(EDGE)
+          .withInputSchemaField(EDGE, null);
+      }
+    }
+  }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import javax.annotation.Nullable;
+
+/**
+ * Converts CDAP {@link Schema} types to OrientDB property types, and values of these types to the values OrientDB
+ * stores. Dates and timestamps become {@link Date}s, decimals {@link BigDecimal}s, bytes {@code byte[]}s, arrays
+ * lists and maps and records maps with string keys. Times are kept as numbers, since OrientDB has no time type.
+ * Property types and values read from OrientDB are converted back the other way, links become the string form of the
+ * record id they point to.
+ */
+public final class PropertyTypes {
+  private static final Map<Schema.Type, OType> TYPES = new EnumMap<>(Schema.Type.class);
+  private static final Map<Schema.LogicalType, OType> LOGICAL_TYPES = new EnumMap<>(Schema.LogicalType.class);
+  private static final Map<OType, Schema> SCHEMAS = new EnumMap<>(OType.class);
+
+  static {
+    TYPES.put(Schema.Type.BOOLEAN, OType.BOOLEAN);
+    TYPES.put(Schema.Type.INT, OType.INTEGER);
+    TYPES.put(Schema.Type.LONG, OType.LONG);
+    TYPES.put(Schema.Type.FLOAT, OType.FLOAT);
+    TYPES.put(Schema.Type.DOUBLE, OType.DOUBLE);
+    TYPES.put(Schema.Type.STRING, OType.STRING);
+    TYPES.put(Schema.Type.ENUM, OType.STRING);
+    TYPES.put(Schema.Type.BYTES, OType.BINARY);
+    TYPES.put(Schema.Type.ARRAY, OType.EMBEDDEDLIST);
+    TYPES.put(Schema.Type.MAP, OType.EMBEDDEDMAP);
+    TYPES.put(Schema.Type.RECORD, OType.EMBEDDEDMAP);
+
+    LOGICAL_TYPES.put(Schema.LogicalType.DATE, OType.DATE);
+    LOGICAL_TYPES.put(Schema.LogicalType.TIMESTAMP_MILLIS, OType.DATETIME);
+    LOGICAL_TYPES.put(Schema.LogicalType.TIMESTAMP_MICROS, OType.DATETIME);
+    LOGICAL_TYPES.put(Schema.LogicalType.TIME_MILLIS, OType.INTEGER);
+    LOGICAL_TYPES.put(Schema.LogicalType.TIME_MICROS, OType.LONG);
+    LOGICAL_TYPES.put(Schema.LogicalType.DECIMAL, OType.DECIMAL);
+
+    SCHEMAS.put(OType.BOOLEAN, Schema.of(Schema.Type.BOOLEAN));
+    SCHEMAS.put(OType.BYTE, Schema.of(Schema.Type.INT));
+    SCHEMAS.put(OType.SHORT, Schema.of(Schema.Type.INT));
+    SCHEMAS.put(OType.INTEGER, Schema.of(Schema.Type.INT));
+    SCHEMAS.put(OType.LONG, Schema.of(Schema.Type.LONG));
+    SCHEMAS.put(OType.FLOAT, Schema.of(Schema.Type.FLOAT));
+    SCHEMAS.put(OType.DOUBLE, Schema.of(Schema.Type.DOUBLE));
+    SCHEMAS.put(OType.STRING, Schema.of(Schema.Type.STRING));
+    SCHEMAS.put(OType.BINARY, Schema.of(Schema.Type.BYTES));
+    SCHEMAS.put(OType.DATE, Schema.of(Schema.LogicalType.DATE));
+    SCHEMAS.put(OType.DATETIME, Schema.of(Schema.LogicalType.TIMESTAMP_MICROS));
+    SCHEMAS.put(OType.LINK, Schema.of(Schema.Type.STRING));
+  }
+
+  private PropertyTypes() {
+  }
+
+  /**
+   * Returns the OrientDB type of properties holding values of the given schema, {@code null} if the schema can't be
+   * stored. Only maps with string keys are supported.
+   */
+  @Nullable
+  public static OType getType(Schema schema) {
+    schema = getNonNullable(schema);
+    if (schema.getLogicalType() != null) {
+      return LOGICAL_TYPES.get(schema.getLogicalType());
+    }
+    switch (schema.getType()) {
+      case ARRAY:
+        return getType(schema.getComponentSchema()) == null ? null : OType.EMBEDDEDLIST;
+      case MAP:
+        Schema keySchema = getNonNullable(schema.getMapSchema().getKey());
+        if (keySchema.getType() != Schema.Type.STRING || getType(schema.getMapSchema().getValue()) == null) {
+          return null;
+        }
+        return OType.EMBEDDEDMAP;
+      case RECORD:
+        for (Schema.Field field : schema.getFields()) {
+          if (getType(field.getSchema()) == null) {
+            return null;
+          }
+        }
+        return OType.EMBEDDEDMAP;
+      default:
+        return TYPES.get(schema.getType());
+    }
+  }
+
+  /**
+   * Returns the type of the elements of lists or the values of maps of the given schema, {@code null} if the
+   * schema has none or if the elements may be of different types.
+   */
+  @Nullable
+  public static OType getLinkedType(Schema schema) {
+    schema = getNonNullable(schema);
+    if (schema.getLogicalType() != null) {
+      return null;
+    }
+    Schema elementSchema;
+    if (schema.getType() == Schema.Type.ARRAY) {
+      elementSchema = schema.getComponentSchema();
+    } else if (schema.getType() == Schema.Type.MAP) {
+      elementSchema = schema.getMapSchema().getValue();
+    } else {
+      return null;
+    }
+    OType elementType = getType(elementSchema);
+    // Nested collections are declared without a linked type, OrientDB can't declare their elements.
+    return elementType == null || elementType.isMultiValue() ? null : elementType;
+  }
+
+  /**
+   * Converts a value of the given schema, as held by a {@link StructuredRecord}, to the value stored by OrientDB.
+   *
+   * @throws IllegalArgumentException if the value doesn't match the schema
+   */
+  @Nullable
+  public static Object convert(Schema schema, @Nullable Object value) {
+    if (value == null) {
+      return null;
+    }
+    schema = getNonNullable(schema);
+    Schema.LogicalType logicalType = schema.getLogicalType();
+    if (logicalType != null) {
+      switch (logicalType) {
+        case DATE:
+          return new Date(TimeUnit.DAYS.toMillis(((Number) value).longValue()));
+        case TIMESTAMP_MILLIS:
+          return new Date(((Number) value).longValue());
+        case TIMESTAMP_MICROS:
+          return new Date(Math.floorDiv(((Number) value).longValue(), 1000L));
+        case DECIMAL:
+          return new BigDecimal(new BigInteger(toBytes(value)), schema.getScale());
+        default:
+          return value;
+      }
+    }
+    switch (schema.getType()) {
+      case ENUM:
+        return value.toString();
+      case BYTES:
+        return toBytes(value);
+      case ARRAY:
+        return convertArray(schema.getComponentSchema(), value);
+      case MAP:
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          map.put(String.valueOf(entry.getKey()), convert(schema.getMapSchema().getValue(), entry.getValue()));
+        }
+        return map;
+      case RECORD:
+        StructuredRecord record = (StructuredRecord) value;
+        Map<String, Object> fields = new LinkedHashMap<>();
+        for (Schema.Field field : schema.getFields()) {
+          fields.put(field.getName(), convert(field.getSchema(), record.get(field.getName())));
+        }
+        return fields;
+      default:
+        return value;
+    }
+  }
+
+  /**
+   * Returns the nullable schema of values read from properties of the given OrientDB type, {@code null} if the type
+   * can't be read. Lists and sets are read as arrays and maps as maps with string keys, if their elements are declared
+   * with a linked type that can be read. Links are read as strings. Decimals are not read, since their precision is
+   * not declared.
+   */
+  @Nullable
+  public static Schema getSchema(OType type, @Nullable OType linkedType) {
+    switch (type) {
+      case EMBEDDEDLIST:
+      case EMBEDDEDSET:
+        return linkedType == null || linkedType.isMultiValue() || SCHEMAS.get(linkedType) == null ? null :
+          Schema.nullableOf(Schema.arrayOf(Schema.nullableOf(SCHEMAS.get(linkedType))));
+      case LINKLIST:
+      case LINKSET:
+        return Schema.nullableOf(Schema.arrayOf(Schema.of(Schema.Type.STRING)));
+      case EMBEDDEDMAP:
+        return linkedType == null || linkedType.isMultiValue() || SCHEMAS.get(linkedType) == null ? null :
+          Schema.nullableOf(Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.nullableOf(SCHEMAS.get(linkedType))));
+      case LINKMAP:
+        return Schema.nullableOf(Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.STRING)));
+      default:
+        return SCHEMAS.containsKey(type) ? Schema.nullableOf(SCHEMAS.get(type)) : null;
+    }
+  }
+
+  /**
+   * Converts a value read from OrientDB to the value held by a {@link StructuredRecord} field of the given schema.
+   * Numbers are narrowed or widened to the type of the field, and any value can be read into a string field.
+   *
+   * @throws IllegalArgumentException if the value can't be converted to the schema
+   */
+  @Nullable
+  public static Object toRecordValue(Schema schema, @Nullable Object value) {
+    if (value == null) {
+      return null;
+    }
+    schema = getNonNullable(schema);
+    Schema.LogicalType logicalType = schema.getLogicalType();
+    if (logicalType != null) {
+      switch (logicalType) {
+        case DATE:
+          return Math.toIntExact(Math.floorDiv(toDate(value).getTime(), TimeUnit.DAYS.toMillis(1)));
+        case TIMESTAMP_MILLIS:
+          return toDate(value).getTime();
+        case TIMESTAMP_MICROS:
+          return Math.multiplyExact(toDate(value).getTime(), 1000L);
+        case TIME_MILLIS:
+          return toNumber(value).intValue();
+        case TIME_MICROS:
+          return toNumber(value).longValue();
+        case DECIMAL:
+          BigDecimal decimal = value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+          return decimal.setScale(schema.getScale()).unscaledValue().toByteArray();
+        default:
+          return value;
+      }
+    }
+    switch (schema.getType()) {
+      case INT:
+        return toNumber(value).intValue();
+      case LONG:
+        return toNumber(value).longValue();
+      case FLOAT:
+        return toNumber(value).floatValue();
+      case DOUBLE:
+        return toNumber(value).doubleValue();
+      case STRING:
+      case ENUM:
+        return value instanceof OIdentifiable ? ((OIdentifiable) value).getIdentity().toString() : value.toString();
+      case ARRAY:
+        return convertArray(schema.getComponentSchema(), value, PropertyTypes::toRecordValue);
+      case MAP:
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : toMap(value).entrySet()) {
+          map.put(String.valueOf(entry.getKey()), toRecordValue(schema.getMapSchema().getValue(), entry.getValue()));
+        }
+        return map;
+      case RECORD:
+        Map<?, ?> fields = toMap(value);
+        StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+        for (Schema.Field field : schema.getFields()) {
+          builder.set(field.getName(), toRecordValue(field.getSchema(), fields.get(field.getName())));
+        }
+        return builder.build();
+      default:
+        return value;
+    }
+  }
+
+  private static Date toDate(Object value) {
+    if (value instanceof Date) {
+      return (Date) value;
+    }
+    return new Date(toNumber(value).longValue());
+  }
+
+  private static Number toNumber(Object value) {
+    if (value instanceof Number) {
+      return (Number) value;
+    }
+    throw new IllegalArgumentException(String.format("Unsupported numeric value of type '%s'.",
+                                                     value.getClass().getName()));
+  }
+
+  private static Map<?, ?> toMap(Object value) {
+    if (value instanceof ODocument) {
+      // Embedded documents, without the record attributes included by ODocument#toMap().
+      ODocument document = (ODocument) value;
+      Map<String, Object> fields = new LinkedHashMap<>();
+      for (String name : document.fieldNames()) {
+        fields.put(name, document.rawField(name));
+      }
+      return fields;
+    }
+    if (value instanceof Map) {
+      return (Map<?, ?>) value;
+    }
+    throw new IllegalArgumentException(String.format("Unsupported map value of type '%s'.",
+                                                     value.getClass().getName()));
+  }
+
+  private static List<Object> convertArray(Schema componentSchema, Object array) {
+    return convertArray(componentSchema, array, PropertyTypes::convert);
+  }
+
+  private static List<Object> convertArray(Schema componentSchema, Object array,
+                                           BiFunction<Schema, Object, Object> converter) {
+    List<Object> list;
+    if (array instanceof Collection) {
+      list = new ArrayList<>(((Collection<?>) array).size());
+      for (Object element : (Collection<?>) array) {
+        list.add(converter.apply(componentSchema, element));
+      }
+    } else if (array.getClass().isArray()) {
+      int length = Array.getLength(array);
+      list = new ArrayList<>(length);
+      for (int i = 0; i < length; i++) {
+        list.add(converter.apply(componentSchema, Array.get(array, i)));
+      }
+    } else {
+      throw new IllegalArgumentException(String.format("Unsupported array value of type '%s'.",
+                                                       array.getClass().getName()));
+    }
+    return list;
+  }
+
+  private static byte[] toBytes(Object value) {
+    if (value instanceof ByteBuffer) {
+      ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      return bytes;
+    }
+    if (value instanceof byte[]) {
+      return (byte[]) value;
+    }
+    throw new IllegalArgumentException(String.format("Unsupported bytes value of type '%s'.",
+                                                     value.getClass().getName()));
+  }
+
+  private static Schema getNonNullable(Schema schema) {
+    return schema.isNullable() ? schema.getNonNullable() : schema;
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+/**
+ * Utility methods to pack an {@link ORID} into a single long, so that record ids can be held in primitive collections.
+ * The cluster id is stored in the upper 16 bits and the cluster position in the lower 48 bits.
+ */
+public final class RecordIds {
+  private static final long POSITION_MASK = 0xFFFFFFFFFFFFL;
+
+  private RecordIds() {
+  }
+
+  public static long pack(ORID rid) {
+    return ((long) rid.getClusterId() << 48) | (rid.getClusterPosition() & POSITION_MASK);
+  }
+
+  public static ORID unpack(long packed) {
+    // Shifting back and forth restores the sign of the negative positions of records not yet committed.
+    return new ORecordId((int) (packed >> 48), (packed << 16) >> 16);
+  }
+}
@@ -0,0 +1,495 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.command.script.OCommandScript;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+import org.apache.hadoop.conf.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * {@link GraphWriter} that compiles every batch into a single SQL script, which upserts all vertices of the batch and
+ * creates the edges that don't exist yet on the server, so that a batch takes one round trip. Failed batches are
+ * retried by running the same script again, which is only idempotent without {@code sum} merges. Those are
+ * restricted to transactional writes, where a failed script leaves nothing behind.
+ */
+public class ScriptGraphWriter implements GraphWriter {
+  private static final Logger LOG = LoggerFactory.getLogger(ScriptGraphWriter.class);
+
+  private final String connectionString;
+  private final String username;
+  private final String password;
+  private final String vertexName;
+  private final String edgeName;
+  private final Map<String, EdgePropertyMerge> edgePropertyMerges;
+  private final boolean lightweightEdges;
+  private final int batchSize;
+  private final long commitInterval;
+  private final WriteMode writeMode;
+  private final int maxRetries;
+  private final long retryBackoff;
+  private final int minPoolSize;
+  private final int maxPoolSize;
+  // Index of this writer among the parallel writers, selecting the cluster of created edges, or -1.
+  private final int writerId;
+  private final List<GraphOperation> batch = new ArrayList<>();
+  private final WriteMetrics metrics;
+
+  private OrientGraphNoTx graph;
+  @Nullable
+  private String edgeCluster;
+  private long batchStartTime;
+
+  public ScriptGraphWriter(Configuration hConf) {
+    this.connectionString = hConf.get(OrientDBSink.ORIENTDB_CONNECTION_STRING);
+    this.username = hConf.get(OrientDBSink.ORIENTDB_USERNAME);
+    this.password = hConf.get(OrientDBSink.ORIENTDB_PASSWORD);
+    this.vertexName = hConf.get(OrientDBSink.ORIENTDB_VERTEX);
+    this.edgeName = hConf.get(OrientDBSink.ORIENTDB_EDGE);
+    this.edgePropertyMerges = EdgePropertyMerge.parse(hConf.get(OrientDBSink.ORIENTDB_EDGE_PROPERTY_MERGE));
+    this.lightweightEdges = hConf.getBoolean(OrientDBSink.ORIENTDB_LIGHTWEIGHT_EDGES, false);
+    this.batchSize = hConf.getInt(OrientDBSink.ORIENTDB_BATCH_SIZE, OrientDBConfig.DEFAULT_BATCH_SIZE);
+    this.commitInterval = hConf.getLong(OrientDBSink.ORIENTDB_COMMIT_INTERVAL, 0L);
+    this.writeMode = hConf.getEnum(OrientDBSink.ORIENTDB_WRITE_MODE, WriteMode.TRANSACTIONAL);
+    this.maxRetries = hConf.getInt(OrientDBSink.ORIENTDB_MAX_RETRIES, OrientDBConfig.DEFAULT_MAX_RETRIES);
+    this.retryBackoff = hConf.getLong(OrientDBSink.ORIENTDB_RETRY_BACKOFF, OrientDBConfig.DEFAULT_RETRY_BACKOFF);
+    this.minPoolSize = hConf.getInt(OrientDBSink.ORIENTDB_MIN_POOL_SIZE, OrientDBConfig.DEFAULT_MIN_POOL_SIZE);
+    this.maxPoolSize = hConf.getInt(OrientDBSink.ORIENTDB_MAX_POOL_SIZE, OrientDBConfig.DEFAULT_MAX_POOL_SIZE);
+    this.writerId = hConf.getInt(OrientDBSink.ORIENTDB_WRITER_ID, -1);
+    this.metrics = new WriteMetrics(hConf.get(OrientDBSink.ORIENTDB_METRICS_KEY));
+  }
+
+  @Override
+  public void write(GraphOperation operation) throws IOException, InterruptedException {
+    if (graph == null) {
+      initializeGraph();
+    }
+    batch.add(operation);
+    if (isBatchComplete()) {
+      completeBatch();
+    }
+  }
+
+  @Override
+  public void flush() throws IOException, InterruptedException {
+    if (graph != null && !batch.isEmpty()) {
+      completeBatch();
+    }
+  }
+
+  @Override
+  public void close() throws IOException, InterruptedException {
+    if (graph != null) {
+      if (!batch.isEmpty()) {
+        try {
+          completeBatch();
+        } catch (Exception ex) {
+          // Returns the connection, so that later writers get one.
+          try {
+            abort();
+          } catch (RuntimeException abortException) {
+            ex.addSuppressed(abortException);
+          }
+          throw ex;
+        }
+      }
+      release();
+    }
+    metrics.report();
+    LOG.info("Wrote records to OrientDB with scripts in '{}' mode: {}.", writeMode.getValue(), metrics);
+  }
+
+  @Override
+  public void abort() {
+    batch.clear();
+    if (graph != null) {
+      release();
+    }
+    metrics.report();
+  }
+
+  private boolean isBatchComplete() {
+    if (batchSize > 0 && batch.size() >= batchSize) {
+      return true;
+    }
+    return commitInterval > 0 && System.currentTimeMillis() - batchStartTime >= commitInterval;
+  }
+
+  private void completeBatch() throws IOException, InterruptedException {
+    OCommandScript script = new OCommandScript("sql", buildScript(batch));
+    int failedAttempts = 0;
+    while (true) {
+      try {
+        long startTime = System.nanoTime();
+        graph.getRawGraph().command(script).execute();
+        metrics.getCommits().recordSince(startTime);
+        break;
+      } catch (RuntimeException ex) {
+        ODatabaseDocument database = graph.getRawGraph();
+        if (database.getTransaction().isActive()) {
+          database.rollback();
+          metrics.increment(WriteMetrics.Counter.ROLLBACKS);
+        }
+        // Drop records cached by OrientDB, they may be outdated versions of records modified by other writers.
+        database.getLocalCache().clear();
+
+        if (!OrientDBGraphWriter.isRetryable(ex)) {
+          metrics.increment(WriteMetrics.Counter.FAILURES);
+          throw new IOException("Failed to write records to OrientDB.", ex);
+        }
+        if (++failedAttempts > maxRetries) {
+          metrics.increment(WriteMetrics.Counter.FAILURES);
+          throw new IOException(String.format("Failed to write records to OrientDB after %d retries.", maxRetries),
+                                ex);
+        }
+        metrics.increment(WriteMetrics.Counter.RETRIES);
+        OrientDBGraphWriter.backoff(retryBackoff, failedAttempts, ex);
+      }
+    }
+    metrics.increment(WriteMetrics.Counter.BATCHES_COMMITTED);
+    batch.clear();
+    batchStartTime = System.currentTimeMillis();
+    metrics.maybeReport();
+  }
+
+  /**
+   * Builds the script of a batch. Every distinct vertex of the batch is upserted once into a variable, together with
+   * the last properties it has in the batch, and every distinct edge is only created if the source vertex doesn't
+   * have an out edge to the destination vertex yet.
+   * Properties of duplicate edges within the batch are merged up front, and then merged into the existing edge
+   * by a second statement if the edge exists already.
+   */
+  String buildScript(List<GraphOperation> operations) {
+    StringBuilder script = new StringBuilder();
+    boolean transactional = writeMode == WriteMode.TRANSACTIONAL;
+    if (transactional) {
+      script.append("begin\n");
+    }
+
+    String vertexClass = quoteIdentifier(vertexName);
+    String edgeClass = quoteIdentifier(edgeName);
+    String outLinks = quoteIdentifier(OrientVertex.getConnectionFieldName(Direction.OUT, edgeName, true));
+    String inLinks = quoteIdentifier(OrientVertex.getConnectionFieldName(Direction.IN, edgeName, true));
+    Map<String, String> vertexVariables = new HashMap<>();
+    // Variables holding the out neighbours of source vertices.
+    Map<String, String> neighbourVariables = new HashMap<>();
+    Set<String> edges = new HashSet<>();
+    Map<String, Map<String, Object>> edgeProperties = getEdgeProperties(operations);
+    Map<String, Map<String, Object>> vertexProperties = getVertexProperties(operations);
+    for (GraphOperation operation : operations) {
+      String source = getVertexVariable(operation.getSourceVertex(), vertexClass, vertexVariables, vertexProperties,
+                                        script);
+      for (String destinationVertex : operation.getDestinationVertices()) {
+        String destination = getVertexVariable(destinationVertex, vertexClass, vertexVariables, vertexProperties,
+                                               script);
+        if (!edges.add(source + ' ' + destination)) {
+          continue;
+        }
+        String neighbours = neighbourVariables.get(source);
+        if (neighbours == null) {
+          neighbours = "n" + neighbourVariables.size();
+          neighbourVariables.put(source, neighbours);
+          script.append("let ").append(neighbours).append(" = SELECT out(").append(quoteString(edgeName))
+            .append(") AS n FROM $").append(source).append('\n');
+        }
+        Map<String, Object> properties = edgeProperties.get(getEdgeKey(operation.getSourceVertex(),
+                                                                       destinationVertex));
+        script.append("if (NOT ($").append(neighbours).append("[0].n CONTAINS $").append(destination)
+          .append("[0])) {\n");
+        if (lightweightEdges) {
+          // Links both vertices directly, like Blueprints does for lightweight edges.
+          script.append("  UPDATE $").append(source).append(" ADD ").append(outLinks).append(" = $")
+            .append(destination).append("[0]\n")
+            .append("  UPDATE $").append(destination).append(" ADD ").append(inLinks).append(" = $")
+            .append(source).append("[0]\n");
+        } else {
+          script.append("  CREATE EDGE ").append(edgeClass);
+          if (edgeCluster != null) {
+            script.append(" CLUSTER ").append(quoteIdentifier(edgeCluster));
+          }
+          script.append(" FROM $").append(source).append(" TO $").append(destination);
+          if (properties != null) {
+            appendAssignments(script.append(" SET "), properties, false);
+          }
+          script.append('\n');
+        }
+        script.append("}\n");
+        if (properties != null) {
+          appendEdgeUpdate(script, source, destination, neighbours, properties);
+        }
+      }
+    }
+
+    if (transactional) {
+      script.append("commit\n");
+    }
+    return script.toString();
+  }
+
+  /**
+   * Returns the properties of all edges of the given operations that have properties by edge key, with the properties
+   * of duplicate edges merged in the order of the operations.
+   */
+  private Map<String, Map<String, Object>> getEdgeProperties(List<GraphOperation> operations) {
+    Map<String, Map<String, Object>> edgeProperties = new HashMap<>();
+    for (GraphOperation operation : operations) {
+      if (!operation.hasEdgeProperties()) {
+        continue;
+      }
+      List<String> destinationVertices = operation.getDestinationVertices();
+      for (int i = 0; i < destinationVertices.size(); i++) {
+        Map<String, Object> properties = operation.getEdgeProperties(i);
+        if (properties.isEmpty()) {
+          continue;
+        }
+        Map<String, Object> merged = edgeProperties.computeIfAbsent(
+          getEdgeKey(operation.getSourceVertex(), destinationVertices.get(i)), key -> new LinkedHashMap<>());
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+          merged.merge(property.getKey(), property.getValue(), getMerge(property.getKey())::merge);
+        }
+      }
+    }
+    return edgeProperties;
+  }
+
+  /**
+   * Returns the properties of all source vertices of the given operations that have properties by vertex key. Later
+   * operations overwrite the properties of earlier ones.
+   */
+  private static Map<String, Map<String, Object>> getVertexProperties(List<GraphOperation> operations) {
+    Map<String, Map<String, Object>> vertexProperties = new HashMap<>();
+    for (GraphOperation operation : operations) {
+      if (!operation.getVertexProperties().isEmpty()) {
+        vertexProperties.computeIfAbsent(operation.getSourceVertex(), key -> new LinkedHashMap<>())
+          .putAll(operation.getVertexProperties());
+      }
+    }
+    return vertexProperties;
+  }
+
+  private static String getEdgeKey(String sourceVertex, String destinationVertex) {
+    return sourceVertex + '\u0000' + destinationVertex;
+  }
+
+  private EdgePropertyMerge getMerge(String property) {
+    return edgePropertyMerges.getOrDefault(property, EdgePropertyMerge.OVERWRITE);
+  }
+
+  /**
+   * Appends a statement that merges the given properties into the edge between the given vertices if it existed
+   * before the script ran. Sums are applied with INCREMENT, since SET doesn't support arithmetic.
+   */
+  private void appendEdgeUpdate(StringBuilder script, String source, String destination, String neighbours,
+                                Map<String, Object> properties) {
+    Map<String, Object> assignments = new LinkedHashMap<>();
+    Map<String, Object> increments = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> property : properties.entrySet()) {
+      (getMerge(property.getKey()) == EdgePropertyMerge.SUM ? increments : assignments)
+        .put(property.getKey(), property.getValue());
+    }
+    // Filters the out edges in the projection, an UPDATE of a subquery with a WHERE clause only updates
+    // records of the first such statement in a script.
+    script.append("if ($").append(neighbours).append("[0].n CONTAINS $").append(destination).append("[0]) {\n")
+      .append("  UPDATE (SELECT expand(outE(").append(quoteString(edgeName)).append(")[in = $").append(destination)
+      .append("[0]]) FROM $").append(source).append(')');
+    if (!assignments.isEmpty()) {
+      appendAssignments(script.append(" SET "), assignments, true);
+    }
+    if (!increments.isEmpty()) {
+      appendAssignments(script.append(" INCREMENT "), increments, false);
+    }
+    script.append('\n').append("}\n");
+  }
+
+  /**
+   * Appends {@code property = value} assignments. If values are merged into existing ones, the greater of the existing
+   * and the new value is assigned to properties merged with {@link EdgePropertyMerge#MAX}.
+   */
+  private void appendAssignments(StringBuilder script, Map<String, Object> properties, boolean merge) {
+    String separator = "";
+    for (Map.Entry<String, Object> property : properties.entrySet()) {
+      String name = quoteIdentifier(property.getKey());
+      String value = toLiteral(property.getValue());
+      script.append(separator).append(name).append(" = ");
+      if (merge && getMerge(property.getKey()) == EdgePropertyMerge.MAX) {
+        script.append("max(ifnull(").append(name).append(", ").append(value).append("), ").append(value).append(')');
+      } else {
+        script.append(value);
+      }
+      separator = ", ";
+    }
+  }
+
+  /**
+   * Returns the SQL literal of a property value, as converted by {@link PropertyTypes}. Numbers are written without
+   * exponent, since the parser doesn't accept it. Dates are written as epoch milliseconds and bytes as Base64, which
+   * OrientDB converts to the declared type of the property.
+   */
+  static String toLiteral(Object value) {
+    if (value instanceof String) {
+      return quoteString((String) value);
+    }
+    if (value instanceof Float || value instanceof Double) {
+      double number = ((Number) value).doubleValue();
+      if (Double.isNaN(number) || Double.isInfinite(number)) {
+        throw unsupportedValue(value);
+      }
+      return new BigDecimal(value.toString()).toPlainString();
+    }
+    if (value instanceof BigDecimal) {
+      return ((BigDecimal) value).toPlainString();
+    }
+    if (value instanceof Date) {
+      return String.valueOf(((Date) value).getTime());
+    }
+    if (value instanceof byte[]) {
+      return quoteString(Base64.getEncoder().encodeToString((byte[]) value));
+    }
+    if (value instanceof List) {
+      StringBuilder literal = new StringBuilder("[");
+      String separator = "";
+      for (Object element : (List<?>) value) {
+        literal.append(separator).append(element == null ? "null" : toLiteral(element));
+        separator = ", ";
+      }
+      return literal.append(']').toString();
+    }
+    if (value instanceof Map) {
+      StringBuilder literal = new StringBuilder("{");
+      String separator = "";
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        String key = entry.getKey().toString();
+        if (!quoteString(key).equals('\'' + key + '\'')) {
+          // The parser doesn't unescape map keys.
+          throw unsupportedValue(value);
+        }
+        literal.append(separator).append('\'').append(key).append("': ")
+          .append(entry.getValue() == null ? "null" : toLiteral(entry.getValue()));
+        separator = ", ";
+      }
+      return literal.append('}').toString();
+    }
+    return String.valueOf(value);
+  }
+
+  private static IllegalArgumentException unsupportedValue(Object value) {
+    return new IllegalArgumentException(String.format("Property value '%s' can't be written with the '%s' write " +
+                                                        "method.", value, WriteMethod.SCRIPT.getValue()));
+  }
+
+  private String getVertexVariable(String vertexValue, String vertexClass, Map<String, String> vertexVariables,
+                                   Map<String, Map<String, Object>> vertexProperties, StringBuilder script) {
+    String variable = vertexVariables.get(vertexValue);
+    if (variable == null) {
+      variable = "v" + vertexVariables.size();
+      vertexVariables.put(vertexValue, variable);
+      String property = quoteIdentifier(vertexName);
+      String value = quoteString(vertexValue);
+      script.append("let ").append(variable).append(" = UPDATE ").append(vertexClass)
+        .append(" SET ").append(property).append(" = ").append(value);
+      Map<String, Object> properties = vertexProperties.get(vertexValue);
+      if (properties != null) {
+        appendAssignments(script.append(", "), properties, false);
+      }
+      script.append(" UPSERT RETURN AFTER @rid WHERE ").append(property).append(" = ").append(value).append('\n');
+    }
+    return variable;
+  }
+
+  /**
+   * Quotes the given class or property name as an SQL identifier. Names with backticks, which can't be escaped, are
+   * rejected by {@link OrientDBConfig#validate}.
+   */
+  private static String quoteIdentifier(String identifier) {
+    return '`' + identifier + '`';
+  }
+
+  /**
+   * Quotes the given value as an SQL string literal. Line breaks are escaped as well, since they separate the
+   * statements of a script.
+   */
+  static String quoteString(String value) {
+    StringBuilder quoted = new StringBuilder(value.length() + 2).append('\'');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          quoted.append("\\\\");
+          break;
+        case '\'':
+          quoted.append("\\'");
+          break;
+        case '\n':
+          quoted.append("\\n");
+          break;
+        case '\r':
+          quoted.append("\\r");
+          break;
+        case '\t':
+          quoted.append("\\t");
+          break;
+        default:
+          if (c < ' ') {
+            quoted.append(String.format("\\u%04x", (int) c));
+          } else {
+            quoted.append(c);
+          }
+      }
+    }
+    return quoted.append('\'').toString();
+  }
+
+  private void initializeGraph() {
+    graph = OrientDBConnections.getNoTx(connectionString, username, password, minPoolSize, maxPoolSize);
+    if (writeMode == WriteMode.MASSIVE_INSERT) {
+      graph.declareIntent(new OIntentMassiveInsert());
+    }
+    // Vertices are upserted, which leaves the selection of their cluster to OrientDB.
+    edgeCluster = lightweightEdges ? null : OrientDBGraphWriter.selectCluster(graph, edgeName, writerId);
+    batchStartTime = System.currentTimeMillis();
+  }
+
+  private void release() {
+    try {
+      if (writeMode == WriteMode.MASSIVE_INSERT) {
+        graph.declareIntent(null);
+      }
+    } finally {
+      // Returns the connection to the pool.
+      graph.shutdown();
+      graph = null;
+    }
+  }
+}
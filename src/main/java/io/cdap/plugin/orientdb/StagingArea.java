@@ -0,0 +1,228 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Stores the {@link GraphOperation}s of task attempts in a document class of the database until the attempts are
+ * committed or aborted. The operations of an attempt are stored in numbered chunks, one document per chunk, which are
+ * read back in order. Documents are tagged with the stage, job and attempt they belong to, so that several sinks and
+ * pipelines can share the class.
+ */
+public class StagingArea {
+  public static final String CLASS_NAME = "OrientDBSinkStaging";
+  private static final String INDEX_NAME = CLASS_NAME + ".attemptChunk";
+  private static final String STAGE = "stage";
+  private static final String JOB = "job";
+  private static final String ATTEMPT = "attempt";
+  private static final String CHUNK = "chunk";
+  private static final String OPERATIONS = "operations";
+  private static final String SOURCE_VERTEX = "source";
+  private static final String DESTINATION_VERTICES = "destinations";
+  private static final String EDGE_PROPERTIES = "edgeProperties";
+  private static final String VERTEX_PROPERTIES = "vertexProperties";
+
+  private final String connectionString;
+  private final String username;
+  private final String password;
+  private final String stageName;
+  private final int minPoolSize;
+  private final int maxPoolSize;
+
+  public StagingArea(Configuration hConf) {
+    this.connectionString = hConf.get(OrientDBSink.ORIENTDB_CONNECTION_STRING);
+    this.username = hConf.get(OrientDBSink.ORIENTDB_USERNAME);
+    this.password = hConf.get(OrientDBSink.ORIENTDB_PASSWORD);
+    this.stageName = hConf.get(OrientDBSink.ORIENTDB_STAGE_NAME, "");
+    this.minPoolSize = hConf.getInt(OrientDBSink.ORIENTDB_MIN_POOL_SIZE, OrientDBConfig.DEFAULT_MIN_POOL_SIZE);
+    this.maxPoolSize = hConf.getInt(OrientDBSink.ORIENTDB_MAX_POOL_SIZE, OrientDBConfig.DEFAULT_MAX_POOL_SIZE);
+  }
+
+  /**
+   * Creates the staging class and its index if they don't exist yet.
+   */
+  public static void createClass(OrientBaseGraph graph) {
+    OSchema schema = graph.getRawGraph().getMetadata().getSchema();
+    OClass stagingClass = schema.getClass(CLASS_NAME);
+    if (stagingClass == null) {
+      stagingClass = schema.createClass(CLASS_NAME);
+    }
+    for (String property : new String[] {STAGE, JOB, ATTEMPT}) {
+      if (stagingClass.getProperty(property) == null) {
+        stagingClass.createProperty(property, OType.STRING);
+      }
+    }
+    if (stagingClass.getProperty(CHUNK) == null) {
+      stagingClass.createProperty(CHUNK, OType.INTEGER);
+    }
+    if (stagingClass.getProperty(OPERATIONS) == null) {
+      stagingClass.createProperty(OPERATIONS, OType.EMBEDDEDLIST, OType.EMBEDDEDMAP);
+    }
+    if (stagingClass.getClassIndex(INDEX_NAME) == null) {
+      stagingClass.createIndex(INDEX_NAME, OClass.INDEX_TYPE.UNIQUE, STAGE, JOB, ATTEMPT, CHUNK);
+    }
+  }
+
+  /**
+   * Stores the given operations as the chunk with the given number of the given task attempt.
+   */
+  public void stage(TaskAttemptID attemptId, int chunk, List<GraphOperation> operations) {
+    List<Map<String, Object>> documents = new ArrayList<>(operations.size());
+    for (GraphOperation operation : operations) {
+      documents.add(toMap(operation));
+    }
+    OrientGraphNoTx graph = getGraph();
+    try {
+      ODocument document = new ODocument(CLASS_NAME);
+      document.field(STAGE, stageName);
+      document.field(JOB, attemptId.getJobID().toString());
+      document.field(ATTEMPT, attemptId.toString());
+      document.field(CHUNK, chunk);
+      document.field(OPERATIONS, documents, OType.EMBEDDEDLIST);
+      graph.getRawGraph().save(document);
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  /**
+   * Returns the operations of the chunk with the given number of the given task attempt, or {@code null} if the
+   * attempt has no such chunk.
+   */
+  @Nullable
+  public List<GraphOperation> read(TaskAttemptID attemptId, int chunk) {
+    OrientGraphNoTx graph = getGraph();
+    try {
+      List<ODocument> documents = graph.getRawGraph().query(
+        new OSQLSynchQuery<ODocument>(String.format("SELECT FROM %s WHERE %s = ? AND %s = ? AND %s = ? AND %s = ?",
+                                                    CLASS_NAME, STAGE, JOB, ATTEMPT, CHUNK)),
+        stageName, attemptId.getJobID().toString(), attemptId.toString(), chunk);
+      if (documents.isEmpty()) {
+        return null;
+      }
+      List<Map<String, Object>> maps = documents.get(0).field(OPERATIONS);
+      List<GraphOperation> operations = new ArrayList<>(maps.size());
+      for (Map<String, Object> map : maps) {
+        operations.add(fromMap(map));
+      }
+      return operations;
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  /**
+   * Deletes all chunks of the given task attempt and returns the number of deleted chunks.
+   */
+  public int discard(TaskAttemptID attemptId) {
+    return delete(String.format("DELETE FROM %s WHERE %s = ? AND %s = ? AND %s = ?", CLASS_NAME, STAGE, JOB, ATTEMPT),
+                  stageName, attemptId.getJobID().toString(), attemptId.toString());
+  }
+
+  /**
+   * Deletes all chunks of all task attempts of the given job and returns the number of deleted chunks.
+   */
+  public int discard(JobID jobId) {
+    return delete(String.format("DELETE FROM %s WHERE %s = ? AND %s = ?", CLASS_NAME, STAGE, JOB),
+                  stageName, jobId.toString());
+  }
+
+  private int delete(String sql, Object... args) {
+    OrientGraphNoTx graph = getGraph();
+    try {
+      ODatabaseDocument database = graph.getRawGraph();
+      // Nothing was staged if the class doesn't exist, for example because the job failed before it was created.
+      if (!database.getMetadata().getSchema().existsClass(CLASS_NAME)) {
+        return 0;
+      }
+      Number deleted = database.command(new OCommandSQL(sql)).execute(args);
+      return deleted.intValue();
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  private OrientGraphNoTx getGraph() {
+    return OrientDBConnections.getNoTx(connectionString, username, password, minPoolSize, maxPoolSize);
+  }
+
+  private static Map<String, Object> toMap(GraphOperation operation) {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put(SOURCE_VERTEX, operation.getSourceVertex());
+    map.put(DESTINATION_VERTICES, operation.getDestinationVertices());
+    if (operation.hasEdgeProperties()) {
+      List<Map<String, Object>> edgeProperties = new ArrayList<>(operation.getDestinationVertices().size());
+      for (int i = 0; i < operation.getDestinationVertices().size(); i++) {
+        edgeProperties.add(operation.getEdgeProperties(i));
+      }
+      map.put(EDGE_PROPERTIES, edgeProperties);
+    }
+    if (!operation.getVertexProperties().isEmpty()) {
+      map.put(VERTEX_PROPERTIES, operation.getVertexProperties());
+    }
+    return map;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static GraphOperation fromMap(Map<String, Object> map) {
+    Map<String, Object> vertexProperties = (Map<String, Object>) copy(map.get(VERTEX_PROPERTIES));
+    return new GraphOperation((String) map.get(SOURCE_VERTEX),
+                              (List<String>) copy(map.get(DESTINATION_VERTICES)),
+                              (List<Map<String, Object>>) copy(map.get(EDGE_PROPERTIES)),
+                              vertexProperties == null ? new LinkedHashMap<>() : vertexProperties);
+  }
+
+  /**
+   * Copies the collections of a document into plain collections, which are not tied to the document anymore and
+   * can be written to other records.
+   */
+  private static Object copy(@Nullable Object value) {
+    if (value instanceof List) {
+      List<Object> list = new ArrayList<>(((List<?>) value).size());
+      for (Object element : (List<?>) value) {
+        list.add(copy(element));
+      }
+      return list;
+    }
+    if (value instanceof Map) {
+      Map<String, Object> map = new LinkedHashMap<>();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        map.put((String) entry.getKey(), copy(entry.getValue()));
+      }
+      return map;
+    }
+    return value;
+  }
+}
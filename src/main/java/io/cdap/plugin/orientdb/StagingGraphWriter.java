@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link GraphWriter} that stores the operations of a task attempt in the {@link StagingArea} instead of writing
+ * them to the graph. Every batch of operations is stored as one chunk. The operations are written to the graph by
+ * {@link OrientDBOutputCommitter#commitTask} once the attempt is committed.
+ */
+public class StagingGraphWriter implements GraphWriter {
+  private final StagingArea stagingArea;
+  private final TaskAttemptID attemptId;
+  private final int chunkSize;
+  private final List<GraphOperation> chunk = new ArrayList<>();
+
+  private int chunks;
+
+  public StagingGraphWriter(Configuration hConf, TaskAttemptID attemptId) {
+    this.stagingArea = new StagingArea(hConf);
+    this.attemptId = attemptId;
+    int batchSize = hConf.getInt(OrientDBSink.ORIENTDB_BATCH_SIZE, OrientDBConfig.DEFAULT_BATCH_SIZE);
+    // All operations of a task are written in a single transaction anyway, don't hold them in a single document.
+    this.chunkSize = batchSize > 0 ? batchSize : OrientDBConfig.DEFAULT_BATCH_SIZE;
+  }
+
+  @Override
+  public void write(GraphOperation operation) {
+    chunk.add(operation);
+    if (chunk.size() >= chunkSize) {
+      stage();
+    }
+  }
+
+  @Override
+  public void flush() {
+    if (!chunk.isEmpty()) {
+      stage();
+    }
+  }
+
+  @Override
+  public void close() {
+    flush();
+  }
+
+  @Override
+  public void abort() {
+    // Chunks stored already are deleted when the attempt is aborted.
+    chunk.clear();
+  }
+
+  private void stage() {
+    stagingArea.stage(attemptId, chunks++, chunk);
+    chunk.clear();
+  }
+}
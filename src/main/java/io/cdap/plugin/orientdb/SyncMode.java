@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * How the out edges of the source vertices written by {@link OrientDBRecordWriter} are synchronized with the input.
+ */
+public enum SyncMode {
+  /**
+   * Missing edges are added, existing edges are never removed.
+   */
+  APPEND("append"),
+  /**
+   * The first time a source vertex is written in a run, its out edges that lead to none of the destination vertices
+   * of the record are removed. Later records of the same run only add edges, so that the out edges of every written
+   * source vertex end up being those of all its records in the run. Source vertices that aren't written are left
+   * untouched.
+   */
+  REPLACE_OUT_EDGES("replaceOutEdges");
+
+  /**
+   * Vertex property holding the run that last synchronized the out edges of a source vertex.
+   */
+  public static final String RUN_PROPERTY = "syncRun";
+
+  private final String value;
+
+  SyncMode(String value) {
+    this.value = value;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the {@link SyncMode} with the given value or {@code null} if there is none.
+   */
+  @Nullable
+  public static SyncMode fromValue(String value) {
+    for (SyncMode mode : values()) {
+      if (mode.value.equalsIgnoreCase(value)) {
+        return mode;
+      }
+    }
+    return null;
+  }
+
+  public static String getSupportedValues() {
+    return Arrays.stream(values()).map(SyncMode::getValue).collect(Collectors.joining(", "));
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.id.ORID;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+
+/**
+ * Bounded LRU cache from vertex key value to the {@link ORID} of the vertex, used by {@link OrientDBRecordWriter}
+ * to avoid looking up the same vertex over and over again. Caches with a memory budget keep their entries off the
+ * heap in an {@link OffHeapVertexMap}, which only stores hashes of the keys, so the vertex found for a cached
+ * record id must be checked to have the key looked up.
+ * Caches can be shared by writers running one after the other in the same JVM through {@link #acquire} and
+ * {@link #release}, so that writers of later micro-batches don't start cold.
+ */
+public class VertexCache {
+  // Caches released by writers that completed successfully, by the key they were acquired for.
+  private static final ConcurrentMap<String, Queue<VertexCache>> IDLE = new ConcurrentHashMap<>();
+
+  private final int maxSize;
+  private final long memoryBudget;
+  private final LruMap<String, ORID> entries;
+  @Nullable
+  private final OffHeapVertexMap offHeapEntries;
+  private final Map<String, ORID> uncommitted = new HashMap<>();
+  private long hits;
+  private long misses;
+
+  /**
+   * @param maxSize maximum number of entries held by the cache. A value of 0 disables caching.
+   */
+  public VertexCache(int maxSize) {
+    this(maxSize, 0L);
+  }
+
+  /**
+   * @param maxSize maximum number of entries held on the heap. A value of 0 disables caching.
+   * @param memoryBudget maximum number of bytes held off the heap. If positive, entries are kept off the heap and
+   *                     the maximum number of entries is given by the budget instead.
+   */
+  public VertexCache(int maxSize, long memoryBudget) {
+    this.maxSize = maxSize;
+    this.memoryBudget = memoryBudget;
+    this.offHeapEntries = maxSize > 0 && memoryBudget > 0 ? new OffHeapVertexMap(memoryBudget) : null;
+    this.entries = new LruMap<>(maxSize);
+  }
+
+  /**
+   * Returns an idle cache released for the given key, or a new cache if there is none. Caches are used by a single
+   * writer at a time, concurrent writers get caches of their own.
+   *
+   * @param key identifies the vertex class the cache holds record ids of, such as its connection string and name
+   */
+  public static VertexCache acquire(String key, int maxSize) {
+    return acquire(key, maxSize, 0L);
+  }
+
+  /**
+   * Like {@link #acquire(String, int)}, for caches with the given off-heap memory budget.
+   */
+  public static VertexCache acquire(String key, int maxSize, long memoryBudget) {
+    Queue<VertexCache> idle = IDLE.get(key);
+    VertexCache cache = idle == null ? null : idle.poll();
+    while (cache != null && (cache.maxSize != maxSize || cache.memoryBudget != memoryBudget)) {
+      cache = idle.poll();
+    }
+    return cache == null ? new VertexCache(maxSize, memoryBudget) : cache;
+  }
+
+  /**
+   * Makes the given cache available to writers acquiring a cache for the same key. Only caches of writers that
+   * committed all their vertices must be released, entries of rolled back vertices are removed anyway.
+   */
+  public static void release(String key, VertexCache cache) {
+    if (cache.maxSize == 0) {
+      return;
+    }
+    cache.removeUncommitted();
+    IDLE.computeIfAbsent(key, k -> new ConcurrentLinkedQueue<>()).add(cache);
+  }
+
+  /**
+   * Returns the {@link ORID} cached for the given key or {@code null} if the key is not cached.
+   */
+  @Nullable
+  public ORID get(String key) {
+    long packed = getPacked(key);
+    return packed == OffHeapVertexMap.NOT_FOUND ? null : RecordIds.unpack(packed);
+  }
+
+  /**
+   * Returns the record id cached for the given key packed by {@link RecordIds#pack}, or
+   * {@link OffHeapVertexMap#NOT_FOUND} if the key is not cached. Lookups don't allocate, callers unpack the record id
+   * only when they load the vertex.
+   */
+  public long getPacked(String key) {
+    if (maxSize == 0) {
+      return OffHeapVertexMap.NOT_FOUND;
+    }
+    long packed;
+    if (offHeapEntries == null) {
+      ORID rid = entries.get(key);
+      packed = rid == null ? OffHeapVertexMap.NOT_FOUND : RecordIds.pack(rid);
+    } else {
+      packed = offHeapEntries.get(key);
+    }
+    if (packed == OffHeapVertexMap.NOT_FOUND) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return packed;
+  }
+
+  /**
+   * Returns whether the given key is cached, without counting a hit or miss and without changing the eviction order.
+   */
+  public boolean contains(String key) {
+    return offHeapEntries == null ? entries.containsKey(key) : offHeapEntries.contains(key);
+  }
+
+  public void put(String key, ORID rid) {
+    if (offHeapEntries != null) {
+      offHeapEntries.put(key, RecordIds.pack(rid));
+    } else if (maxSize > 0) {
+      entries.put(key, rid);
+    }
+  }
+
+  public void remove(String key) {
+    if (offHeapEntries == null) {
+      entries.remove(key);
+    } else {
+      offHeapEntries.remove(key);
+    }
+  }
+
+  /**
+   * Caches the record id of a vertex that was created in the current transaction.
+   * The entry is removed again by {@link #removeUncommitted()} if the transaction is rolled back.
+   */
+  public void putCreated(String key, ORID rid) {
+    if (maxSize > 0) {
+      put(key, rid);
+      uncommitted.put(key, rid);
+    }
+  }
+
+  /**
+   * Marks all vertices created so far as committed. Record ids of created vertices are updated in place by OrientDB
+   * on commit, so their entries stay valid, except off the heap, where the updated ids are stored again.
+   */
+  public void markCommitted() {
+    if (offHeapEntries != null) {
+      for (Map.Entry<String, ORID> entry : uncommitted.entrySet()) {
+        offHeapEntries.put(entry.getKey(), RecordIds.pack(entry.getValue()));
+      }
+    }
+    uncommitted.clear();
+  }
+
+  /**
+   * Removes the entries of all vertices created since the last commit, they don't exist anymore after a rollback.
+   * Their record ids can't be trusted either, since a failed commit may already have assigned persistent ids.
+   */
+  public void removeUncommitted() {
+    for (String key : uncommitted.keySet()) {
+      remove(key);
+    }
+    uncommitted.clear();
+  }
+
+  public long size() {
+    return offHeapEntries == null ? entries.size() : offHeapEntries.size();
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  public long getEvictions() {
+    return offHeapEntries == null ? entries.getEvictions() : offHeapEntries.getEvictions();
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.util.bloom.BloomFilter;
+import org.apache.hadoop.util.bloom.Key;
+import org.apache.hadoop.util.hash.Hash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Bloom filter of the vertex keys that existed when a run was prepared, used by {@link OrientDBGraphWriter} to
+ * create vertices whose keys are definitely absent without looking them up first. The filter is built by
+ * {@link OrientDBSink} and sent to the tasks through the Hadoop configuration, every writer works on a copy of its own
+ * and adds the keys of the vertices it creates.
+ */
+public class VertexKeyFilter {
+  private static final Logger LOG = LoggerFactory.getLogger(VertexKeyFilter.class);
+  // Keeps the filter small enough for the Hadoop configuration, 8 MB. Larger graphs get more false positives.
+  static final int MAX_BITS = 1 << 26;
+  private static final int MIN_BITS = 64;
+  // Number of vertex keys read from OrientDB at a time while the filter is built.
+  private static final int FETCH_SIZE = 10000;
+
+  private final BloomFilter filter;
+
+  private VertexKeyFilter(BloomFilter filter) {
+    this.filter = filter;
+  }
+
+  /**
+   * Creates an empty filter sized for the given number of keys and false positive rate.
+   */
+  public static VertexKeyFilter create(long expectedKeys, double falsePositiveRate) {
+    long keys = Math.max(1L, expectedKeys);
+    double bits = Math.ceil(-keys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    int vectorSize = (int) Math.max(MIN_BITS, Math.min(MAX_BITS, bits));
+    if (bits > MAX_BITS) {
+      LOG.warn("Vertex key filter for {} keys is limited to {} bits, more than {} of the absent keys are looked up.",
+               keys, MAX_BITS, falsePositiveRate);
+    }
+    int hashes = (int) Math.max(1L, Math.round((double) vectorSize / keys * Math.log(2)));
+    return new VertexKeyFilter(new BloomFilter(vectorSize, hashes, Hash.MURMUR_HASH));
+  }
+
+  /**
+   * Builds a filter of the keys of all vertices of the given class, including its subclasses. The key of a vertex is
+   * the property named like its class. The clusters are read page by page, so that the keys are never held in memory.
+   */
+  public static VertexKeyFilter build(OrientBaseGraph graph, String vertexName, double falsePositiveRate) {
+    OClass vertexClass = graph.getRawGraph().getMetadata().getSchema().getClass(vertexName);
+    if (vertexClass == null) {
+      return create(0L, falsePositiveRate);
+    }
+    VertexKeyFilter keyFilter = create(vertexClass.count(), falsePositiveRate);
+    for (int clusterId : vertexClass.getPolymorphicClusterIds()) {
+      ORID lastRecordId = new ORecordId(clusterId, -1L);
+      while (true) {
+        String sql = String.format("SELECT @rid AS rid, `%s` AS key FROM cluster:%s WHERE @rid > %s LIMIT %d",
+                                   vertexName, graph.getRawGraph().getClusterNameById(clusterId), lastRecordId,
+                                   FETCH_SIZE);
+        List<ODocument> documents = graph.getRawGraph().query(new OSQLSynchQuery<ODocument>(sql));
+        for (ODocument document : documents) {
+          Object key = document.field("key");
+          if (key != null) {
+            keyFilter.add(key.toString());
+          }
+          lastRecordId = ((OIdentifiable) document.rawField("rid")).getIdentity();
+        }
+        if (documents.size() < FETCH_SIZE) {
+          break;
+        }
+      }
+    }
+    return keyFilter;
+  }
+
+  public void add(String key) {
+    filter.add(toKey(key));
+  }
+
+  /**
+   * Returns {@code false} if the given key definitely was not added to the filter.
+   */
+  public boolean mightContain(String key) {
+    return filter.membershipTest(toKey(key));
+  }
+
+  /**
+   * Returns the filter as a string that can be stored in the Hadoop configuration.
+   */
+  public String serialize() throws IOException {
+    DataOutputBuffer out = new DataOutputBuffer();
+    filter.write(out);
+    byte[] bytes = new byte[out.getLength()];
+    System.arraycopy(out.getData(), 0, bytes, 0, out.getLength());
+    return Base64.getEncoder().encodeToString(bytes);
+  }
+
+  /**
+   * Returns the filter serialized by {@link #serialize()}.
+   *
+   * @throws IllegalArgumentException if the given string is not a serialized filter
+   */
+  public static VertexKeyFilter deserialize(String serialized) {
+    byte[] bytes = Base64.getDecoder().decode(serialized);
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(bytes, bytes.length);
+    BloomFilter filter = new BloomFilter();
+    try {
+      filter.readFields(in);
+    } catch (IOException ex) {
+      throw new IllegalArgumentException("Invalid vertex key filter.", ex);
+    }
+    return new VertexKeyFilter(filter);
+  }
+
+  private static Key toKey(String key) {
+    return new Key(key.getBytes(StandardCharsets.UTF_8));
+  }
+}
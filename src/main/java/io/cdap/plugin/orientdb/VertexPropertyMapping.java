@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.orientdb;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Maps fields of input records to properties of the source vertex, which are written when the vertex is upserted.
+ */
+public final class VertexPropertyMapping {
+  private static final VertexPropertyMapping EMPTY = new VertexPropertyMapping(Collections.emptyMap());
+
+  // Property names by field name.
+  private final Map<String, String> properties;
+
+  private VertexPropertyMapping(Map<String, String> properties) {
+    this.properties = properties;
+  }
+
+  /**
+   * Parses a comma separated list of {@code field:property} pairs, such as {@code name:fullName,age}. A field
+   * without a property name is written to the property of the same name.
+   *
+   * @throws IllegalArgumentException if a pair is malformed or maps two fields to the same property
+   */
+  public static VertexPropertyMapping parse(@Nullable String mapping) {
+    if (mapping == null || mapping.trim().isEmpty()) {
+      return EMPTY;
+    }
+    Map<String, String> properties = new LinkedHashMap<>();
+    for (String pair : mapping.split(",")) {
+      String[] parts = pair.split(":", -1);
+      String field = parts[0].trim();
+      String property = parts.length > 1 ? parts[1].trim() : "";
+      if (parts.length > 2 || field.isEmpty()) {
+        throw new IllegalArgumentException(String.format("Invalid vertex property '%s', expected " +
+                                                           "'field:property'.", pair.trim()));
+      }
+      if (property.isEmpty()) {
+        property = field;
+      }
+      if (properties.containsValue(property)) {
+        throw new IllegalArgumentException(String.format("Vertex property '%s' is mapped more than once.",
+                                                         property));
+      }
+      properties.put(field, property);
+    }
+    return new VertexPropertyMapping(properties);
+  }
+
+  /**
+   * Returns the property names by field name.
+   */
+  public Map<String, String> getProperties() {
+    return Collections.unmodifiableMap(properties);
+  }
+
+  public boolean isEmpty() {
+    return properties.isEmpty();
+  }
+
+  /**
+   * Returns the vertex properties of the given record, converted with {@link PropertyTypes#convert}. Null fields
+   * are not written, so that they don't clear the properties of existing vertices.
+   */
+  public Map<String, Object> toProperties(StructuredRecord record) {
+    if (properties.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Schema schema = record.getSchema();
+    Map<String, Object> values = new LinkedHashMap<>();
+    for (Map.Entry<String, String> entry : properties.entrySet()) {
+      Schema.Field field = schema.getField(entry.getKey());
+      Object value = field == null ? null : PropertyTypes.convert(field.getSchema(), record.get(entry.getKey()));
+      if (value != null) {
+        values.put(entry.getValue(), value);
+      }
+    }
+    return values;
+  }
+}
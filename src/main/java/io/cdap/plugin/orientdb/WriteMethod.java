@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * How vertices and edges are sent to OrientDB.
+ */
+public enum WriteMethod {
+  /**
+   * Vertices and edges are looked up and created one by one through the Blueprints API.
+   */
+  BLUEPRINTS("blueprints"),
+  /**
+   * Every batch is compiled into a single SQL script that upserts the vertices and creates missing edges on the
+   * server, in one round trip.
+   */
+  SCRIPT("script");
+
+  private final String value;
+
+  WriteMethod(String value) {
+    this.value = value;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the {@link WriteMethod} with the given value or {@code null} if there is none.
+   */
+  @Nullable
+  public static WriteMethod fromValue(String value) {
+    for (WriteMethod method : values()) {
+      if (method.value.equalsIgnoreCase(value)) {
+        return method;
+      }
+    }
+    return null;
+  }
+
+  public static String getSupportedValues() {
+    return Arrays.stream(values()).map(WriteMethod::getValue).collect(Collectors.joining(", "));
+  }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import io.cdap.cdap.etl.api.StageContext;
+import io.cdap.cdap.etl.api.StageMetrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Counters and latency histograms of a {@link GraphWriter}, reported as metrics of the sink stage.
+ * Changes to the graph are counted as pending until the batch holding them is committed, so that batches replayed
+ * after a rollback are not counted twice. Recording doesn't allocate, metrics are reported at most every
+ * {@link #REPORT_INTERVAL_MILLIS} while writing and once more when the writer is closed. Histograms are reported as
+ * counters of their count and total time, and as gauges of their 99th percentile and maximum.
+ */
+public class WriteMetrics {
+  static final long REPORT_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+  /**
+   * Counters of a {@link GraphWriter}.
+   */
+  public enum Counter {
+    VERTICES_CREATED("vertices.created"),
+    VERTICES_FOUND("vertices.found"),
+    VERTICES_UPDATED("vertices.updated"),
+    EDGES_CREATED("edges.created"),
+    EDGES_SKIPPED("edges.skipped"),
+    EDGES_UPDATED("edges.updated"),
+    EDGES_REMOVED("edges.removed"),
+    BATCHES_COMMITTED("batches.committed"),
+    ROLLBACKS("rollbacks"),
+    RETRIES("retries"),
+    FAILURES("failures"),
+    LOOKUPS_SKIPPED("lookups.skipped");
+
+    private final String metricName;
+
+    Counter(String metricName) {
+      this.metricName = metricName;
+    }
+
+    public String getMetricName() {
+      return metricName;
+    }
+  }
+
+  // Stage metrics of the sinks initialized in this JVM by metrics key. Record writers are created by the output
+  // format, which has no access to the stage context, but they run in the same JVM as the sink.
+  private static final ConcurrentMap<String, Registration> STAGE_METRICS = new ConcurrentHashMap<>();
+  private static final Counter[] COUNTERS = Counter.values();
+
+  @Nullable
+  private final StageMetrics stageMetrics;
+  private final long[] pending = new long[COUNTERS.length];
+  private final long[] totals = new long[COUNTERS.length];
+  private final long[] reported = new long[COUNTERS.length];
+  private final LatencyHistogram lookups = new LatencyHistogram();
+  private final LatencyHistogram edgeScans = new LatencyHistogram();
+  private final LatencyHistogram commits = new LatencyHistogram();
+  // Counts and times in milliseconds of lookups, edge scans and commits reported so far.
+  private final long[] reportedLatencies = new long[6];
+  private long lastReportTime = System.currentTimeMillis();
+
+  /**
+   * @param metricsKey key of the stage metrics to report to, as returned by {@link #getKey(StageContext)}. Metrics
+   *                   are only collected if {@code null} or if no stage metrics are registered for the key.
+   */
+  public WriteMetrics(@Nullable String metricsKey) {
+    Registration registration = metricsKey == null ? null : STAGE_METRICS.get(metricsKey);
+    // Writers may report for the last time after the stage unregistered its metrics.
+    this.stageMetrics = registration == null ? null : registration.metrics;
+  }
+
+  /**
+   * Returns the key the metrics of the given stage are registered with. It identifies the run as well as the stage,
+   * so that runs of pipelines with stages of the same name don't report to each other when they share a JVM.
+   */
+  public static String getKey(StageContext context) {
+    return String.join(":", context.getNamespace(), context.getPipelineName(), context.getStageName(),
+                       Long.toString(context.getLogicalStartTime()));
+  }
+
+  /**
+   * Makes the given metrics available to the writers created in this JVM with the given key, until they are
+   * unregistered as many times as they were registered.
+   */
+  public static void register(String metricsKey, StageMetrics metrics) {
+    STAGE_METRICS.compute(metricsKey, (key, registration) -> {
+      Registration result = registration == null ? new Registration(metrics) : registration;
+      result.count++;
+      return result;
+    });
+  }
+
+  /**
+   * Releases a registration of the metrics with the given key.
+   */
+  public static void unregister(String metricsKey) {
+    STAGE_METRICS.computeIfPresent(metricsKey, (key, registration) -> --registration.count == 0 ? null : registration);
+  }
+
+  /**
+   * Returns whether stage metrics are registered with the given key.
+   */
+  static boolean isRegistered(String metricsKey) {
+    return STAGE_METRICS.containsKey(metricsKey);
+  }
+
+  /**
+   * Counts a change to the graph, which is only reported once it is committed.
+   */
+  public void incrementPending(Counter counter) {
+    pending[counter.ordinal()]++;
+  }
+
+  public void increment(Counter counter) {
+    totals[counter.ordinal()]++;
+  }
+
+  /**
+   * Adds all pending counts to the totals.
+   */
+  public void commit() {
+    for (int i = 0; i < pending.length; i++) {
+      totals[i] += pending[i];
+      pending[i] = 0;
+    }
+  }
+
+  /**
+   * Drops all pending counts.
+   */
+  public void rollback() {
+    for (int i = 0; i < pending.length; i++) {
+      pending[i] = 0;
+    }
+  }
+
+  public long get(Counter counter) {
+    return totals[counter.ordinal()];
+  }
+
+  /**
+   * Latencies of looking up vertices by key in the database.
+   */
+  public LatencyHistogram getLookups() {
+    return lookups;
+  }
+
+  /**
+   * Latencies of reading the out edges of source vertices to find existing edges.
+   */
+  public LatencyHistogram getEdgeScans() {
+    return edgeScans;
+  }
+
+  /**
+   * Latencies of committing batches.
+   */
+  public LatencyHistogram getCommits() {
+    return commits;
+  }
+
+  /**
+   * Reports the metrics if the report interval has passed since they were last reported.
+   */
+  public void maybeReport() {
+    if (System.currentTimeMillis() - lastReportTime >= REPORT_INTERVAL_MILLIS) {
+      report();
+    }
+  }
+
+  /**
+   * Reports the changes of all metrics since they were last reported.
+   */
+  public void report() {
+    lastReportTime = System.currentTimeMillis();
+    StageMetrics metrics = stageMetrics;
+    if (metrics == null) {
+      return;
+    }
+    for (Counter counter : COUNTERS) {
+      int i = counter.ordinal();
+      count(metrics, counter.getMetricName(), totals[i] - reported[i]);
+      reported[i] = totals[i];
+    }
+    reportLatencies(metrics, "lookup", lookups, 0);
+    reportLatencies(metrics, "edge.scan", edgeScans, 2);
+    reportLatencies(metrics, "commit", commits, 4);
+  }
+
+  private void reportLatencies(StageMetrics metrics, String name, LatencyHistogram histogram, int index) {
+    long millis = TimeUnit.NANOSECONDS.toMillis(histogram.getTotalNanos());
+    count(metrics, name + ".count", histogram.getCount() - reportedLatencies[index]);
+    count(metrics, name + ".time.ms", millis - reportedLatencies[index + 1]);
+    reportedLatencies[index] = histogram.getCount();
+    reportedLatencies[index + 1] = millis;
+    if (histogram.getCount() > 0) {
+      // Gauges hold the latest value reported by any writer of the stage.
+      metrics.gauge(name + ".p99.ms", TimeUnit.NANOSECONDS.toMillis(histogram.getPercentileNanos(99)));
+      metrics.gauge(name + ".max.ms", TimeUnit.NANOSECONDS.toMillis(histogram.getMaxNanos()));
+    }
+  }
+
+  private static void count(StageMetrics metrics, String name, long delta) {
+    if (delta > 0) {
+      metrics.count(name, (int) Math.min(Integer.MAX_VALUE, delta));
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder summary = new StringBuilder();
+    for (Counter counter : COUNTERS) {
+      summary.append(counter.getMetricName()).append('=').append(totals[counter.ordinal()]).append(", ");
+    }
+    return summary.append("lookups: [").append(lookups)
+      .append("], edge scans: [").append(edgeScans)
+      .append("], commits: [").append(commits).append(']')
+      .toString();
+  }
+
+  /**
+   * Stage metrics registered in this JVM and the number of times they were registered.
+   */
+  private static final class Registration {
+    private final StageMetrics metrics;
+    private int count;
+
+    private Registration(StageMetrics metrics) {
+      this.metrics = metrics;
+    }
+  }
+}
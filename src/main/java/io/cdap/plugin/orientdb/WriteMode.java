@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * How {@link OrientDBRecordWriter} writes to OrientDB.
+ */
+public enum WriteMode {
+  /**
+   * Records are written in transactions of configurable size.
+   */
+  TRANSACTIONAL("transactional"),
+  /**
+   * Every operation is written immediately, without a transaction.
+   */
+  NON_TRANSACTIONAL("nonTransactional"),
+  /**
+   * Like {@link #NON_TRANSACTIONAL}, additionally declaring the massive insert intent. Meant for initial loads of
+   * empty databases.
+   */
+  MASSIVE_INSERT("massiveInsert");
+
+  private final String value;
+
+  WriteMode(String value) {
+    this.value = value;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the {@link WriteMode} with the given value or {@code null} if there is none.
+   */
+  @Nullable
+  public static WriteMode fromValue(String value) {
+    for (WriteMode mode : values()) {
+      if (mode.value.equalsIgnoreCase(value)) {
+        return mode;
+      }
+    }
+    return null;
+  }
+
+  public static String getSupportedValues() {
+    return Arrays.stream(values()).map(WriteMode::getValue).collect(Collectors.joining(", "));
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * Tests for {@link EdgePropertyMerge}.
+ */
+public class EdgePropertyMergeTest {
+
+  @Test
+  public void testParse() {
+    Map<String, EdgePropertyMerge> merges = EdgePropertyMerge.parse(" weight:SUM , updated:max");
+    Assert.assertEquals(2, merges.size());
+    Assert.assertEquals(EdgePropertyMerge.SUM, merges.get("weight"));
+    Assert.assertEquals(EdgePropertyMerge.MAX, merges.get("updated"));
+    Assert.assertTrue(EdgePropertyMerge.parse(null).isEmpty());
+    Assert.assertTrue(EdgePropertyMerge.parse("").isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseMalformed() {
+    EdgePropertyMerge.parse("weight");
+  }
+
+  @Test
+  public void testMerge() {
+    Assert.assertEquals(5L, EdgePropertyMerge.SUM.merge(2L, 3L));
+    Assert.assertEquals(3, EdgePropertyMerge.SUM.merge(null, 3));
+    Assert.assertEquals(2.5d, EdgePropertyMerge.SUM.merge(1d, 1.5d));
+    Assert.assertEquals(7L, EdgePropertyMerge.MAX.merge(7L, 3L));
+    Assert.assertEquals(9L, EdgePropertyMerge.MAX.merge(7L, 9L));
+    // Existing values are converted to the type of the new value.
+    Assert.assertEquals(7L, EdgePropertyMerge.MAX.merge(7, 3L));
+    Assert.assertEquals("b", EdgePropertyMerge.OVERWRITE.merge("a", "b"));
+    Assert.assertEquals(3L, EdgePropertyMerge.OVERWRITE.merge(7L, 3L));
+  }
+}
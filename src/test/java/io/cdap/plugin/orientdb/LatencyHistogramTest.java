@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+  @Test
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    Assert.assertEquals(0, histogram.getPercentileNanos(99));
+
+    for (int i = 0; i < 98; i++) {
+      histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+    }
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+    histogram.record(TimeUnit.SECONDS.toNanos(2));
+
+    Assert.assertEquals(100, histogram.getCount());
+    Assert.assertEquals(TimeUnit.SECONDS.toNanos(2), histogram.getMaxNanos());
+    // Percentiles are rounded up to the next power of two microseconds.
+    Assert.assertEquals(TimeUnit.MICROSECONDS.toNanos(128), histogram.getPercentileNanos(50));
+    Assert.assertEquals(TimeUnit.MICROSECONDS.toNanos(16384), histogram.getPercentileNanos(99));
+    Assert.assertEquals(TimeUnit.SECONDS.toNanos(2), histogram.getPercentileNanos(100));
+  }
+
+  @Test
+  public void testOutOfRange() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-1);
+    histogram.record(0);
+    histogram.record(Long.MAX_VALUE);
+
+    Assert.assertEquals(3, histogram.getCount());
+    Assert.assertEquals(TimeUnit.MICROSECONDS.toNanos(1), histogram.getPercentileNanos(50));
+    Assert.assertEquals(Long.MAX_VALUE, histogram.getPercentileNanos(100));
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.id.ORecordId;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link LongHashSet}.
+ */
+public class LongHashSetTest {
+
+  @Test
+  public void testAddAndContains() {
+    LongHashSet set = new LongHashSet();
+    for (long i = 0; i < 10000; i++) {
+      Assert.assertTrue(set.add(i * 31));
+    }
+    for (long i = 0; i < 10000; i++) {
+      Assert.assertFalse(set.add(i * 31));
+      Assert.assertTrue(set.contains(i * 31));
+      Assert.assertFalse(set.contains(i * 31 + 1));
+    }
+    Assert.assertEquals(10000, set.size());
+
+    set.clear();
+    Assert.assertEquals(0, set.size());
+    Assert.assertFalse(set.contains(0));
+    Assert.assertFalse(set.contains(31));
+  }
+
+  @Test
+  public void testPackedRecordIds() {
+    LongHashSet set = new LongHashSet();
+    Assert.assertTrue(set.add(RecordIds.pack(new ORecordId(0, 0))));
+    Assert.assertTrue(set.add(RecordIds.pack(new ORecordId(9, 1))));
+    Assert.assertTrue(set.add(RecordIds.pack(new ORecordId(10, 1))));
+    // Temporary record ids of vertices created in the current transaction.
+    Assert.assertTrue(set.add(RecordIds.pack(new ORecordId(9, -2))));
+    Assert.assertTrue(set.add(RecordIds.pack(new ORecordId(-1, -2))));
+
+    Assert.assertTrue(set.contains(RecordIds.pack(new ORecordId(0, 0))));
+    Assert.assertTrue(set.contains(RecordIds.pack(new ORecordId(9, -2))));
+    Assert.assertFalse(set.contains(RecordIds.pack(new ORecordId(9, 2))));
+    Assert.assertEquals(5, set.size());
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link LruMap}.
+ */
+public class LruMapTest {
+
+  @Test
+  public void testEvictLeastRecentlyUsed() {
+    LruMap<String, Integer> map = new LruMap<>(2);
+    map.put("a", 1);
+    map.put("b", 2);
+    map.get("a");
+    map.put("c", 3);
+
+    Assert.assertEquals(2, map.size());
+    Assert.assertTrue(map.containsKey("a"));
+    Assert.assertFalse(map.containsKey("b"));
+    Assert.assertEquals(1L, map.getEvictions());
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.id.ORecordId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link OffHeapVertexMap}.
+ */
+public class OffHeapVertexMapTest {
+
+  @Test
+  public void testPutAndGet() {
+    OffHeapVertexMap map = new OffHeapVertexMap(256 * 1024);
+    for (int i = 0; i < 10000; i++) {
+      map.put("v" + i, i);
+    }
+    map.put("v0", 42);
+    for (int i = 1; i < 10000; i++) {
+      Assert.assertEquals(i, map.get("v" + i));
+      Assert.assertTrue(map.contains("v" + i));
+    }
+    Assert.assertEquals(42, map.get("v0"));
+    Assert.assertEquals(OffHeapVertexMap.NOT_FOUND, map.get("v10000"));
+    Assert.assertFalse(map.contains("v10000"));
+    Assert.assertEquals(10000, map.size());
+    Assert.assertEquals(0, map.getEvictions());
+  }
+
+  @Test
+  public void testRemove() {
+    // A small map, so that entries collide and are shifted back when others are removed.
+    OffHeapVertexMap map = new OffHeapVertexMap(64 * 16);
+    for (int i = 0; i < 48; i++) {
+      map.put("v" + i, i);
+    }
+    for (int i = 0; i < 48; i += 2) {
+      map.remove("v" + i);
+    }
+    map.remove("v48");
+    for (int i = 0; i < 48; i++) {
+      Assert.assertEquals(i % 2 == 0 ? OffHeapVertexMap.NOT_FOUND : i, map.get("v" + i));
+    }
+    Assert.assertEquals(24, map.size());
+  }
+
+  @Test
+  public void testEviction() {
+    OffHeapVertexMap map = new OffHeapVertexMap(64 * 16);
+    for (int i = 0; i < 48; i++) {
+      map.put("v" + i, i);
+    }
+    // All entries were used, so the clock hand passes all of them once before evicting one.
+    map.put("v48", 48);
+    // Entries read afterwards get a second chance, the next entries evicted were not used since.
+    List<Integer> read = new ArrayList<>();
+    for (int i = 0; i < 16; i++) {
+      if (map.get("v" + i) != OffHeapVertexMap.NOT_FOUND) {
+        read.add(i);
+      }
+    }
+    for (int i = 49; i < 64; i++) {
+      map.put("v" + i, i);
+    }
+
+    Assert.assertEquals(48, map.size());
+    Assert.assertEquals(16, map.getEvictions());
+    Assert.assertTrue(read.size() >= 15);
+    for (int i : read) {
+      Assert.assertEquals(i, map.get("v" + i));
+    }
+    for (int i = 48; i < 64; i++) {
+      Assert.assertEquals(i, map.get("v" + i));
+    }
+  }
+
+  @Test
+  public void testPackedRecordIds() {
+    OffHeapVertexMap map = new OffHeapVertexMap(1024);
+    map.put("Jon", RecordIds.pack(new ORecordId(0, 0)));
+    // Temporary record id of a vertex created in the current transaction.
+    map.put("Nitin", RecordIds.pack(new ORecordId(9, -2)));
+    map.put("Vikram", RecordIds.pack(new ORecordId(32767, 0xFFFFFFFFFFL)));
+
+    Assert.assertEquals(new ORecordId(0, 0), RecordIds.unpack(map.get("Jon")));
+    Assert.assertEquals(new ORecordId(9, -2), RecordIds.unpack(map.get("Nitin")));
+    Assert.assertEquals(new ORecordId(32767, 0xFFFFFFFFFFL), RecordIds.unpack(map.get("Vikram")));
+  }
+}
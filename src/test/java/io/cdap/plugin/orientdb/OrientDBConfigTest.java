@@ -20,6 +20,16 @@ public class OrientDBConfigTest {
                                     Schema.nullableOf(Schema.arrayOf(Schema.nullableOf(Schema.of(Schema.Type.STRING
                                     ))))));
 
+  private static final Schema EDGE_RECORD_SCHEMA =
+    Schema.recordOf("schema",
+                    Schema.Field.of("MyV", Schema.of(Schema.Type.STRING)),
+                    Schema.Field.of("MyE", Schema.arrayOf(Schema.recordOf(
+                      "edge",
+                      Schema.Field.of("target", Schema.of(Schema.Type.STRING)),
+                      Schema.Field.of("weight", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+                      Schema.Field.of("updated", Schema.of(Schema.Type.DOUBLE)),
+                      Schema.Field.of("source", Schema.of(Schema.Type.STRING))))));
+
   private static final OrientDBConfig VALID_CONFIG = new OrientDBConfig(
     "OrientDBSource",
     null,
@@ -97,6 +107,400 @@ public class OrientDBConfigTest {
     assertValidationFailed(failureCollector, OrientDBConfig.EDGE);
   }
 
+  @Test
+  public void testNegativeVertexCacheSize() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setVertexCacheSize(-1)
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.VERTEX_CACHE_SIZE);
+  }
+
+  @Test
+  public void testNegativeBatchSize() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setBatchSize(-1)
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.BATCH_SIZE);
+  }
+
+  @Test
+  public void testNegativeCommitInterval() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setCommitInterval(-1L)
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.COMMIT_INTERVAL);
+  }
+
+  @Test
+  public void testInvalidWriteMode() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setWriteMode("bulk")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.WRITE_MODE);
+  }
+
+  @Test
+  public void testInvalidVertexIndexType() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setVertexIndexType("FULLTEXT")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.VERTEX_INDEX_TYPE);
+  }
+
+  @Test
+  public void testInvalidMaxPoolSize() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setMinPoolSize(0)
+      .setMaxPoolSize(0)
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.MAX_POOL_SIZE);
+  }
+
+  @Test
+  public void testWriterThreadsExceedPoolSize() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setMaxPoolSize(2)
+      .setWriterThreads(4)
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.WRITER_THREADS);
+  }
+
+  @Test
+  public void testWriterThreadsRequireUniqueIndex() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setWriterThreads(2)
+      .setVertexIndexType("NOTUNIQUE_HASH_INDEX")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testNegativeWriteClusters() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setWriteClusters(-1)
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.WRITE_CLUSTERS);
+  }
+
+  @Test
+  public void testReplaceOutEdgesWithScript() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setSyncMode(SyncMode.REPLACE_OUT_EDGES.getValue())
+      .setWriteMethod(WriteMethod.SCRIPT.getValue())
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testInvalidSyncMode() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setSyncMode("replace")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.SYNC_MODE);
+  }
+
+  @Test
+  public void testInvalidKeyFilterFalsePositiveRate() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setKeyFilterFalsePositiveRate(1d)
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.KEY_FILTER_FALSE_POSITIVE_RATE);
+  }
+
+  @Test
+  public void testKeyFilterWithoutUniqueIndex() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setKeyFilterFalsePositiveRate(0.01d)
+      .setVertexIndexType("NOTUNIQUE_HASH_INDEX")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testNegativeLookupBatchSize() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setLookupBatchSize(-1)
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.LOOKUP_BATCH_SIZE);
+  }
+
+  @Test
+  public void testNegativeOffHeapVertexCacheSize() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setOffHeapVertexCacheSize(-1)
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.OFF_HEAP_VERTEX_CACHE_SIZE);
+  }
+
+  @Test
+  public void testOffHeapVertexCacheOfScripts() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setOffHeapVertexCacheSize(16)
+      .setWriteMethod(WriteMethod.SCRIPT.getValue())
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testBacktickInScriptIdentifier() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setWriteMethod(WriteMethod.SCRIPT.getValue())
+      .setVertexProperties("MyV:my`name")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+
+    // Blueprints doesn't quote names.
+    failureCollector = new MockFailureCollector(MOCK_STAGE);
+    OrientDBConfig.builder(config).setWriteMethod(WriteMethod.BLUEPRINTS.getValue()).build()
+      .validate(failureCollector, VALID_SCHEMA);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+  }
+
+  @Test
+  public void testInvalidWriteMethod() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setWriteMethod("gremlin")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.WRITE_METHOD);
+  }
+
+  @Test
+  public void testInvalidCommitMode() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setCommitMode("twoPhase")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.COMMIT_MODE);
+  }
+
+  @Test
+  public void testStagedCommitsInSingleTransaction() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setCommitMode(CommitMode.STAGED.getValue())
+      .setBatchSize(0)
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testScriptWriteMethodRequiresUniqueIndex() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setWriteMethod(WriteMethod.SCRIPT.getValue())
+      .setVertexIndexType(OrientDBConfig.NO_INDEX)
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testEdgeRecords() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    OrientDBConfig.builder(VALID_CONFIG)
+      .setEdgePropertyMerge("weight:sum, updated:max, source:overwrite")
+      .build()
+      .validate(failureCollector, EDGE_RECORD_SCHEMA);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+  }
+
+  @Test
+  public void testSumMergeWithoutTransactions() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setEdgePropertyMerge("weight:sum, updated:max")
+      .setWriteMode(WriteMode.NON_TRANSACTIONAL.getValue())
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, EDGE_RECORD_SCHEMA);
+    Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testSumMergeWithStagedCommits() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setEdgePropertyMerge("weight:sum, updated:max")
+      .setCommitMode(CommitMode.STAGED.getValue())
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, EDGE_RECORD_SCHEMA);
+    Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testEdgeTargetFieldAbsent() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setEdgeTargetField("destination")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, EDGE_RECORD_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.EDGE_TARGET_FIELD);
+  }
+
+  @Test
+  public void testInvalidEdgePropertyMerge() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setEdgePropertyMerge("weight:avg")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, EDGE_RECORD_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.EDGE_PROPERTY_MERGE);
+  }
+
+  @Test
+  public void testSumOfNonNumericEdgeProperty() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setEdgePropertyMerge("source:sum")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, EDGE_RECORD_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.EDGE_PROPERTY_MERGE);
+  }
+
+  @Test
+  public void testEdgePropertyMergeOfStringEdges() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setEdgePropertyMerge("weight:sum")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.EDGE_PROPERTY_MERGE);
+  }
+
+  @Test
+  public void testLightweightEdgesWithEdgeProperties() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setLightweightEdges(true)
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+    config.validate(failureCollector, EDGE_RECORD_SCHEMA);
+    Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testVertexProperties() {
+    Schema schema =
+      Schema.recordOf("schema",
+                      Schema.Field.of("MyV", Schema.of(Schema.Type.STRING)),
+                      Schema.Field.of("MyE", Schema.arrayOf(Schema.of(Schema.Type.STRING))),
+                      Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                      Schema.Field.of("born", Schema.of(Schema.LogicalType.DATE)),
+                      Schema.Field.of("tags", Schema.arrayOf(Schema.of(Schema.Type.STRING))));
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setVertexProperties("name:fullName, born, tags")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, schema);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+  }
+
+  @Test
+  public void testVertexPropertyFieldAbsent() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setVertexProperties("name")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.VERTEX_PROPERTIES);
+  }
+
+  @Test
+  public void testReservedVertexProperty() {
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setVertexProperties("MyE:MyV")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, VALID_SCHEMA);
+    assertValidationFailed(failureCollector, OrientDBConfig.VERTEX_PROPERTIES);
+  }
+
+  @Test
+  public void testUnsupportedVertexPropertyType() {
+    Schema schema =
+      Schema.recordOf("schema",
+                      Schema.Field.of("MyV", Schema.of(Schema.Type.STRING)),
+                      Schema.Field.of("MyE", Schema.arrayOf(Schema.of(Schema.Type.STRING))),
+                      Schema.Field.of("scores", Schema.mapOf(Schema.of(Schema.Type.LONG),
+                                                             Schema.of(Schema.Type.LONG))));
+    OrientDBConfig config = OrientDBConfig.builder(VALID_CONFIG)
+      .setVertexProperties("scores")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector, schema);
+    assertValidationFailed(failureCollector, OrientDBConfig.VERTEX_PROPERTIES);
+  }
+
   private static void assertValidationFailed(MockFailureCollector failureCollector, String paramName) {
     List<ValidationFailure> failureList = failureCollector.getValidationFailures();
 
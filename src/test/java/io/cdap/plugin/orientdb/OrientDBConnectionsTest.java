@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.function.Function;
+
+/**
+ * Tests for {@link OrientDBConnections}.
+ */
+public class OrientDBConnectionsTest {
+
+  @ClassRule
+  public static final OrientDBTestServer SERVER = new OrientDBTestServer();
+
+  @Test
+  public void testFailedConnection() throws Exception {
+    String connectionString = SERVER.createDatabase("failedConnection");
+    try {
+      OrientDBConnections.getNoTx(connectionString, OrientDBTestServer.USER, "wrong", 1, 1);
+      Assert.fail("Authenticated with a wrong password.");
+    } catch (RuntimeException expected) {
+      // The pool of a connection that can't be established is not kept.
+    }
+    Assert.assertFalse(OrientDBConnections.isPooled(connectionString, OrientDBTestServer.USER, "wrong"));
+  }
+
+  @Test
+  public void testFailureOfPoolInUse() throws Exception {
+    String connectionString = SERVER.createDatabase("poolInUse");
+    OrientDBConnections.getNoTx(connectionString, OrientDBTestServer.USER, OrientDBTestServer.PASSWORD, 1, 2)
+      .shutdown();
+    Function<OrientGraphFactory, Object> failing = factory -> {
+      throw new IllegalStateException("Transient failure");
+    };
+    try {
+      OrientDBConnections.acquire(connectionString, OrientDBTestServer.USER, OrientDBTestServer.PASSWORD, 1, 2,
+                                  failing);
+      Assert.fail("Acquired a graph from a failing pool.");
+    } catch (IllegalStateException expected) {
+      // Graphs of the pool may still be used by other threads, so the pool is kept.
+    }
+    Assert.assertTrue(OrientDBConnections.isPooled(connectionString, OrientDBTestServer.USER,
+                                                   OrientDBTestServer.PASSWORD));
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientEdgeType;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import com.tinkerpop.blueprints.impls.orient.OrientVertexType;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.mock.validation.MockFailureCollector;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.task.JobContextImpl;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link OrientDBInputFormat}, reading vertices and edges of a class spread over several clusters from an
+ * {@link OrientDBTestServer} and verifying that every record is read exactly once.
+ */
+public class OrientDBInputFormatTest {
+  private static final String DATABASE = "source";
+  private static final String VERTEX = "person";
+  private static final String EDGE = "follows";
+  private static final int VERTICES = 250;
+  // Vertices deleted after all vertices were created, which leaves gaps in the clusters.
+  private static final Set<Integer> DELETED = new HashSet<>(Arrays.asList(0, 17, 100, 101, 249));
+
+  @ClassRule
+  public static final OrientDBTestServer SERVER = new OrientDBTestServer();
+
+  private static String connectionString;
+
+  @BeforeClass
+  public static void createGraph() throws Exception {
+    connectionString = SERVER.createDatabase(DATABASE);
+    OrientGraphNoTx graph = SERVER.openGraph(DATABASE);
+    try {
+      OrientVertexType vertexType = graph.createVertexType(VERTEX);
+      vertexType.addCluster(VERTEX + "_2");
+      vertexType.createProperty("name", OType.STRING);
+      vertexType.createProperty("age", OType.INTEGER);
+      vertexType.createProperty("born", OType.DATE);
+      vertexType.createProperty("tags", OType.EMBEDDEDLIST, OType.STRING);
+      vertexType.createProperty("payload", OType.EMBEDDED);
+      OrientEdgeType edgeType = graph.createEdgeType(EDGE);
+      edgeType.createProperty("weight", OType.LONG);
+
+      List<Vertex> vertices = new ArrayList<>();
+      for (int i = 0; i < VERTICES; i++) {
+        vertices.add(graph.addVertex("class:" + VERTEX, "name", "p" + i, "age", i,
+                                     "born", new Date(TimeUnit.DAYS.toMillis(i)), "tags", Arrays.asList("t", "p" + i)));
+        if (i > 0) {
+          graph.addEdge("class:" + EDGE, vertices.get(i - 1), vertices.get(i), EDGE).setProperty("weight", (long) i);
+        }
+      }
+      for (int i : DELETED) {
+        graph.removeVertex(vertices.get(i));
+      }
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  @Test
+  public void testReadVertices() throws Exception {
+    Schema schema = inferSchema(VERTEX, "rid");
+    Assert.assertEquals(Arrays.asList("rid", "age", "born", "name", "tags"),
+                        schema.getFields().stream().map(Schema.Field::getName).collect(Collectors.toList()));
+
+    List<StructuredRecord> records = read(VERTEX, schema, "rid", 40, 7);
+    Map<String, StructuredRecord> byName = new HashMap<>();
+    for (StructuredRecord record : records) {
+      Assert.assertNull("Read twice: " + record.get("name"), byName.put(record.get("name"), record));
+    }
+    Assert.assertEquals(VERTICES - DELETED.size(), byName.size());
+    for (int i = 0; i < VERTICES; i++) {
+      StructuredRecord record = byName.get("p" + i);
+      Assert.assertEquals(DELETED.contains(i), record == null);
+      if (record != null) {
+        Assert.assertEquals(Integer.valueOf(i), record.get("age"));
+        Assert.assertEquals(Integer.valueOf(i), record.get("born"));
+        Assert.assertEquals(Arrays.asList("t", "p" + i), record.get("tags"));
+        Assert.assertTrue(((String) record.get("rid")).startsWith("#"));
+      }
+    }
+  }
+
+  @Test
+  public void testReadEdges() throws Exception {
+    Map<String, String> names = new HashMap<>();
+    for (StructuredRecord record : read(VERTEX, inferSchema(VERTEX, "rid"), "rid", 1000, 1000)) {
+      names.put(record.get("rid"), record.get("name"));
+    }
+
+    Schema schema = inferSchema(EDGE, null);
+    Assert.assertEquals(Arrays.asList("weight", "out", "in"),
+                        schema.getFields().stream().map(Schema.Field::getName).collect(Collectors.toList()));
+    Set<String> edges = new HashSet<>();
+    for (StructuredRecord record : read(EDGE, schema, null, 30, 1000)) {
+      String out = names.get(record.<String>get("out"));
+      String in = names.get(record.<String>get("in"));
+      Assert.assertEquals("p" + record.<Long>get("weight"), in);
+      Assert.assertTrue(edges.add(out + "->" + in));
+    }
+    Set<String> expected = new HashSet<>();
+    for (int i = 1; i < VERTICES; i++) {
+      if (!DELETED.contains(i - 1) && !DELETED.contains(i)) {
+        expected.add("p" + (i - 1) + "->p" + i);
+      }
+    }
+    Assert.assertEquals(expected, edges);
+  }
+
+  @Test
+  public void testMissingClass() {
+    OrientDBSourceConfig config = OrientDBSourceConfig.builder().setReferenceName("source").setClassName("missing")
+      .build();
+    MockFailureCollector failureCollector = new MockFailureCollector("mockStage");
+    OrientGraphNoTx graph = SERVER.openGraph(DATABASE);
+    try {
+      Assert.assertNull(config.inferSchema(graph, failureCollector));
+    } finally {
+      graph.shutdown();
+    }
+    Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+  }
+
+  private static Schema inferSchema(String className, String recordIdField) {
+    OrientDBSourceConfig config = OrientDBSourceConfig.builder()
+      .setReferenceName("source")
+      .setClassName(className)
+      .setRecordIdField(recordIdField)
+      .build();
+    MockFailureCollector failureCollector = new MockFailureCollector("mockStage");
+    OrientGraphNoTx graph = SERVER.openGraph(DATABASE);
+    try {
+      Schema schema = config.inferSchema(graph, failureCollector);
+      Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+      return schema;
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  private static List<StructuredRecord> read(String className, Schema schema, String recordIdField, long splitSize,
+                                             int fetchSize) throws Exception {
+    Configuration hConf = new Configuration(false);
+    hConf.set(OrientDBSink.ORIENTDB_CONNECTION_STRING, connectionString);
+    hConf.set(OrientDBSink.ORIENTDB_USERNAME, OrientDBTestServer.USER);
+    hConf.set(OrientDBSink.ORIENTDB_PASSWORD, OrientDBTestServer.PASSWORD);
+    hConf.set(OrientDBSource.ORIENTDB_CLASS, className);
+    hConf.set(OrientDBSource.ORIENTDB_SCHEMA, schema.toString());
+    if (recordIdField != null) {
+      hConf.set(OrientDBSource.ORIENTDB_RECORD_ID_FIELD, recordIdField);
+    }
+    hConf.setLong(OrientDBSource.ORIENTDB_SPLIT_SIZE, splitSize);
+    hConf.setInt(OrientDBSource.ORIENTDB_FETCH_SIZE, fetchSize);
+
+    OrientDBInputFormat inputFormat = new OrientDBInputFormat();
+    JobContext jobContext = new JobContextImpl(hConf, new JobID("1", 1));
+    List<InputSplit> splits = inputFormat.getSplits(jobContext);
+    // Both clusters of the class, each divided by the split size.
+    Assert.assertTrue(splits.size() >= 2);
+
+    List<StructuredRecord> records = new ArrayList<>();
+    for (int i = 0; i < splits.size(); i++) {
+      OrientDBInputSplit split = copy((OrientDBInputSplit) splits.get(i));
+      TaskAttemptContext context = new TaskAttemptContextImpl(hConf, new TaskAttemptID("1", 1, TaskType.MAP, i, 0));
+      OrientDBRecordReader reader = new OrientDBRecordReader();
+      reader.initialize(split, context);
+      try {
+        while (reader.nextKeyValue()) {
+          records.add(reader.getCurrentValue());
+        }
+        Assert.assertEquals(1f, reader.getProgress(), 0f);
+      } finally {
+        reader.close();
+      }
+    }
+    return records;
+  }
+
+  /**
+   * Copies the given split like Hadoop does when sending it to a task.
+   */
+  private static OrientDBInputSplit copy(OrientDBInputSplit split) throws Exception {
+    DataOutputBuffer out = new DataOutputBuffer();
+    split.write(out);
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(out.getData(), out.getLength());
+    OrientDBInputSplit copy = new OrientDBInputSplit();
+    copy.readFields(in);
+    return copy;
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import com.tinkerpop.blueprints.impls.orient.OrientVertexType;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.task.JobContextImpl;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link OrientDBOutputCommitter}, committing and aborting staged task attempts against an
+ * {@link OrientDBTestServer}.
+ */
+public class OrientDBOutputCommitterTest {
+  private static final String VERTEX = "person";
+  private static final String EDGE = "follows";
+  private static final Schema EDGE_SCHEMA = Schema.recordOf(
+    "edge",
+    Schema.Field.of(OrientDBConfig.DEFAULT_EDGE_TARGET_FIELD, Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("weight", Schema.of(Schema.Type.LONG)));
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of(VERTEX, Schema.of(Schema.Type.STRING)),
+    Schema.Field.of(EDGE, Schema.arrayOf(EDGE_SCHEMA)),
+    Schema.Field.of("balance", Schema.decimalOf(10, 2)),
+    Schema.Field.of("updated", Schema.of(Schema.LogicalType.TIMESTAMP_MILLIS)));
+
+  @ClassRule
+  public static final OrientDBTestServer SERVER = new OrientDBTestServer();
+
+  @Test
+  public void testCommitStagedAttempts() throws Exception {
+    for (WriteMethod writeMethod : WriteMethod.values()) {
+      String database = "staged" + writeMethod.name();
+      Configuration hConf = createConfiguration(database, writeMethod);
+      OrientDBOutputCommitter committer = new OrientDBOutputCommitter();
+      JobContext jobContext = new JobContextImpl(hConf, new TaskAttemptID("1", 1, TaskType.MAP, 0, 0).getJobID());
+
+      // Speculative attempts of the first task and an attempt of the second task that gets lost.
+      TaskAttemptContext slowAttempt = writeAttempt(hConf, 0, 0, record("Jon", "Nitin", 2L), record("Jon", "Sree", 1L),
+                                                    record("Nitin", "Sree", 4L));
+      TaskAttemptContext fastAttempt = writeAttempt(hConf, 0, 1, record("Jon", "Nitin", 2L), record("Jon", "Sree", 1L),
+                                                    record("Nitin", "Sree", 4L));
+      writeAttempt(hConf, 1, 0, record("Sree", "Jon", 8L));
+
+      OrientGraphNoTx graph = SERVER.openGraph(database);
+      try {
+        Assert.assertTrue(committer.needsTaskCommit(fastAttempt));
+        Assert.assertEquals(0L, graph.countVertices(VERTEX));
+        // Two chunks of the batch size for each of the speculative attempts, one chunk for the lost attempt.
+        Assert.assertEquals(5, query(graph, "SELECT FROM " + StagingArea.CLASS_NAME).size());
+
+        committer.commitTask(fastAttempt);
+        committer.abortTask(slowAttempt);
+        Assert.assertEquals(1, query(graph, "SELECT FROM " + StagingArea.CLASS_NAME).size());
+        committer.commitJob(jobContext);
+        Assert.assertEquals(0, query(graph, "SELECT FROM " + StagingArea.CLASS_NAME).size());
+
+        Map<String, Long> weights = new HashMap<>();
+        for (ODocument edge : query(graph, String.format("SELECT out.%s AS source, in.%s AS target, weight FROM %s",
+                                                         VERTEX, VERTEX, EDGE))) {
+          weights.put(edge.field("source") + "->" + edge.field("target"), edge.field("weight"));
+        }
+        Map<String, Long> expected = new HashMap<>();
+        expected.put("Jon->Nitin", 2L);
+        expected.put("Jon->Sree", 1L);
+        expected.put("Nitin->Sree", 4L);
+        Assert.assertEquals(expected, weights);
+
+        ODocument jon = query(graph, String.format("SELECT FROM %s WHERE %s = 'Jon'", VERTEX, VERTEX)).get(0);
+        Assert.assertEquals(0, new BigDecimal("1.50").compareTo(jon.field("balance")));
+        Assert.assertEquals(new Date(1000L), jon.field("updated"));
+        Assert.assertEquals(3L, graph.countVertices(VERTEX));
+      } finally {
+        graph.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void testFailedCommitReleasesConnection() throws Exception {
+    Configuration hConf = createConfiguration("failedCommit", WriteMethod.BLUEPRINTS);
+    hConf.setInt(OrientDBSink.ORIENTDB_MAX_POOL_SIZE, 1);
+    OrientGraphNoTx graph = SERVER.openGraph("failedCommit");
+    try {
+      // The staged records don't have the property, so that their vertices can't be created.
+      graph.getVertexType(VERTEX).createProperty("age", OType.INTEGER).setMandatory(true);
+    } finally {
+      graph.shutdown();
+    }
+    TaskAttemptContext attempt = writeAttempt(hConf, 0, 0, record("Jon", "Nitin", 2L), record("Jon", "Sree", 1L),
+                                              record("Nitin", "Sree", 4L));
+
+    // Pooled connections are bound to threads, the committer and the next user run in threads of their own.
+    ExecutorService failing = Executors.newSingleThreadExecutor();
+    ExecutorService next = Executors.newSingleThreadExecutor();
+    try {
+      try {
+        failing.submit(() -> {
+          new OrientDBOutputCommitter().commitTask(attempt);
+          return null;
+        }).get();
+        Assert.fail("Expected the commit to fail.");
+      } catch (ExecutionException ex) {
+        Assert.assertTrue(ex.getCause() instanceof IOException);
+      }
+
+      // Waits for the single connection of the pool forever if the committer didn't return it.
+      next.submit(() -> {
+        Assert.assertEquals(2, new StagingArea(hConf).discard(attempt.getTaskAttemptID()));
+        return null;
+      }).get(1, TimeUnit.MINUTES);
+    } finally {
+      failing.shutdownNow();
+      next.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testDirect() throws Exception {
+    Configuration hConf = createConfiguration("direct", WriteMethod.BLUEPRINTS);
+    hConf.setEnum(OrientDBSink.ORIENTDB_COMMIT_MODE, CommitMode.DIRECT);
+    TaskAttemptContext attempt = writeAttempt(hConf, 0, 0, record("Jon", "Nitin", 2L));
+
+    OrientGraphNoTx graph = SERVER.openGraph("direct");
+    try {
+      Assert.assertFalse(new OrientDBOutputCommitter().needsTaskCommit(attempt));
+      Assert.assertEquals(2L, graph.countVertices(VERTEX));
+      Assert.assertEquals(0, query(graph, "SELECT FROM " + StagingArea.CLASS_NAME).size());
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  private static Configuration createConfiguration(String database, WriteMethod writeMethod) throws Exception {
+    String connectionString = SERVER.createDatabase(database);
+    OrientGraphNoTx graph = SERVER.openGraph(database);
+    try {
+      // Created like the sink does.
+      OrientVertexType vertexType = graph.createVertexType(VERTEX);
+      vertexType.createProperty(VERTEX, OType.STRING);
+      vertexType.createIndex(VERTEX + "." + VERTEX, OClass.INDEX_TYPE.UNIQUE_HASH_INDEX, VERTEX);
+      vertexType.createProperty("balance", OType.DECIMAL);
+      vertexType.createProperty("updated", OType.DATETIME);
+      graph.createEdgeType(EDGE).createProperty("weight", OType.LONG);
+      StagingArea.createClass(graph);
+    } finally {
+      graph.shutdown();
+    }
+
+    Configuration hConf = new Configuration(false);
+    hConf.set(OrientDBSink.ORIENTDB_CONNECTION_STRING, connectionString);
+    hConf.set(OrientDBSink.ORIENTDB_USERNAME, OrientDBTestServer.USER);
+    hConf.set(OrientDBSink.ORIENTDB_PASSWORD, OrientDBTestServer.PASSWORD);
+    hConf.set(OrientDBSink.ORIENTDB_VERTEX, VERTEX);
+    hConf.set(OrientDBSink.ORIENTDB_EDGE, EDGE);
+    // Rejected with staged commits by the config, sums only reveal edges written by more than one attempt here.
+    hConf.set(OrientDBSink.ORIENTDB_EDGE_PROPERTY_MERGE, "weight:sum");
+    hConf.set(OrientDBSink.ORIENTDB_VERTEX_PROPERTIES, "balance,updated");
+    hConf.setEnum(OrientDBSink.ORIENTDB_WRITE_METHOD, writeMethod);
+    hConf.setEnum(OrientDBSink.ORIENTDB_COMMIT_MODE, CommitMode.STAGED);
+    hConf.setInt(OrientDBSink.ORIENTDB_BATCH_SIZE, 2);
+    hConf.set(OrientDBSink.ORIENTDB_STAGE_NAME, "sink");
+    return hConf;
+  }
+
+  private static TaskAttemptContext writeAttempt(Configuration hConf, int task, int attempt,
+                                                 StructuredRecord... records) throws Exception {
+    TaskAttemptContext context = new TaskAttemptContextImpl(hConf, new TaskAttemptID("1", 1, TaskType.MAP, task,
+                                                                                      attempt));
+    RecordWriter<NullWritable, StructuredRecord> writer = new OrientDBOutputFormat().getRecordWriter(context);
+    for (StructuredRecord record : Arrays.asList(records)) {
+      writer.write(NullWritable.get(), record);
+    }
+    writer.close(context);
+    return context;
+  }
+
+  private static StructuredRecord record(String sourceVertex, String destinationVertex, long weight) {
+    return StructuredRecord.builder(SCHEMA)
+      .set(VERTEX, sourceVertex)
+      .set(EDGE, Arrays.asList(StructuredRecord.builder(EDGE_SCHEMA)
+                                 .set(OrientDBConfig.DEFAULT_EDGE_TARGET_FIELD, destinationVertex)
+                                 .set("weight", weight)
+                                 .build()))
+      .setDecimal("balance", new BigDecimal("1.50"))
+      .set("updated", 1000L)
+      .build();
+  }
+
+  private static List<ODocument> query(OrientGraphNoTx graph, String sql) {
+    return graph.getRawGraph().query(new OSQLSynchQuery<ODocument>(sql));
+  }
+}
@@ -0,0 +1,744 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientEdgeType;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import com.tinkerpop.blueprints.impls.orient.OrientVertexType;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.mock.validation.MockFailureCollector;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Tests for {@link OrientDBRecordWriter}, writing the same graph with several parallel tasks to an
+ * {@link OrientDBTestServer} and verifying the written vertices and edges exactly. The volume and the minimum
+ * throughput can be changed with the {@code orientdb.test.*} system properties.
+ */
+public class OrientDBRecordWriterTest {
+  private static final Logger LOG = LoggerFactory.getLogger(OrientDBRecordWriterTest.class);
+  private static final String VERTEX = "person";
+  private static final String EDGE = "follows";
+  private static final Schema SCHEMA = Schema.recordOf(
+    "schema",
+    Schema.Field.of(VERTEX, Schema.of(Schema.Type.STRING)),
+    Schema.Field.of(EDGE, Schema.arrayOf(Schema.of(Schema.Type.STRING))));
+  private static final Schema EDGE_SCHEMA = Schema.recordOf(
+    "edge",
+    Schema.Field.of(OrientDBConfig.DEFAULT_EDGE_TARGET_FIELD, Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("weight", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+    Schema.Field.of("updated", Schema.of(Schema.Type.DOUBLE)),
+    Schema.Field.of("source", Schema.of(Schema.Type.STRING)));
+  private static final Schema EDGE_RECORD_SCHEMA = Schema.recordOf(
+    "edgeRecord",
+    Schema.Field.of(VERTEX, Schema.of(Schema.Type.STRING)),
+    Schema.Field.of(EDGE, Schema.arrayOf(EDGE_SCHEMA)));
+  private static final Schema VERTEX_PROPERTY_SCHEMA = Schema.recordOf(
+    "vertexRecord",
+    Schema.Field.of(VERTEX, Schema.of(Schema.Type.STRING)),
+    Schema.Field.of(EDGE, Schema.arrayOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("born", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))),
+    Schema.Field.of("updated", Schema.of(Schema.LogicalType.TIMESTAMP_MICROS)),
+    Schema.Field.of("balance", Schema.decimalOf(10, 2)),
+    Schema.Field.of("tags", Schema.arrayOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("scores", Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.INT))));
+
+  private static final int TASKS = Integer.getInteger("orientdb.test.tasks", 4);
+  private static final int RECORDS_PER_TASK = Integer.getInteger("orientdb.test.records", 400);
+  // Small enough for tasks to write the same vertices and edges over and over again.
+  private static final int VERTICES = Integer.getInteger("orientdb.test.vertices", 500);
+  private static final int FANOUT = 3;
+  // Records per second of all tasks together. Low enough for slow build machines, only catches severe regressions.
+  private static final double MIN_THROUGHPUT = Double.parseDouble(
+    System.getProperty("orientdb.test.min.throughput", "20"));
+
+  @ClassRule
+  public static final OrientDBTestServer SERVER = new OrientDBTestServer();
+
+  @Test
+  public void testTransactional() throws Exception {
+    testParallelTasks("transactional", WriteMode.TRANSACTIONAL, WriteMethod.BLUEPRINTS, 0, false, 0);
+  }
+
+  @Test
+  public void testTransactionalWithWriterThreads() throws Exception {
+    testParallelTasks("writerThreads", WriteMode.TRANSACTIONAL, WriteMethod.BLUEPRINTS, 2, false, 0);
+  }
+
+  @Test
+  public void testNonTransactional() throws Exception {
+    // Without transactions, tasks writing the same source vertex may add the same edge twice.
+    testParallelTasks("nonTransactional", WriteMode.NON_TRANSACTIONAL, WriteMethod.BLUEPRINTS, 0, true, 0);
+  }
+
+  @Test
+  public void testMassiveInsert() throws Exception {
+    testParallelTasks("massiveInsert", WriteMode.MASSIVE_INSERT, WriteMethod.BLUEPRINTS, 0, true, 0);
+  }
+
+  @Test
+  public void testScriptMassiveInsert() throws Exception {
+    testParallelTasks("scriptMassiveInsert", WriteMode.MASSIVE_INSERT, WriteMethod.SCRIPT, 0, true, 0);
+  }
+
+  @Test
+  public void testScript() throws Exception {
+    testParallelTasks("script", WriteMode.TRANSACTIONAL, WriteMethod.SCRIPT, 0, false, 0);
+  }
+
+  @Test
+  public void testScriptNonTransactional() throws Exception {
+    testParallelTasks("scriptNonTransactional", WriteMode.NON_TRANSACTIONAL, WriteMethod.SCRIPT, 0, true, 0);
+  }
+
+  @Test
+  public void testWriteClustersWithWriterThreads() throws Exception {
+    testParallelTasks("writeClusters", WriteMode.TRANSACTIONAL, WriteMethod.BLUEPRINTS, 2, false, TASKS * 2);
+  }
+
+  @Test
+  public void testScriptWriteClusters() throws Exception {
+    testParallelTasks("scriptWriteClusters", WriteMode.TRANSACTIONAL, WriteMethod.SCRIPT, 0, false, TASKS);
+  }
+
+  @Test
+  public void testLookupBatches() throws Exception {
+    testParallelTasks("lookupBatches", WriteMode.TRANSACTIONAL, WriteMethod.BLUEPRINTS, 0, false, 0,
+                      hConf -> hConf.setInt(OrientDBSink.ORIENTDB_LOOKUP_BATCH_SIZE, 30));
+  }
+
+  @Test
+  public void testLookupBatchesNonTransactional() throws Exception {
+    testParallelTasks("lookupBatchesNonTransactional", WriteMode.NON_TRANSACTIONAL, WriteMethod.BLUEPRINTS, 0, true,
+                      0, hConf -> hConf.setInt(OrientDBSink.ORIENTDB_LOOKUP_BATCH_SIZE, 30));
+  }
+
+  @Test
+  public void testOffHeapVertexCache() throws Exception {
+    // Record ids of vertices created in a transaction are stored again once it commits.
+    testParallelTasks("offHeapVertexCache", WriteMode.TRANSACTIONAL, WriteMethod.BLUEPRINTS, 0, false, 0,
+                      hConf -> hConf.setInt(OrientDBSink.ORIENTDB_OFF_HEAP_VERTEX_CACHE_SIZE, 1));
+  }
+
+  @Test
+  public void testOffHeapVertexCacheMemory() {
+    Configuration hConf = new Configuration(false);
+    hConf.setInt(OrientDBSink.ORIENTDB_OFF_HEAP_VERTEX_CACHE_SIZE, 4);
+    Assert.assertEquals(4L << 20, OrientDBGraphWriter.getVertexCacheMemory(hConf));
+
+    // Writer threads split the memory of the task, unless they share a cache.
+    hConf.setInt(OrientDBSink.ORIENTDB_WRITER_THREADS, 2);
+    Assert.assertEquals(2L << 20, OrientDBGraphWriter.getVertexCacheMemory(hConf));
+    hConf.setBoolean(OrientDBSink.ORIENTDB_SHARE_VERTEX_CACHE, true);
+    Assert.assertEquals(4L << 20, OrientDBGraphWriter.getVertexCacheMemory(hConf));
+  }
+
+  @Test
+  public void testKeyFilter() throws Exception {
+    // Built before any vertex exists, so that parallel tasks create the same vertices without looking them up.
+    testParallelTasks("keyFilter", WriteMode.TRANSACTIONAL, WriteMethod.BLUEPRINTS, 0, false, 0,
+                      hConf -> setKeyFilter(hConf, "keyFilter"));
+  }
+
+  @Test
+  public void testKeyFilterWithLookupBatches() throws Exception {
+    testParallelTasks("keyFilterWithLookupBatches", WriteMode.NON_TRANSACTIONAL, WriteMethod.BLUEPRINTS, 0, true, 0,
+                      hConf -> {
+                        setKeyFilter(hConf, "keyFilterWithLookupBatches");
+                        hConf.setInt(OrientDBSink.ORIENTDB_LOOKUP_BATCH_SIZE, 30);
+                      });
+  }
+
+  @Test
+  public void testKeyFilterOfExistingVertices() throws Exception {
+    String connectionString = SERVER.createDatabase("keyFilterOfExistingVertices");
+    createSchema("keyFilterOfExistingVertices", 2);
+    Configuration hConf = createConfiguration(connectionString, WriteMode.TRANSACTIONAL, WriteMethod.BLUEPRINTS);
+    writeEdges(hConf, "Jon", "Nitin");
+
+    setKeyFilter(hConf, "keyFilterOfExistingVertices");
+    VertexKeyFilter keyFilter = VertexKeyFilter.deserialize(hConf.get(OrientDBSink.ORIENTDB_KEY_FILTER));
+    Assert.assertTrue(keyFilter.mightContain("Jon"));
+    Assert.assertTrue(keyFilter.mightContain("Nitin"));
+    // Existing vertices are looked up, new ones are created right away.
+    hConf.setInt(OrientDBSink.ORIENTDB_VERTEX_CACHE_SIZE, 0);
+    writeEdges(hConf, "Jon", "Sree", "Nitin");
+    writeEdges(hConf, "Sree", "Kim", "Jon");
+
+    OrientGraphNoTx graph = SERVER.openGraph("keyFilterOfExistingVertices");
+    try {
+      Assert.assertEquals(4, graph.countVertices(VERTEX));
+      Assert.assertEquals(4, graph.countEdges(EDGE));
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  @Test
+  public void testLookupBatchWithoutVertexCache() throws Exception {
+    String connectionString = SERVER.createDatabase("lookupBatchWithoutVertexCache");
+    createSchema("lookupBatchWithoutVertexCache", 0);
+    Configuration hConf = createConfiguration(connectionString, WriteMode.TRANSACTIONAL, WriteMethod.BLUEPRINTS);
+    hConf.setInt(OrientDBSink.ORIENTDB_VERTEX_CACHE_SIZE, 0);
+    hConf.setInt(OrientDBSink.ORIENTDB_LOOKUP_BATCH_SIZE, 2);
+    // Vertices created by an earlier lookup batch of the same transaction are neither cached nor committed yet.
+    for (int i = 0; i < 2; i++) {
+      OrientDBRecordWriter writer = new OrientDBRecordWriter(hConf);
+      writer.write(NullWritable.get(), StructuredRecord.builder(SCHEMA)
+        .set(VERTEX, "Jon").set(EDGE, Arrays.asList("Nitin", "Sree")).build());
+      writer.write(NullWritable.get(), StructuredRecord.builder(SCHEMA)
+        .set(VERTEX, "Nitin").set(EDGE, Arrays.asList("Jon", "Jon")).build());
+      writer.write(NullWritable.get(), StructuredRecord.builder(SCHEMA)
+        .set(VERTEX, "Sree").set(EDGE, Collections.singletonList("Nitin")).build());
+      writer.close(null);
+    }
+
+    OrientGraphNoTx graph = SERVER.openGraph("lookupBatchWithoutVertexCache");
+    try {
+      Assert.assertEquals(3, graph.countVertices(VERTEX));
+      Assert.assertEquals(4, graph.countEdges(EDGE));
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  @Test
+  public void testFailedCloseReleasesConnection() throws Exception {
+    String connectionString = SERVER.createDatabase("failedClose");
+    createSchema("failedClose", 0);
+    Configuration hConf = createConfiguration(connectionString, WriteMode.TRANSACTIONAL, WriteMethod.BLUEPRINTS);
+    hConf.setInt(OrientDBSink.ORIENTDB_MAX_POOL_SIZE, 1);
+    hConf.setInt(OrientDBSink.ORIENTDB_MAX_RETRIES, 0);
+
+    // Pooled connections are bound to threads, every writer runs in a thread of its own.
+    ExecutorService failing = Executors.newSingleThreadExecutor();
+    ExecutorService next = Executors.newSingleThreadExecutor();
+    try {
+      OrientDBRecordWriter writer = new OrientDBRecordWriter(hConf);
+      failing.submit(() -> {
+        writer.write(NullWritable.get(), StructuredRecord.builder(SCHEMA)
+          .set(VERTEX, "Jon")
+          .set(EDGE, Collections.singletonList("Nitin"))
+          .build());
+        return null;
+      }).get();
+
+      // Another writer creates the same vertex, so that committing the open transaction fails.
+      OrientGraphNoTx graph = SERVER.openGraph("failedClose");
+      try {
+        graph.addVertex("class:" + VERTEX, VERTEX, "Jon");
+      } finally {
+        graph.shutdown();
+      }
+      try {
+        failing.submit(() -> {
+          writer.close(null);
+          return null;
+        }).get();
+        Assert.fail("Expected the commit to fail.");
+      } catch (ExecutionException ex) {
+        Assert.assertTrue(ex.getCause() instanceof IOException);
+      }
+
+      // Waits for the single connection of the pool forever if the failed writer didn't return it.
+      next.submit(() -> {
+        writeEdges(hConf, "Nitin", "Jon");
+        return null;
+      }).get(1, TimeUnit.MINUTES);
+    } finally {
+      failing.shutdownNow();
+      next.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testWriteClusterPerTask() throws Exception {
+    String connectionString = SERVER.createDatabase("writeClusterPerTask");
+    createSchema("writeClusterPerTask", 2);
+    Configuration hConf = createConfiguration(connectionString, WriteMode.TRANSACTIONAL, WriteMethod.BLUEPRINTS);
+    hConf.setInt(OrientDBSink.ORIENTDB_WRITE_CLUSTERS, 2);
+    for (int task = 0; task < 2; task++) {
+      OrientDBRecordWriter writer = new OrientDBRecordWriter(OrientDBRecordWriter.forTask(hConf, task));
+      writer.write(NullWritable.get(), StructuredRecord.builder(SCHEMA)
+        .set(VERTEX, "s" + task)
+        .set(EDGE, new String[] {"d" + task})
+        .build());
+      writer.close(null);
+    }
+
+    OrientGraphNoTx graph = SERVER.openGraph("writeClusterPerTask");
+    try {
+      Map<String, Integer> clusters = new HashMap<>();
+      for (ODocument document : query(graph, "SELECT FROM " + VERTEX)) {
+        clusters.put(document.field(VERTEX), document.getIdentity().getClusterId());
+      }
+      Assert.assertEquals(clusters.get("s0"), clusters.get("d0"));
+      Assert.assertEquals(clusters.get("s1"), clusters.get("d1"));
+      Assert.assertNotEquals(clusters.get("s0"), clusters.get("s1"));
+      Assert.assertEquals(2, getClusterIds(graph, EDGE).size());
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  @Test
+  public void testEdgeProperties() throws Exception {
+    for (WriteMethod writeMethod : WriteMethod.values()) {
+      String database = "edgeProperties" + writeMethod.name();
+      String connectionString = SERVER.createDatabase(database);
+      createSchema(database, 0);
+      OrientGraphNoTx graph = SERVER.openGraph(database);
+      try {
+        // Declared like the sink does, so that values are stored with the same type by Blueprints and SQL.
+        OrientEdgeType edgeType = graph.getEdgeType(EDGE);
+        edgeType.createProperty("weight", OType.LONG);
+        edgeType.createProperty("updated", OType.DOUBLE);
+        edgeType.createProperty("source", OType.STRING);
+      } finally {
+        graph.shutdown();
+      }
+
+      Configuration hConf = createConfiguration(connectionString, WriteMode.TRANSACTIONAL, writeMethod);
+      hConf.set(OrientDBSink.ORIENTDB_EDGE_PROPERTY_MERGE, "weight:sum,updated:max");
+      hConf.setInt(OrientDBSink.ORIENTDB_BATCH_SIZE, 2);
+      // Writes the same edges twice, the second time they exist already.
+      for (int i = 0; i < 2; i++) {
+        OrientDBRecordWriter writer = new OrientDBRecordWriter(hConf);
+        writer.write(NullWritable.get(), edgeRecord("Jon", edge("Nitin", 1L, 1.5d, "a"), edge("Sree", 10L, 1d, "b")));
+        writer.write(NullWritable.get(), edgeRecord("Jon", edge("Nitin", 2L, 0.5d, "c")));
+        writer.write(NullWritable.get(), edgeRecord("Nitin", edge("Jon", null, 3d, "d")));
+        writer.close(null);
+      }
+
+      Set<String> edges = new HashSet<>();
+      graph = SERVER.openGraph(database);
+      try {
+        for (ODocument document : query(graph, String.format("SELECT out.%s AS s, in.%s AS d, weight, updated, " +
+                                                               "source FROM %s", VERTEX, VERTEX, EDGE))) {
+          edges.add(String.format("%s>%s %s %s %s", document.field("s"), document.field("d"),
+                                  document.field("weight"), document.field("updated"), document.field("source")));
+        }
+      } finally {
+        graph.shutdown();
+      }
+      Assert.assertEquals(writeMethod.getValue(),
+                          new HashSet<>(Arrays.asList("Jon>Nitin 6 1.5 c", "Jon>Sree 20 1.0 b",
+                                                      "Nitin>Jon null 3.0 d")),
+                          edges);
+    }
+  }
+
+  @Test
+  public void testVertexProperties() throws Exception {
+    for (WriteMethod writeMethod : WriteMethod.values()) {
+      String database = "vertexProperties" + writeMethod.name();
+      String connectionString = SERVER.createDatabase(database);
+      createSchema(database, 0);
+      OrientGraphNoTx graph = SERVER.openGraph(database);
+      try {
+        // Declared like the sink does.
+        OrientVertexType vertexType = graph.getVertexType(VERTEX);
+        for (Schema.Field field : VERTEX_PROPERTY_SCHEMA.getFields().subList(2, 8)) {
+          OType linkedType = PropertyTypes.getLinkedType(field.getSchema());
+          String property = field.getName().equals("name") ? "fullName" : field.getName();
+          if (linkedType == null) {
+            vertexType.createProperty(property, PropertyTypes.getType(field.getSchema()));
+          } else {
+            vertexType.createProperty(property, PropertyTypes.getType(field.getSchema()), linkedType);
+          }
+        }
+      } finally {
+        graph.shutdown();
+      }
+
+      Configuration hConf = createConfiguration(connectionString, WriteMode.TRANSACTIONAL, writeMethod);
+      hConf.set(OrientDBSink.ORIENTDB_VERTEX_PROPERTIES, "name:fullName,born,updated,balance,tags,scores");
+      OrientDBRecordWriter writer = new OrientDBRecordWriter(hConf);
+      writer.write(NullWritable.get(), vertexRecord("Jon", "Nitin", "Jon Doe", 10, 1000000L, "1.50"));
+      writer.write(NullWritable.get(), vertexRecord("Nitin", "Jon", "Nitin M", 20, 2000000L, "2.00"));
+      writer.close(null);
+      // Updates existing vertices, null fields keep their property.
+      writer = new OrientDBRecordWriter(hConf);
+      writer.write(NullWritable.get(), vertexRecord("Jon", "Sree", "John Doe", null, 3000000L, "12.34"));
+      writer.close(null);
+
+      graph = SERVER.openGraph(database);
+      try {
+        Vertex jon = graph.getVertices(VERTEX, new String[] {VERTEX}, new Object[] {"Jon"}).iterator().next();
+        Assert.assertEquals("John Doe", jon.getProperty("fullName"));
+        Assert.assertEquals(new Date(TimeUnit.DAYS.toMillis(10)), jon.getProperty("born"));
+        Assert.assertEquals(new Date(3000L), jon.getProperty("updated"));
+        Assert.assertEquals(new BigDecimal("12.34"), jon.getProperty("balance"));
+        Assert.assertEquals(Arrays.asList("a", "John Doe"), jon.getProperty("tags"));
+        Assert.assertEquals(Collections.singletonMap("rank", 3000), jon.getProperty("scores"));
+        Vertex sree = graph.getVertices(VERTEX, new String[] {VERTEX}, new Object[] {"Sree"}).iterator().next();
+        Assert.assertEquals(Collections.singleton(VERTEX), sree.getPropertyKeys());
+        Assert.assertEquals(3, graph.countVertices(VERTEX));
+        Assert.assertEquals(3, graph.countEdges(EDGE));
+      } finally {
+        graph.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void testLightweightEdges() throws Exception {
+    for (WriteMethod writeMethod : WriteMethod.values()) {
+      String database = "lightweightEdges" + writeMethod.name();
+      String connectionString = SERVER.createDatabase(database);
+      createSchema(database, 0);
+      OrientGraphNoTx graph = SERVER.openGraph(database);
+      try {
+        // An edge record written before lightweight edges were turned on.
+        Vertex jon = graph.addVertex("class:" + VERTEX, VERTEX, "Jon");
+        Vertex nitin = graph.addVertex("class:" + VERTEX, VERTEX, "Nitin");
+        graph.addEdge("class:" + EDGE, jon, nitin, EDGE);
+        MockFailureCollector failureCollector = new MockFailureCollector(database);
+        OrientDBSink.createLinkProperties(graph.getVertexType(VERTEX), EDGE, failureCollector);
+        Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+      } finally {
+        graph.shutdown();
+      }
+
+      Configuration hConf = createConfiguration(connectionString, WriteMode.TRANSACTIONAL, writeMethod);
+      hConf.setBoolean(OrientDBSink.ORIENTDB_LIGHTWEIGHT_EDGES, true);
+      hConf.setInt(OrientDBSink.ORIENTDB_BATCH_SIZE, 2);
+      for (int i = 0; i < 2; i++) {
+        OrientDBRecordWriter writer = new OrientDBRecordWriter(hConf);
+        writer.write(NullWritable.get(), StructuredRecord.builder(SCHEMA)
+          .set(VERTEX, "Jon")
+          .set(EDGE, Arrays.asList("Nitin", "Sree"))
+          .build());
+        writer.write(NullWritable.get(), StructuredRecord.builder(SCHEMA)
+          .set(VERTEX, "Sree")
+          .set(EDGE, Collections.singletonList("Jon"))
+          .build());
+        writer.close(null);
+      }
+
+      graph = SERVER.openGraph(database);
+      try {
+        List<String> edges = new ArrayList<>();
+        for (ODocument document : query(graph, String.format("SELECT %s AS s, out('%s').%s AS d FROM %s",
+                                                             VERTEX, EDGE, VERTEX, VERTEX))) {
+          for (Object destination : document.<List<?>>field("d")) {
+            edges.add(document.field("s") + ">" + destination);
+          }
+        }
+        Assert.assertEquals(writeMethod.getValue(), 3, edges.size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("Jon>Nitin", "Jon>Sree", "Sree>Jon")), new HashSet<>(edges));
+        // Only the edge written before is stored as a record.
+        Assert.assertEquals(writeMethod.getValue(), 1, graph.getRawGraph().countClass(EDGE));
+      } finally {
+        graph.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void testReplaceOutEdges() throws Exception {
+    for (WriteMode writeMode : Arrays.asList(WriteMode.TRANSACTIONAL, WriteMode.NON_TRANSACTIONAL)) {
+      for (boolean lightweightEdges : Arrays.asList(false, true)) {
+        String database = "replaceOutEdges" + writeMode.name() + lightweightEdges;
+        String connectionString = SERVER.createDatabase(database);
+        createSchema(database, 0);
+        if (lightweightEdges) {
+          OrientGraphNoTx graph = SERVER.openGraph(database);
+          try {
+            OrientDBSink.createLinkProperties(graph.getVertexType(VERTEX), EDGE, new MockFailureCollector(database));
+          } finally {
+            graph.shutdown();
+          }
+        }
+        Configuration hConf = createConfiguration(connectionString, writeMode, WriteMethod.BLUEPRINTS);
+        hConf.setBoolean(OrientDBSink.ORIENTDB_LIGHTWEIGHT_EDGES, lightweightEdges);
+        hConf.setEnum(OrientDBSink.ORIENTDB_SYNC_MODE, SyncMode.REPLACE_OUT_EDGES);
+
+        hConf.set(OrientDBSink.ORIENTDB_SYNC_RUN, "run1");
+        writeEdges(hConf, "Jon", "Nitin", "Sree");
+        writeEdges(hConf, "Sree", "Jon");
+        // The second run writes Jon twice, both records are kept. Sree isn't written and keeps its edges.
+        hConf.set(OrientDBSink.ORIENTDB_SYNC_RUN, "run2");
+        writeEdges(hConf, "Jon", "Sree");
+        writeEdges(hConf, "Jon", "Kim");
+        writeEdges(hConf, "Nitin");
+
+        OrientGraphNoTx graph = SERVER.openGraph(database);
+        try {
+          Set<String> edges = new HashSet<>();
+          Map<String, String> runs = new HashMap<>();
+          for (ODocument document : query(graph, String.format("SELECT %s AS s, out('%s').%s AS d, %s AS run FROM %s",
+                                                               VERTEX, EDGE, VERTEX, SyncMode.RUN_PROPERTY,
+                                                               VERTEX))) {
+            for (Object destination : document.<List<?>>field("d")) {
+              edges.add(document.field("s") + ">" + destination);
+            }
+            runs.put(document.field("s"), document.field("run"));
+          }
+          Assert.assertEquals(database, new HashSet<>(Arrays.asList("Jon>Sree", "Jon>Kim", "Sree>Jon")), edges);
+          Assert.assertEquals("run2", runs.get("Jon"));
+          Assert.assertEquals("run2", runs.get("Nitin"));
+          Assert.assertEquals("run1", runs.get("Sree"));
+          Assert.assertNull(runs.get("Kim"));
+          Assert.assertEquals(lightweightEdges ? 0 : 3, graph.getRawGraph().countClass(EDGE));
+        } finally {
+          graph.shutdown();
+        }
+      }
+    }
+  }
+
+  private static void writeEdges(Configuration hConf, String sourceVertex, String... destinationVertices)
+    throws Exception {
+    OrientDBRecordWriter writer = new OrientDBRecordWriter(hConf);
+    writer.write(NullWritable.get(), StructuredRecord.builder(SCHEMA)
+      .set(VERTEX, sourceVertex)
+      .set(EDGE, Arrays.asList(destinationVertices))
+      .build());
+    writer.close(null);
+  }
+
+  private static StructuredRecord vertexRecord(String sourceVertex, String destinationVertex, String name,
+                                               Integer born, long updated, String balance) {
+    return StructuredRecord.builder(VERTEX_PROPERTY_SCHEMA)
+      .set(VERTEX, sourceVertex)
+      .set(EDGE, Collections.singletonList(destinationVertex))
+      .set("name", name)
+      .set("born", born)
+      .set("updated", updated)
+      .setDecimal("balance", new BigDecimal(balance))
+      .set("tags", Arrays.asList("a", name))
+      .set("scores", Collections.singletonMap("rank", (int) (updated / 1000)))
+      .build();
+  }
+
+  private static StructuredRecord edgeRecord(String sourceVertex, StructuredRecord... edges) {
+    return StructuredRecord.builder(EDGE_RECORD_SCHEMA)
+      .set(VERTEX, sourceVertex)
+      .set(EDGE, Arrays.asList(edges))
+      .build();
+  }
+
+  private static StructuredRecord edge(String target, Long weight, double updated, String source) {
+    return StructuredRecord.builder(EDGE_SCHEMA)
+      .set(OrientDBConfig.DEFAULT_EDGE_TARGET_FIELD, target)
+      .set("weight", weight)
+      .set("updated", updated)
+      .set("source", source)
+      .build();
+  }
+
+  private static Configuration createConfiguration(String connectionString, WriteMode writeMode,
+                                                   WriteMethod writeMethod) {
+    Configuration hConf = new Configuration(false);
+    hConf.set(OrientDBSink.ORIENTDB_CONNECTION_STRING, connectionString);
+    hConf.set(OrientDBSink.ORIENTDB_USERNAME, OrientDBTestServer.USER);
+    hConf.set(OrientDBSink.ORIENTDB_PASSWORD, OrientDBTestServer.PASSWORD);
+    hConf.set(OrientDBSink.ORIENTDB_VERTEX, VERTEX);
+    hConf.set(OrientDBSink.ORIENTDB_EDGE, EDGE);
+    hConf.setEnum(OrientDBSink.ORIENTDB_WRITE_MODE, writeMode);
+    hConf.setEnum(OrientDBSink.ORIENTDB_WRITE_METHOD, writeMethod);
+    return hConf;
+  }
+
+  /**
+   * @param partitionSources whether every source vertex is only written by a single task, like after the
+   *                         {@link OrientDBVertexPartitioner}
+   * @param writeClusters number of clusters of the vertex and edge classes every writer writes to one of, or 0 to
+   *                      let OrientDB select the clusters
+   */
+  private void testParallelTasks(String database, WriteMode writeMode, WriteMethod writeMethod, int writerThreads,
+                                 boolean partitionSources, int writeClusters) throws Exception {
+    testParallelTasks(database, writeMode, writeMethod, writerThreads, partitionSources, writeClusters, hConf -> { });
+  }
+
+  /**
+   * @param settings changes the configuration of the record writers after the schema is created
+   */
+  private void testParallelTasks(String database, WriteMode writeMode, WriteMethod writeMethod, int writerThreads,
+                                 boolean partitionSources, int writeClusters,
+                                 Consumer<Configuration> settings) throws Exception {
+    String connectionString = SERVER.createDatabase(database);
+    createSchema(database, writeClusters);
+
+    Configuration hConf = createConfiguration(connectionString, writeMode, writeMethod);
+    hConf.setInt(OrientDBSink.ORIENTDB_BATCH_SIZE, 100);
+    hConf.setInt(OrientDBSink.ORIENTDB_WRITER_THREADS, writerThreads);
+    hConf.setInt(OrientDBSink.ORIENTDB_MAX_POOL_SIZE, TASKS * Math.max(1, writerThreads));
+    // Parallel tasks conflict a lot on this small graph.
+    hConf.setInt(OrientDBSink.ORIENTDB_MAX_RETRIES, 100);
+    hConf.setLong(OrientDBSink.ORIENTDB_RETRY_BACKOFF, 5L);
+    hConf.setInt(OrientDBSink.ORIENTDB_WRITE_CLUSTERS, writeClusters);
+    settings.accept(hConf);
+
+    Set<String> expectedVertices = ConcurrentHashMap.newKeySet();
+    Set<String> expectedEdges = ConcurrentHashMap.newKeySet();
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (int task = 0; task < TASKS; task++) {
+      int taskId = task;
+      tasks.add(() -> {
+        Random random = new Random(taskId);
+        OrientDBRecordWriter writer = new OrientDBRecordWriter(OrientDBRecordWriter.forTask(hConf, taskId));
+        for (int i = 0; i < RECORDS_PER_TASK; i++) {
+          int source = random.nextInt(VERTICES);
+          if (partitionSources) {
+            source = source - source % TASKS + taskId;
+          }
+          String sourceVertex = "v" + source;
+          String[] destinationVertices = new String[FANOUT];
+          for (int j = 0; j < FANOUT; j++) {
+            destinationVertices[j] = "v" + random.nextInt(VERTICES);
+            expectedVertices.add(destinationVertices[j]);
+            expectedEdges.add(sourceVertex + ">" + destinationVertices[j]);
+          }
+          expectedVertices.add(sourceVertex);
+          writer.write(NullWritable.get(), StructuredRecord.builder(SCHEMA)
+            .set(VERTEX, sourceVertex)
+            .set(EDGE, destinationVertices)
+            .build());
+        }
+        writer.close(null);
+        return null;
+      });
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(TASKS);
+    long startTime = System.nanoTime();
+    try {
+      for (Future<Void> future : executor.invokeAll(tasks)) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    double seconds = (System.nanoTime() - startTime) / (double) TimeUnit.SECONDS.toNanos(1);
+    double throughput = TASKS * RECORDS_PER_TASK / seconds;
+    LOG.info("Wrote {} records with {} tasks in '{}' mode with '{}' in {} s, {} records/s.",
+             TASKS * RECORDS_PER_TASK, TASKS, writeMode.getValue(), writeMethod.getValue(),
+             String.format("%.2f", seconds), String.format("%.0f", throughput));
+
+    OrientGraphNoTx graph = SERVER.openGraph(database);
+    try {
+      List<String> vertices = new ArrayList<>();
+      for (ODocument document : query(graph, String.format("SELECT %s AS v FROM %s", VERTEX, VERTEX))) {
+        vertices.add(document.field("v"));
+      }
+      Assert.assertEquals("Duplicate vertices", new HashSet<>(vertices).size(), vertices.size());
+      Assert.assertEquals(expectedVertices, new HashSet<>(vertices));
+
+      List<String> edges = new ArrayList<>();
+      for (ODocument document : query(graph, String.format("SELECT out.%s AS s, in.%s AS d FROM %s",
+                                                           VERTEX, VERTEX, EDGE))) {
+        edges.add(document.field("s") + ">" + document.field("d"));
+      }
+      Assert.assertEquals("Duplicate edges", new HashSet<>(edges).size(), edges.size());
+      Assert.assertEquals(expectedEdges, new HashSet<>(edges));
+
+      if (writeClusters > 0) {
+        // Every writer creates its edges in a cluster of its own. Vertices are created by the writers that win the
+        // race for them, which can be a few only.
+        Assert.assertEquals(writeClusters, getClusterIds(graph, EDGE).size());
+      }
+    } finally {
+      graph.shutdown();
+    }
+
+    Assert.assertTrue(String.format("Throughput of %.0f records/s is below %.0f records/s.",
+                                    throughput, MIN_THROUGHPUT),
+                      throughput >= MIN_THROUGHPUT);
+  }
+
+  /**
+   * Builds a key filter of the vertices in the given database, like the sink does before a run.
+   */
+  private static void setKeyFilter(Configuration hConf, String database) {
+    OrientGraphNoTx graph = SERVER.openGraph(database);
+    try {
+      hConf.set(OrientDBSink.ORIENTDB_KEY_FILTER, VertexKeyFilter.build(graph, VERTEX, 0.01d).serialize());
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  /**
+   * Creates the same schema as the sink with the default vertex index type.
+   */
+  private static void createSchema(String database, int writeClusters) {
+    OrientGraphNoTx graph = SERVER.openGraph(database);
+    try {
+      OrientVertexType vertexType = graph.createVertexType(VERTEX);
+      vertexType.createProperty(VERTEX, OType.STRING);
+      vertexType.createIndex(VERTEX + "." + VERTEX, OClass.INDEX_TYPE.UNIQUE_HASH_INDEX, VERTEX);
+      OrientEdgeType edgeType = graph.createEdgeType(EDGE);
+      OrientDBSink.addClusters(graph, vertexType, writeClusters);
+      OrientDBSink.addClusters(graph, edgeType, writeClusters);
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  /**
+   * Returns the ids of the clusters holding records of the given class.
+   */
+  private static Set<Integer> getClusterIds(OrientGraphNoTx graph, String className) {
+    Set<Integer> clusterIds = new HashSet<>();
+    for (ODocument document : query(graph, "SELECT FROM " + className)) {
+      clusterIds.add(document.getIdentity().getClusterId());
+    }
+    return clusterIds;
+  }
+
+  private static List<ODocument> query(OrientGraphNoTx graph, String sql) {
+    return graph.getRawGraph().query(new OSQLSynchQuery<ODocument>(sql));
+  }
+}
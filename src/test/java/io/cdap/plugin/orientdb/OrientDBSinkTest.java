@@ -17,6 +17,10 @@
 package io.cdap.plugin.orientdb;
 
 import com.orientechnologies.orient.client.remote.OEngineRemote;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
 import io.cdap.cdap.api.artifact.ArtifactSummary;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
@@ -29,6 +33,7 @@ import io.cdap.cdap.etl.mock.test.HydratorTestBase;
 import io.cdap.cdap.etl.proto.v2.ETLBatchConfig;
 import io.cdap.cdap.etl.proto.v2.ETLPlugin;
 import io.cdap.cdap.etl.proto.v2.ETLStage;
+import io.cdap.cdap.proto.ProgramRunStatus;
 import io.cdap.cdap.proto.artifact.AppRequest;
 import io.cdap.cdap.proto.id.ApplicationId;
 import io.cdap.cdap.proto.id.ArtifactId;
@@ -37,14 +42,18 @@ import io.cdap.cdap.test.ApplicationManager;
 import io.cdap.cdap.test.DataSetManager;
 import io.cdap.cdap.test.TestConfiguration;
 import io.cdap.cdap.test.WorkflowManager;
+import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -57,6 +66,9 @@ public class OrientDBSinkTest extends HydratorTestBase {
   @ClassRule
   public static final TestConfiguration CONFIG = new TestConfiguration("explore.enabled", false);
 
+  @ClassRule
+  public static final OrientDBTestServer SERVER = new OrientDBTestServer();
+
   @BeforeClass
   public static void setupTestClass() throws Exception {
     ArtifactId parentArtifact = NamespaceId.DEFAULT.artifact(APP_ARTIFACT.getName(), APP_ARTIFACT.getVersion());
@@ -82,9 +94,9 @@ public class OrientDBSinkTest extends HydratorTestBase {
     ETLStage source = new ETLStage("source", MockSource.getPlugin(inputName));
     Map<String, String> sinkProperties = new HashMap<>();
     sinkProperties.put(OrientDBConfig.REFERENCE_NAME, "orientdb");
-    sinkProperties.put(OrientDBConfig.CONNECTION_STRING, "remote:localhost:2424/Dyna");
-    sinkProperties.put(OrientDBConfig.USERNAME, "root");
-    sinkProperties.put(OrientDBConfig.PASSWORD, "password");
+    sinkProperties.put(OrientDBConfig.CONNECTION_STRING, SERVER.createDatabase("Dyna"));
+    sinkProperties.put(OrientDBConfig.USERNAME, OrientDBTestServer.USER);
+    sinkProperties.put(OrientDBConfig.PASSWORD, OrientDBTestServer.PASSWORD);
     sinkProperties.put(OrientDBConfig.VERTEX, vertexType);
     sinkProperties.put(OrientDBConfig.EDGE, edgeType);
 
@@ -116,6 +128,25 @@ public class OrientDBSinkTest extends HydratorTestBase {
 
     WorkflowManager workflowManager = appManager.getWorkflowManager(SmartWorkflow.NAME);
     workflowManager.start();
-    workflowManager.waitForStopped(5, TimeUnit.MINUTES);
+    workflowManager.waitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    OrientGraphNoTx graph = SERVER.openGraph("Dyna");
+    try {
+      Set<String> vertices = new HashSet<>();
+      for (Vertex vertex : graph.getVerticesOfClass(vertexType)) {
+        vertices.add(vertex.getProperty(vertexType));
+      }
+      Assert.assertEquals(new HashSet<>(Arrays.asList("Jon", "Nitin", "Vikram", "Sree")), vertices);
+
+      Set<String> edges = new HashSet<>();
+      for (Edge edge : graph.getEdgesOfClass(edgeType)) {
+        edges.add(edge.getVertex(Direction.OUT).getProperty(vertexType) + "->"
+                    + edge.getVertex(Direction.IN).getProperty(vertexType));
+      }
+      Assert.assertEquals(new HashSet<>(Arrays.asList("Jon->Nitin", "Jon->Vikram", "Nitin->Vikram", "Nitin->Sree")),
+                          edges);
+    } finally {
+      graph.shutdown();
+    }
   }
 }
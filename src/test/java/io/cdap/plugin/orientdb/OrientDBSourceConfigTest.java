@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.validation.CauseAttributes;
+import io.cdap.cdap.etl.api.validation.ValidationFailure;
+import io.cdap.cdap.etl.mock.validation.MockFailureCollector;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link OrientDBSourceConfig}.
+ */
+public class OrientDBSourceConfigTest {
+  private static final String MOCK_STAGE = "mockStage";
+  private static final Schema SCHEMA = Schema.recordOf(
+    "person",
+    Schema.Field.of("rid", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("age", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+
+  private static final OrientDBSourceConfig VALID_CONFIG = OrientDBSourceConfig.builder()
+    .setReferenceName("OrientDBSource")
+    .setClassName("person")
+    .setSchema(SCHEMA.toString())
+    .setRecordIdField("rid")
+    .build();
+
+  @Test
+  public void testValidConfig() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    VALID_CONFIG.validate(failureCollector);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+    Assert.assertEquals(SCHEMA, VALID_CONFIG.getSchema());
+  }
+
+  @Test
+  public void testClassNameAbsent() {
+    OrientDBSourceConfig config = OrientDBSourceConfig.builder(VALID_CONFIG)
+      .setClassName("")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector);
+    assertValidationFailed(failureCollector, OrientDBSourceConfig.CLASS_NAME);
+  }
+
+  @Test
+  public void testInvalidSchema() {
+    OrientDBSourceConfig config = OrientDBSourceConfig.builder(VALID_CONFIG)
+      .setSchema("{\"type\": \"record\"")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector);
+    assertValidationFailed(failureCollector, OrientDBSourceConfig.SCHEMA);
+  }
+
+  @Test
+  public void testRecordIdFieldNotString() {
+    OrientDBSourceConfig config = OrientDBSourceConfig.builder(VALID_CONFIG)
+      .setRecordIdField("age")
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector);
+    assertValidationFailed(failureCollector, OrientDBSourceConfig.RECORD_ID_FIELD);
+  }
+
+  @Test
+  public void testInvalidSplitSize() {
+    OrientDBSourceConfig config = OrientDBSourceConfig.builder(VALID_CONFIG)
+      .setSplitSize(0L)
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector);
+    assertValidationFailed(failureCollector, OrientDBSourceConfig.SPLIT_SIZE);
+  }
+
+  @Test
+  public void testInvalidFetchSize() {
+    OrientDBSourceConfig config = OrientDBSourceConfig.builder(VALID_CONFIG)
+      .setFetchSize(0)
+      .build();
+
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    config.validate(failureCollector);
+    assertValidationFailed(failureCollector, OrientDBSourceConfig.FETCH_SIZE);
+  }
+
+  private static void assertValidationFailed(MockFailureCollector failureCollector, String paramName) {
+    List<ValidationFailure> failureList = failureCollector.getValidationFailures();
+
+    Assert.assertEquals(1, failureList.size());
+    List<ValidationFailure.Cause> causeList = failureList.get(0).getCauses()
+      .stream()
+      .filter(cause -> cause.getAttribute(CauseAttributes.STAGE_CONFIG) != null)
+      .collect(Collectors.toList());
+    Assert.assertEquals(1, causeList.size());
+    Assert.assertEquals(paramName, causeList.get(0).getAttribute(CauseAttributes.STAGE_CONFIG));
+  }
+}
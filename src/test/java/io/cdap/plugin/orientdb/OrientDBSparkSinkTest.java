@@ -0,0 +1,199 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import com.tinkerpop.blueprints.impls.orient.OrientVertexType;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.mock.validation.MockFailureCollector;
+import io.cdap.plugin.common.batch.ConfigurationUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests for {@link OrientDBSparkSink}, writing micro-batches of partitions to an {@link OrientDBTestServer} like the
+ * executors of a realtime pipeline do.
+ */
+public class OrientDBSparkSinkTest {
+  private static final String VERTEX = "person";
+  private static final String EDGE = "follows";
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of(VERTEX, Schema.of(Schema.Type.STRING)),
+    Schema.Field.of(EDGE, Schema.arrayOf(Schema.of(Schema.Type.STRING))));
+
+  @ClassRule
+  public static final OrientDBTestServer SERVER = new OrientDBTestServer();
+
+  @Test
+  public void testWriteMicroBatches() throws Exception {
+    OrientDBConfig config = OrientDBConfig.builder()
+      .setReferenceName("OrientDBSparkSink")
+      .setConnectionString(SERVER.createDatabase("streaming"))
+      .setUsername(OrientDBTestServer.USER)
+      .setPassword(OrientDBTestServer.PASSWORD)
+      .setVertexType(VERTEX)
+      .setEdgeType(EDGE)
+      .setVertexIndexType(OClass.INDEX_TYPE.UNIQUE_HASH_INDEX.name())
+      .build();
+    MockFailureCollector failureCollector = new MockFailureCollector("mockStage");
+    OrientDBSink.prepareGraph(config, SCHEMA, failureCollector);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+
+    Configuration hConf = OrientDBSink.createConfiguration(config, "mockStage", "mockStage");
+    hConf.setBoolean(OrientDBSink.ORIENTDB_SHARE_VERTEX_CACHE, true);
+    OrientDBSparkSink.PartitionWriter writer =
+      new OrientDBSparkSink.PartitionWriter(ConfigurationUtils.getNonDefaultConfigurations(hConf), null);
+
+    // Every call writes a partition of a micro-batch, vertices of earlier batches are found in the shared cache.
+    writer.call(Arrays.asList(record("Jon", "Nitin"), record("Nitin", "Sree")).iterator());
+    writer.call(Collections.<StructuredRecord>emptyList().iterator());
+    writer.call(Arrays.asList(record("Sree", "Jon"), record("Jon", "Sree")).iterator());
+
+    OrientGraphNoTx graph = SERVER.openGraph("streaming");
+    try {
+      Assert.assertEquals(3L, graph.countVertices(VERTEX));
+      Set<String> edges = new HashSet<>();
+      List<ODocument> documents = graph.getRawGraph().query(new OSQLSynchQuery<ODocument>(
+        String.format("SELECT out.%s AS source, in.%s AS target FROM %s", VERTEX, VERTEX, EDGE)));
+      for (ODocument edge : documents) {
+        edges.add(edge.field("source") + "->" + edge.field("target"));
+      }
+      Assert.assertEquals(new HashSet<>(Arrays.asList("Jon->Nitin", "Nitin->Sree", "Sree->Jon", "Jon->Sree")), edges);
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  @Test
+  public void testPrepareWithoutConnectionPool() throws Exception {
+    String connectionString = SERVER.createDatabase("prepare");
+    OrientDBConfig config = OrientDBConfig.builder()
+      .setReferenceName("OrientDBSparkSink")
+      .setConnectionString(connectionString)
+      .setUsername(OrientDBTestServer.USER)
+      .setPassword(OrientDBTestServer.PASSWORD)
+      .setVertexType(VERTEX)
+      .setEdgeType(EDGE)
+      .setVertexIndexType(OClass.INDEX_TYPE.UNIQUE_HASH_INDEX.name())
+      .build();
+    MockFailureCollector failureCollector = new MockFailureCollector("mockStage");
+    config.validateDBConnection(failureCollector);
+    OrientDBSink.prepareGraph(config, SCHEMA, failureCollector);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+
+    // Pools are kept until the JVM shuts down, the driver doesn't need one.
+    Assert.assertFalse(OrientDBConnections.isPooled(connectionString, OrientDBTestServer.USER,
+                                                    OrientDBTestServer.PASSWORD));
+  }
+
+  @Test
+  public void testPrepareWithIncompatibleIndex() throws Exception {
+    String connectionString = SERVER.createDatabase("incompatibleIndex");
+    OrientGraphNoTx graph = SERVER.openGraph("incompatibleIndex");
+    try {
+      OrientVertexType vertexType = graph.createVertexType(VERTEX);
+      vertexType.createProperty(VERTEX, OType.STRING);
+      vertexType.createIndex(VERTEX + ".unique", OClass.INDEX_TYPE.UNIQUE_HASH_INDEX, VERTEX);
+      vertexType.createIndex(VERTEX + ".notUnique", OClass.INDEX_TYPE.NOTUNIQUE_HASH_INDEX, VERTEX);
+    } finally {
+      graph.shutdown();
+    }
+
+    OrientDBConfig config = OrientDBConfig.builder()
+      .setReferenceName("OrientDBSparkSink")
+      .setConnectionString(connectionString)
+      .setUsername(OrientDBTestServer.USER)
+      .setPassword(OrientDBTestServer.PASSWORD)
+      .setVertexType(VERTEX)
+      .setEdgeType(EDGE)
+      .build();
+    // Every single-field index of the key is checked, not only the first one.
+    for (OClass.INDEX_TYPE indexType : Arrays.asList(OClass.INDEX_TYPE.UNIQUE_HASH_INDEX,
+                                                     OClass.INDEX_TYPE.NOTUNIQUE_HASH_INDEX)) {
+      OrientDBConfig indexConfig = OrientDBConfig.builder(config).setVertexIndexType(indexType.name()).build();
+      MockFailureCollector failureCollector = new MockFailureCollector("mockStage");
+      OrientDBSink.validateGraph(indexConfig, failureCollector);
+      Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+
+      failureCollector = new MockFailureCollector("mockStage");
+      OrientDBSink.prepareGraph(indexConfig, SCHEMA, failureCollector);
+      Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+    }
+  }
+
+  @Test
+  public void testValidateNewGraph() throws Exception {
+    String connectionString = SERVER.createDatabase("validateNewGraph");
+    OrientDBConfig config = OrientDBConfig.builder()
+      .setReferenceName("OrientDBSparkSink")
+      .setConnectionString(connectionString)
+      .setUsername(OrientDBTestServer.USER)
+      .setPassword(OrientDBTestServer.PASSWORD)
+      .setVertexType(VERTEX)
+      .setEdgeType(EDGE)
+      .build();
+    MockFailureCollector failureCollector = new MockFailureCollector("mockStage");
+    OrientDBSink.validateGraph(config, failureCollector);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+
+    // Validation leaves the classes to be created when the pipeline is prepared.
+    OrientGraphNoTx graph = SERVER.openGraph("validateNewGraph");
+    try {
+      Assert.assertNull(graph.getVertexType(VERTEX));
+    } finally {
+      graph.shutdown();
+    }
+  }
+
+  @Test
+  public void testKeyFilterNotSupported() {
+    OrientDBConfig config = OrientDBConfig.builder()
+      .setReferenceName("OrientDBSparkSink")
+      .setConnectionString("remote:localhost/streaming")
+      .setUsername(OrientDBTestServer.USER)
+      .setPassword(OrientDBTestServer.PASSWORD)
+      .setVertexType(VERTEX)
+      .setEdgeType(EDGE)
+      .setVertexIndexType(OClass.INDEX_TYPE.UNIQUE_HASH_INDEX.name())
+      .setKeyFilterFalsePositiveRate(0.01d)
+      .build();
+    MockFailureCollector failureCollector = new MockFailureCollector("mockStage");
+    new OrientDBSparkSink(config).validate(failureCollector, SCHEMA);
+    Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+  }
+
+  private static StructuredRecord record(String vertex, String... edges) {
+    return StructuredRecord.builder(SCHEMA)
+      .set(VERTEX, vertex)
+      .set(EDGE, Arrays.asList(edges))
+      .build();
+  }
+}
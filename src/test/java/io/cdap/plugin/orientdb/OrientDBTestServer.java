@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.client.remote.OServerAdmin;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import org.junit.rules.ExternalResource;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+/**
+ * Runs an OrientDB server inside the test JVM, listening for the binary protocol on a free local port, so that the
+ * sink can be tested through the same remote connections it uses in production. Databases are kept in memory.
+ */
+public class OrientDBTestServer extends ExternalResource {
+  public static final String ROOT_USER = "root";
+  public static final String ROOT_PASSWORD = "root";
+  // Default user of new databases.
+  public static final String USER = "admin";
+  public static final String PASSWORD = "admin";
+
+  private static final String CONFIGURATION =
+    "<orient-server>" +
+      "<network>" +
+        "<protocols>" +
+          "<protocol name=\"binary\" " +
+            "implementation=\"com.orientechnologies.orient.server.network.protocol.binary.ONetworkProtocolBinary\"/>" +
+        "</protocols>" +
+        "<listeners>" +
+          "<listener protocol=\"binary\" ip-address=\"127.0.0.1\" port-range=\"%d\"/>" +
+        "</listeners>" +
+      "</network>" +
+      "<users>" +
+        "<user name=\"" + ROOT_USER + "\" password=\"" + ROOT_PASSWORD + "\" resources=\"*\"/>" +
+      "</users>" +
+      "<properties>" +
+        "<entry name=\"server.database.path\" value=\"%s\"/>" +
+      "</properties>" +
+    "</orient-server>";
+
+  private final TemporaryFolder home = new TemporaryFolder();
+  private OServer server;
+  private int port;
+
+  @Override
+  protected void before() throws Throwable {
+    home.create();
+    port = getFreePort();
+    server = OServerMain.create(false);
+    server.startup(String.format(CONFIGURATION, port, home.getRoot().getAbsolutePath()));
+    server.activate();
+  }
+
+  @Override
+  protected void after() {
+    // Pooled connections would otherwise point to a server that doesn't exist anymore.
+    OrientDBConnections.closeAll();
+    if (server != null) {
+      server.shutdown();
+    }
+    home.delete();
+  }
+
+  /**
+   * Creates an empty in-memory graph database and returns its connection string. The database can be accessed
+   * with {@link #USER} and {@link #PASSWORD}.
+   */
+  public String createDatabase(String name) throws IOException {
+    String connectionString = getConnectionString(name);
+    OServerAdmin admin = new OServerAdmin(connectionString).connect(ROOT_USER, ROOT_PASSWORD);
+    try {
+      admin.createDatabase(name, "graph", "memory");
+    } finally {
+      admin.close();
+    }
+    return connectionString;
+  }
+
+  public String getConnectionString(String database) {
+    return String.format("remote:127.0.0.1:%d/%s", port, database);
+  }
+
+  /**
+   * Opens a graph on the given database, which has to be shut down by the caller.
+   */
+  public OrientGraphNoTx openGraph(String database) {
+    return new OrientGraphNoTx(getConnectionString(database), USER, PASSWORD);
+  }
+
+  private static int getFreePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.mock.common.MockEmitter;
+import io.cdap.cdap.etl.mock.validation.MockFailureCollector;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests for {@link OrientDBVertexPartitioner}.
+ */
+public class OrientDBVertexPartitionerTest {
+  private static final Schema SCHEMA =
+    Schema.recordOf("schema",
+                    Schema.Field.of("person", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                    Schema.Field.of("follows", Schema.arrayOf(Schema.of(Schema.Type.STRING))),
+                    Schema.Field.of("age", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+  private static final Schema EDGE_SCHEMA =
+    Schema.recordOf("edge",
+                    Schema.Field.of("target", Schema.of(Schema.Type.STRING)),
+                    Schema.Field.of("weight", Schema.of(Schema.Type.LONG)));
+  private static final Schema EDGE_RECORDS_SCHEMA =
+    Schema.recordOf("schema",
+                    Schema.Field.of("person", Schema.of(Schema.Type.STRING)),
+                    Schema.Field.of("follows", Schema.nullableOf(Schema.arrayOf(EDGE_SCHEMA))));
+
+  @Test
+  public void testGroupByVertex() throws Exception {
+    OrientDBVertexPartitioner partitioner =
+      new OrientDBVertexPartitioner(new OrientDBVertexPartitionerConfig("person", null));
+
+    MockEmitter<String> emitter = new MockEmitter<>();
+    partitioner.groupBy(StructuredRecord.builder(SCHEMA)
+                          .set("person", "Jon")
+                          .set("follows", Collections.singletonList("Nitin")).build(), emitter);
+    partitioner.groupBy(StructuredRecord.builder(SCHEMA)
+                          .set("person", "")
+                          .set("follows", Collections.singletonList("Nitin")).build(), emitter);
+    // Records without a vertex are dropped rather than grouped with the records of the empty key.
+    partitioner.groupBy(StructuredRecord.builder(SCHEMA)
+                          .set("follows", Collections.singletonList("Nitin")).build(), emitter);
+    Assert.assertEquals(Arrays.asList("Jon", ""), emitter.getEmitted());
+  }
+
+  @Test
+  public void testMergeRecords() throws Exception {
+    OrientDBVertexPartitioner partitioner =
+      new OrientDBVertexPartitioner(new OrientDBVertexPartitionerConfig("person", null, "follows", true));
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    partitioner.aggregate("Jon", Arrays.asList(record("Jon", 30, "Nitin", "Sree"), record("Jon", null, "Sree"),
+                                               record("Jon", 31, "Vikram", "Nitin")).iterator(), emitter);
+    Assert.assertEquals(Collections.singletonList(record("Jon", 31, "Nitin", "Sree", "Vikram")), emitter.getEmitted());
+
+    // Records of vertices without duplicates are not copied.
+    emitter.clear();
+    StructuredRecord single = record("Nitin", null, "Jon");
+    partitioner.aggregate("Nitin", Collections.singletonList(single).iterator(), emitter);
+    Assert.assertEquals(1, emitter.getEmitted().size());
+    Assert.assertSame(single, emitter.getEmitted().get(0));
+  }
+
+  @Test
+  public void testMergeEdgeRecords() throws Exception {
+    OrientDBVertexPartitioner partitioner =
+      new OrientDBVertexPartitioner(new OrientDBVertexPartitionerConfig("person", null, "follows", true));
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    partitioner.aggregate("Jon", Arrays.asList(
+      edgeRecords("Jon", edge("Nitin", 1L), edge("Sree", 1L)),
+      StructuredRecord.builder(EDGE_RECORDS_SCHEMA).set("person", "Jon").build(),
+      edgeRecords("Jon", edge("Nitin", 1L), edge("Nitin", 2L))).iterator(), emitter);
+    // Edge records are all kept, even identical ones, the sink merges their properties.
+    Assert.assertEquals(
+      Collections.singletonList(edgeRecords("Jon", edge("Nitin", 1L), edge("Sree", 1L), edge("Nitin", 1L),
+                                            edge("Nitin", 2L))),
+      emitter.getEmitted());
+  }
+
+  @Test
+  public void testMergeRecordsWithoutEdge() {
+    MockFailureCollector failureCollector = new MockFailureCollector("mockStage");
+    new OrientDBVertexPartitionerConfig("person", null, null, true).validate(failureCollector, SCHEMA);
+    Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+
+    failureCollector = new MockFailureCollector("mockStage");
+    new OrientDBVertexPartitionerConfig("person", null, "age", true).validate(failureCollector, SCHEMA);
+    Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testInvalidNumPartitions() {
+    MockFailureCollector failureCollector = new MockFailureCollector("mockStage");
+    new OrientDBVertexPartitionerConfig("person", 0).validate(failureCollector, SCHEMA);
+    Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testInvalidVertexField() {
+    MockFailureCollector failureCollector = new MockFailureCollector("mockStage");
+    new OrientDBVertexPartitionerConfig("follows", null).validate(failureCollector, SCHEMA);
+    Assert.assertEquals(1, failureCollector.getValidationFailures().size());
+  }
+
+  private static StructuredRecord record(String person, Integer age, String... follows) {
+    return StructuredRecord.builder(SCHEMA)
+      .set("person", person)
+      .set("follows", Arrays.asList(follows))
+      .set("age", age)
+      .build();
+  }
+
+  private static StructuredRecord edgeRecords(String person, StructuredRecord... follows) {
+    return StructuredRecord.builder(EDGE_RECORDS_SCHEMA)
+      .set("person", person)
+      .set("follows", Arrays.asList(follows))
+      .build();
+  }
+
+  private static StructuredRecord edge(String target, long weight) {
+    return StructuredRecord.builder(EDGE_SCHEMA)
+      .set("target", target)
+      .set("weight", weight)
+      .build();
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link PropertyTypes}.
+ */
+public class PropertyTypesTest {
+  private static final Schema RECORD_SCHEMA = Schema.recordOf(
+    "address",
+    Schema.Field.of("city", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("since", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))));
+
+  @Test
+  public void testGetType() {
+    Assert.assertEquals(OType.LONG, PropertyTypes.getType(Schema.nullableOf(Schema.of(Schema.Type.LONG))));
+    Assert.assertEquals(OType.STRING, PropertyTypes.getType(Schema.enumWith("a", "b")));
+    Assert.assertEquals(OType.BINARY, PropertyTypes.getType(Schema.of(Schema.Type.BYTES)));
+    Assert.assertEquals(OType.DATE, PropertyTypes.getType(Schema.of(Schema.LogicalType.DATE)));
+    Assert.assertEquals(OType.DATETIME, PropertyTypes.getType(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS)));
+    Assert.assertEquals(OType.LONG, PropertyTypes.getType(Schema.of(Schema.LogicalType.TIME_MICROS)));
+    Assert.assertEquals(OType.DECIMAL, PropertyTypes.getType(Schema.decimalOf(10, 2)));
+    Assert.assertEquals(OType.EMBEDDEDMAP, PropertyTypes.getType(RECORD_SCHEMA));
+    Assert.assertNull(PropertyTypes.getType(Schema.mapOf(Schema.of(Schema.Type.INT), Schema.of(Schema.Type.INT))));
+    Assert.assertNull(PropertyTypes.getType(Schema.unionOf(Schema.of(Schema.Type.INT),
+                                                           Schema.of(Schema.Type.STRING))));
+  }
+
+  @Test
+  public void testGetLinkedType() {
+    Assert.assertEquals(OType.STRING, PropertyTypes.getLinkedType(Schema.arrayOf(Schema.of(Schema.Type.STRING))));
+    Assert.assertEquals(OType.DATETIME, PropertyTypes.getLinkedType(
+      Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.LogicalType.TIMESTAMP_MILLIS))));
+    Assert.assertNull(PropertyTypes.getLinkedType(Schema.arrayOf(RECORD_SCHEMA)));
+    Assert.assertNull(PropertyTypes.getLinkedType(Schema.of(Schema.Type.STRING)));
+  }
+
+  @Test
+  public void testConvert() {
+    Assert.assertNull(PropertyTypes.convert(Schema.of(Schema.Type.STRING), null));
+    Assert.assertEquals(new Date(86400000L), PropertyTypes.convert(Schema.of(Schema.LogicalType.DATE), 1));
+    Assert.assertEquals(new Date(-2L), PropertyTypes.convert(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS), -1500L));
+    Assert.assertEquals(new BigDecimal("-1.23"),
+                        PropertyTypes.convert(Schema.decimalOf(5, 2), new BigDecimal("-1.23").unscaledValue()
+                          .toByteArray()));
+    Assert.assertArrayEquals(new byte[] {1, 2}, (byte[]) PropertyTypes.convert(Schema.of(Schema.Type.BYTES),
+                                                                              ByteBuffer.wrap(new byte[] {1, 2})));
+    Assert.assertEquals(Arrays.asList(new Date(0L), null),
+                        PropertyTypes.convert(Schema.arrayOf(Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))),
+                                              new Integer[] {0, null}));
+    Assert.assertEquals(Collections.singletonMap("a", Arrays.asList(1, 2)),
+                        PropertyTypes.convert(Schema.mapOf(Schema.of(Schema.Type.STRING),
+                                                           Schema.arrayOf(Schema.of(Schema.Type.INT))),
+                                              Collections.singletonMap("a", new int[] {1, 2})));
+
+    Map<String, Object> address = new LinkedHashMap<>();
+    address.put("city", "Palo Alto");
+    address.put("since", new Date(0L));
+    Assert.assertEquals(address, PropertyTypes.convert(RECORD_SCHEMA, StructuredRecord.builder(RECORD_SCHEMA)
+      .set("city", "Palo Alto")
+      .set("since", 0)
+      .build()));
+  }
+
+  @Test
+  public void testGetSchema() {
+    Assert.assertEquals(Schema.nullableOf(Schema.of(Schema.Type.INT)), PropertyTypes.getSchema(OType.SHORT, null));
+    Assert.assertEquals(Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS)),
+                        PropertyTypes.getSchema(OType.DATETIME, null));
+    Assert.assertEquals(Schema.nullableOf(Schema.of(Schema.Type.STRING)), PropertyTypes.getSchema(OType.LINK, null));
+    Assert.assertEquals(Schema.nullableOf(Schema.arrayOf(Schema.nullableOf(Schema.of(Schema.Type.LONG)))),
+                        PropertyTypes.getSchema(OType.EMBEDDEDSET, OType.LONG));
+    Assert.assertEquals(Schema.nullableOf(Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.STRING))),
+                        PropertyTypes.getSchema(OType.LINKMAP, null));
+    Assert.assertNull(PropertyTypes.getSchema(OType.EMBEDDEDLIST, null));
+    Assert.assertNull(PropertyTypes.getSchema(OType.EMBEDDEDLIST, OType.EMBEDDEDLIST));
+    Assert.assertNull(PropertyTypes.getSchema(OType.DECIMAL, null));
+    Assert.assertNull(PropertyTypes.getSchema(OType.LINKBAG, null));
+  }
+
+  @Test
+  public void testToRecordValue() {
+    Assert.assertNull(PropertyTypes.toRecordValue(Schema.of(Schema.Type.STRING), null));
+    Assert.assertEquals(3, PropertyTypes.toRecordValue(Schema.of(Schema.Type.INT), (short) 3));
+    Assert.assertEquals(3L, PropertyTypes.toRecordValue(Schema.of(Schema.Type.LONG), 3));
+    Assert.assertEquals("#12:3", PropertyTypes.toRecordValue(Schema.of(Schema.Type.STRING), new ORecordId(12, 3)));
+    Assert.assertEquals("1.5", PropertyTypes.toRecordValue(Schema.of(Schema.Type.STRING), 1.5d));
+    Assert.assertEquals(-1, PropertyTypes.toRecordValue(Schema.of(Schema.LogicalType.DATE), new Date(-1L)));
+    Assert.assertEquals(2000L, PropertyTypes.toRecordValue(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS),
+                                                           new Date(2L)));
+    Assert.assertArrayEquals(new BigDecimal("-1.20").unscaledValue().toByteArray(),
+                             (byte[]) PropertyTypes.toRecordValue(Schema.decimalOf(5, 2), new BigDecimal("-1.2")));
+    Assert.assertEquals(Arrays.asList(1, null),
+                        PropertyTypes.toRecordValue(Schema.arrayOf(Schema.nullableOf(Schema.of(Schema.Type.INT))),
+                                                    new LinkedHashSet<>(Arrays.asList(1L, null))));
+
+    Map<String, Object> address = new LinkedHashMap<>();
+    address.put("city", "Palo Alto");
+    address.put("since", new Date(TimeUnit.DAYS.toMillis(2)));
+    StructuredRecord record = (StructuredRecord) PropertyTypes.toRecordValue(RECORD_SCHEMA, address);
+    Assert.assertEquals("Palo Alto", record.get("city"));
+    Assert.assertEquals(Integer.valueOf(2), record.get("since"));
+    Assert.assertEquals(address, PropertyTypes.convert(RECORD_SCHEMA, record));
+  }
+}
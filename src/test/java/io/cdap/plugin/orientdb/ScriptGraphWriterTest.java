@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tests for {@link ScriptGraphWriter}.
+ */
+public class ScriptGraphWriterTest {
+
+  @Test
+  public void testQuoteString() {
+    Assert.assertEquals("'Jon'", ScriptGraphWriter.quoteString("Jon"));
+    Assert.assertEquals("'O\\'Neil'", ScriptGraphWriter.quoteString("O'Neil"));
+    Assert.assertEquals("'a\\\\b'", ScriptGraphWriter.quoteString("a\\b"));
+    Assert.assertEquals("'a\\nb\\r\\tc'", ScriptGraphWriter.quoteString("a\nb\r\tc"));
+    Assert.assertEquals("'a\\u0000b'", ScriptGraphWriter.quoteString("a\u0000b"));
+    Assert.assertEquals("'a;b'", ScriptGraphWriter.quoteString("a;b"));
+  }
+
+  @Test
+  public void testBuildScript() {
+    Configuration hConf = new Configuration(false);
+    hConf.set(OrientDBSink.ORIENTDB_VERTEX, "person");
+    hConf.set(OrientDBSink.ORIENTDB_EDGE, "follows");
+    hConf.setEnum(OrientDBSink.ORIENTDB_WRITE_MODE, WriteMode.TRANSACTIONAL);
+    ScriptGraphWriter writer = new ScriptGraphWriter(hConf);
+
+    String script = writer.buildScript(Arrays.asList(
+      new GraphOperation("Jon", Arrays.asList("Nitin", "Vikram")),
+      new GraphOperation("Jon", Arrays.asList("Nitin", "Sree"))));
+
+    String expected = String.join(
+      "\n",
+      "begin",
+      "let v0 = UPDATE `person` SET `person` = 'Jon' UPSERT RETURN AFTER @rid WHERE `person` = 'Jon'",
+      "let v1 = UPDATE `person` SET `person` = 'Nitin' UPSERT RETURN AFTER @rid WHERE `person` = 'Nitin'",
+      "let n0 = SELECT out('follows') AS n FROM $v0",
+      "if (NOT ($n0[0].n CONTAINS $v1[0])) {",
+      "  CREATE EDGE `follows` FROM $v0 TO $v1",
+      "}",
+      "let v2 = UPDATE `person` SET `person` = 'Vikram' UPSERT RETURN AFTER @rid WHERE `person` = 'Vikram'",
+      "if (NOT ($n0[0].n CONTAINS $v2[0])) {",
+      "  CREATE EDGE `follows` FROM $v0 TO $v2",
+      "}",
+      "let v3 = UPDATE `person` SET `person` = 'Sree' UPSERT RETURN AFTER @rid WHERE `person` = 'Sree'",
+      "if (NOT ($n0[0].n CONTAINS $v3[0])) {",
+      "  CREATE EDGE `follows` FROM $v0 TO $v3",
+      "}",
+      "commit",
+      "");
+    Assert.assertEquals(expected, script);
+  }
+
+  @Test
+  public void testBuildScriptWithEdgeProperties() {
+    Configuration hConf = new Configuration(false);
+    hConf.set(OrientDBSink.ORIENTDB_VERTEX, "person");
+    hConf.set(OrientDBSink.ORIENTDB_EDGE, "follows");
+    hConf.set(OrientDBSink.ORIENTDB_EDGE_PROPERTY_MERGE, "weight:sum,updated:max");
+    hConf.setEnum(OrientDBSink.ORIENTDB_WRITE_MODE, WriteMode.NON_TRANSACTIONAL);
+    ScriptGraphWriter writer = new ScriptGraphWriter(hConf);
+
+    String script = writer.buildScript(Arrays.asList(
+      new GraphOperation("Jon", Collections.singletonList("Nitin"),
+                         Collections.singletonList(properties(2L, 1.5d, "a"))),
+      new GraphOperation("Jon", Collections.singletonList("Nitin"),
+                         Collections.singletonList(properties(3L, 0.5d, "b")))));
+
+    String expected = String.join(
+      "\n",
+      "let v0 = UPDATE `person` SET `person` = 'Jon' UPSERT RETURN AFTER @rid WHERE `person` = 'Jon'",
+      "let v1 = UPDATE `person` SET `person` = 'Nitin' UPSERT RETURN AFTER @rid WHERE `person` = 'Nitin'",
+      "let n0 = SELECT out('follows') AS n FROM $v0",
+      "if (NOT ($n0[0].n CONTAINS $v1[0])) {",
+      "  CREATE EDGE `follows` FROM $v0 TO $v1 SET `weight` = 5, `updated` = 1.5, `source` = 'b'",
+      "}",
+      "if ($n0[0].n CONTAINS $v1[0]) {",
+      "  UPDATE (SELECT expand(outE('follows')[in = $v1[0]]) FROM $v0) " +
+        "SET `updated` = max(ifnull(`updated`, 1.5), 1.5), `source` = 'b' INCREMENT `weight` = 5",
+      "}",
+      "");
+    Assert.assertEquals(expected, script);
+  }
+
+  @Test
+  public void testBuildScriptWithVertexProperties() {
+    Configuration hConf = new Configuration(false);
+    hConf.set(OrientDBSink.ORIENTDB_VERTEX, "person");
+    hConf.set(OrientDBSink.ORIENTDB_EDGE, "follows");
+    hConf.setEnum(OrientDBSink.ORIENTDB_WRITE_MODE, WriteMode.NON_TRANSACTIONAL);
+    ScriptGraphWriter writer = new ScriptGraphWriter(hConf);
+
+    String script = writer.buildScript(Arrays.asList(
+      new GraphOperation("Nitin", Collections.singletonList("Jon"), null, Collections.singletonMap("age", 30)),
+      new GraphOperation("Jon", Collections.emptyList(), null, Collections.singletonMap("age", 40)),
+      new GraphOperation("Jon", Collections.emptyList(), null, Collections.singletonMap("age", 41))));
+
+    String expected = String.join(
+      "\n",
+      "let v0 = UPDATE `person` SET `person` = 'Nitin', `age` = 30 UPSERT RETURN AFTER @rid WHERE `person` = 'Nitin'",
+      "let v1 = UPDATE `person` SET `person` = 'Jon', `age` = 41 UPSERT RETURN AFTER @rid WHERE `person` = 'Jon'",
+      "let n0 = SELECT out('follows') AS n FROM $v0",
+      "if (NOT ($n0[0].n CONTAINS $v1[0])) {",
+      "  CREATE EDGE `follows` FROM $v0 TO $v1",
+      "}",
+      "");
+    Assert.assertEquals(expected, script);
+  }
+
+  @Test
+  public void testBuildScriptWithLightweightEdges() {
+    Configuration hConf = new Configuration(false);
+    hConf.set(OrientDBSink.ORIENTDB_VERTEX, "person");
+    hConf.set(OrientDBSink.ORIENTDB_EDGE, "follows");
+    hConf.setBoolean(OrientDBSink.ORIENTDB_LIGHTWEIGHT_EDGES, true);
+    hConf.setEnum(OrientDBSink.ORIENTDB_WRITE_MODE, WriteMode.NON_TRANSACTIONAL);
+    ScriptGraphWriter writer = new ScriptGraphWriter(hConf);
+
+    String script = writer.buildScript(Collections.singletonList(
+      new GraphOperation("Jon", Collections.singletonList("Nitin"))));
+
+    String expected = String.join(
+      "\n",
+      "let v0 = UPDATE `person` SET `person` = 'Jon' UPSERT RETURN AFTER @rid WHERE `person` = 'Jon'",
+      "let v1 = UPDATE `person` SET `person` = 'Nitin' UPSERT RETURN AFTER @rid WHERE `person` = 'Nitin'",
+      "let n0 = SELECT out('follows') AS n FROM $v0",
+      "if (NOT ($n0[0].n CONTAINS $v1[0])) {",
+      "  UPDATE $v0 ADD `out_follows` = $v1[0]",
+      "  UPDATE $v1 ADD `in_follows` = $v0[0]",
+      "}",
+      "");
+    Assert.assertEquals(expected, script);
+  }
+
+  @Test
+  public void testToLiteral() {
+    Assert.assertEquals("10000000000", ScriptGraphWriter.toLiteral(1e10d));
+    Assert.assertEquals("0.25", ScriptGraphWriter.toLiteral(0.25f));
+    Assert.assertEquals("-3", ScriptGraphWriter.toLiteral(-3L));
+    Assert.assertEquals("true", ScriptGraphWriter.toLiteral(true));
+    Assert.assertEquals("'it\\'s'", ScriptGraphWriter.toLiteral("it's"));
+    Assert.assertEquals("-0.50", ScriptGraphWriter.toLiteral(new BigDecimal("-5E-1").setScale(2)));
+    Assert.assertEquals("1000", ScriptGraphWriter.toLiteral(new Date(1000L)));
+    Assert.assertEquals("'AQI='", ScriptGraphWriter.toLiteral(new byte[] {1, 2}));
+    Assert.assertEquals("[1, null, 'a']", ScriptGraphWriter.toLiteral(Arrays.asList(1, null, "a")));
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("a", Collections.singletonList(1L));
+    map.put("b", null);
+    Assert.assertEquals("{'a': [1], 'b': null}", ScriptGraphWriter.toLiteral(map));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testToLiteralOfEscapedMapKey() {
+    ScriptGraphWriter.toLiteral(Collections.singletonMap("it's", 1));
+  }
+
+  private static Map<String, Object> properties(long weight, double updated, String source) {
+    Map<String, Object> properties = new LinkedHashMap<>();
+    properties.put("weight", weight);
+    properties.put("updated", updated);
+    properties.put("source", source);
+    return properties;
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import com.orientechnologies.orient.core.id.ORecordId;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link VertexCache}.
+ */
+public class VertexCacheTest {
+
+  @Test
+  public void testHitsAndMisses() {
+    VertexCache cache = new VertexCache(10);
+    Assert.assertNull(cache.get("Jon"));
+    cache.put("Jon", new ORecordId(9, 1));
+    Assert.assertEquals(new ORecordId(9, 1), cache.get("Jon"));
+    Assert.assertEquals(1, cache.getHits());
+    Assert.assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEviction() {
+    VertexCache cache = new VertexCache(2);
+    cache.put("Jon", new ORecordId(9, 1));
+    cache.put("Nitin", new ORecordId(9, 2));
+    // Access 'Jon' so that 'Nitin' becomes the least recently used entry.
+    cache.get("Jon");
+    cache.put("Vikram", new ORecordId(9, 3));
+
+    Assert.assertEquals(2, cache.size());
+    Assert.assertEquals(1, cache.getEvictions());
+    Assert.assertNotNull(cache.get("Jon"));
+    Assert.assertNull(cache.get("Nitin"));
+    Assert.assertNotNull(cache.get("Vikram"));
+  }
+
+  @Test
+  public void testRemoveUncommitted() {
+    VertexCache cache = new VertexCache(10);
+    cache.put("Jon", new ORecordId(9, 1));
+    cache.putCreated("Nitin", new ORecordId(9, -2));
+    cache.markCommitted();
+    cache.putCreated("Vikram", new ORecordId(9, -3));
+    cache.removeUncommitted();
+
+    Assert.assertEquals(2, cache.size());
+    Assert.assertNotNull(cache.get("Jon"));
+    Assert.assertNotNull(cache.get("Nitin"));
+    Assert.assertNull(cache.get("Vikram"));
+  }
+
+  @Test
+  public void testOffHeap() {
+    VertexCache cache = new VertexCache(10, 64 * 1024);
+    Assert.assertNull(cache.get("Jon"));
+    cache.put("Jon", new ORecordId(9, 1));
+    Assert.assertEquals(new ORecordId(9, 1), cache.get("Jon"));
+
+    // OrientDB assigns the persistent record id of a created vertex on commit.
+    ORecordId created = new ORecordId(9, -2);
+    cache.putCreated("Nitin", created);
+    Assert.assertEquals(new ORecordId(9, -2), cache.get("Nitin"));
+    created.setClusterPosition(2);
+    cache.markCommitted();
+    Assert.assertEquals(new ORecordId(9, 2), cache.get("Nitin"));
+
+    cache.putCreated("Vikram", new ORecordId(9, -3));
+    cache.removeUncommitted();
+    Assert.assertNull(cache.get("Vikram"));
+    Assert.assertEquals(2, cache.size());
+    Assert.assertEquals(3, cache.getHits());
+    Assert.assertEquals(2, cache.getMisses());
+
+    // Packed record ids are returned as stored, without allocating.
+    Assert.assertEquals(RecordIds.pack(new ORecordId(9, 1)), cache.getPacked("Jon"));
+    Assert.assertEquals(OffHeapVertexMap.NOT_FOUND, cache.getPacked("Vikram"));
+    Assert.assertEquals(4, cache.getHits());
+    Assert.assertEquals(3, cache.getMisses());
+  }
+
+  @Test
+  public void testDisabled() {
+    VertexCache cache = new VertexCache(0);
+    cache.put("Jon", new ORecordId(9, 1));
+    Assert.assertNull(cache.get("Jon"));
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testAcquireRelease() {
+    VertexCache first = VertexCache.acquire("remote:localhost/test|person", 10);
+    VertexCache second = VertexCache.acquire("remote:localhost/test|person", 10);
+    Assert.assertNotSame(first, second);
+    first.put("Jon", new ORecordId(9, 1));
+    first.putCreated("Nitin", new ORecordId(9, -2));
+    VertexCache.release("remote:localhost/test|person", first);
+
+    // Released caches are handed to the next writer of the same key, without the entries of uncommitted vertices.
+    Assert.assertSame(first, VertexCache.acquire("remote:localhost/test|person", 10));
+    Assert.assertEquals(1, first.size());
+    Assert.assertNotSame(first, VertexCache.acquire("remote:localhost/test|company", 10));
+
+    VertexCache offHeap = VertexCache.acquire("remote:localhost/test|person", 10, 64 * 1024);
+    Assert.assertNotSame(first, offHeap);
+    VertexCache.release("remote:localhost/test|person", offHeap);
+    Assert.assertSame(offHeap, VertexCache.acquire("remote:localhost/test|person", 10, 64 * 1024));
+  }
+}
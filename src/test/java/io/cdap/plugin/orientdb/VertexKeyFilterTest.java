@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link VertexKeyFilter}.
+ */
+public class VertexKeyFilterTest {
+
+  @Test
+  public void testFalsePositiveRate() throws Exception {
+    VertexKeyFilter filter = VertexKeyFilter.create(10000, 0.01d);
+    for (int i = 0; i < 10000; i++) {
+      filter.add("v" + i);
+    }
+    // Sent to the tasks like this.
+    filter = VertexKeyFilter.deserialize(filter.serialize());
+
+    int falsePositives = 0;
+    for (int i = 0; i < 10000; i++) {
+      Assert.assertTrue(filter.mightContain("v" + i));
+      if (filter.mightContain("w" + i)) {
+        falsePositives++;
+      }
+    }
+    Assert.assertTrue("False positives: " + falsePositives, falsePositives < 300);
+  }
+
+  @Test
+  public void testEmpty() {
+    VertexKeyFilter filter = VertexKeyFilter.create(0, 0.01d);
+    Assert.assertFalse(filter.mightContain("v"));
+    filter.add("v");
+    Assert.assertTrue(filter.mightContain("v"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalid() {
+    VertexKeyFilter.deserialize("AAAA");
+  }
+}
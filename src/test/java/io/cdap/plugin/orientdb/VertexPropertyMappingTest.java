@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package io.cdap.plugin.orientdb;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tests for {@link VertexPropertyMapping}.
+ */
+public class VertexPropertyMappingTest {
+
+  @Test
+  public void testParse() {
+    Map<String, String> expected = new LinkedHashMap<>();
+    expected.put("name", "fullName");
+    expected.put("age", "age");
+    Assert.assertEquals(expected, VertexPropertyMapping.parse(" name:fullName, age ").getProperties());
+    Assert.assertTrue(VertexPropertyMapping.parse(" ").isEmpty());
+    Assert.assertTrue(VertexPropertyMapping.parse(null).isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseMissingField() {
+    VertexPropertyMapping.parse("name,:age");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseDuplicateProperty() {
+    VertexPropertyMapping.parse("name,fullName:name");
+  }
+
+  @Test
+  public void testToProperties() {
+    Schema schema = Schema.recordOf(
+      "schema",
+      Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("born", Schema.of(Schema.LogicalType.DATE)));
+    VertexPropertyMapping mapping = VertexPropertyMapping.parse("name:fullName,born");
+
+    Map<String, Object> expected = new LinkedHashMap<>();
+    expected.put("fullName", "Jon");
+    expected.put("born", new Date(0L));
+    Assert.assertEquals(expected, mapping.toProperties(StructuredRecord.builder(schema)
+      .set("name", "Jon")
+      .set("born", 0)
+      .build()));
+    Assert.assertEquals(Collections.singletonMap("born", new Date(0L)),
+                        mapping.toProperties(StructuredRecord.builder(schema).set("born", 0).build()));
+  }
+}
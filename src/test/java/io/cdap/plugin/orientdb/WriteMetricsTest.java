@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.orientdb;
+
+import io.cdap.cdap.etl.api.StageMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link WriteMetrics}.
+ */
+public class WriteMetricsTest {
+
+  @Test
+  public void testPendingCounts() {
+    WriteMetrics metrics = new WriteMetrics(null);
+    metrics.incrementPending(WriteMetrics.Counter.VERTICES_CREATED);
+    metrics.incrementPending(WriteMetrics.Counter.EDGES_CREATED);
+    Assert.assertEquals(0, metrics.get(WriteMetrics.Counter.VERTICES_CREATED));
+
+    metrics.rollback();
+    metrics.increment(WriteMetrics.Counter.ROLLBACKS);
+    metrics.incrementPending(WriteMetrics.Counter.VERTICES_CREATED);
+    metrics.incrementPending(WriteMetrics.Counter.EDGES_CREATED);
+    metrics.commit();
+
+    Assert.assertEquals(1, metrics.get(WriteMetrics.Counter.VERTICES_CREATED));
+    Assert.assertEquals(1, metrics.get(WriteMetrics.Counter.EDGES_CREATED));
+    Assert.assertEquals(1, metrics.get(WriteMetrics.Counter.ROLLBACKS));
+  }
+
+  @Test
+  public void testReportDeltas() {
+    MockStageMetrics stageMetrics = new MockStageMetrics();
+    WriteMetrics.register("testReportDeltas", stageMetrics);
+    WriteMetrics metrics = new WriteMetrics("testReportDeltas");
+
+    metrics.incrementPending(WriteMetrics.Counter.VERTICES_FOUND);
+    metrics.incrementPending(WriteMetrics.Counter.VERTICES_FOUND);
+    metrics.commit();
+    metrics.getCommits().record(TimeUnit.MILLISECONDS.toNanos(5));
+    metrics.report();
+    Assert.assertEquals(2L, (long) stageMetrics.counts.get("vertices.found"));
+    Assert.assertEquals(1L, (long) stageMetrics.counts.get("commit.count"));
+    Assert.assertEquals(5L, (long) stageMetrics.counts.get("commit.time.ms"));
+    Assert.assertEquals(5L, (long) stageMetrics.gauges.get("commit.max.ms"));
+    Assert.assertTrue(stageMetrics.gauges.get("commit.p99.ms") <= 5L);
+    Assert.assertFalse(stageMetrics.gauges.containsKey("lookup.max.ms"));
+
+    metrics.incrementPending(WriteMetrics.Counter.VERTICES_FOUND);
+    metrics.commit();
+    metrics.report();
+    metrics.report();
+    Assert.assertEquals(3L, (long) stageMetrics.counts.get("vertices.found"));
+    Assert.assertEquals(1L, (long) stageMetrics.counts.get("commit.count"));
+    Assert.assertFalse(stageMetrics.counts.containsKey("vertices.created"));
+    WriteMetrics.unregister("testReportDeltas");
+  }
+
+  @Test
+  public void testRegistration() {
+    MockStageMetrics stageMetrics = new MockStageMetrics();
+    WriteMetrics.register("testRegistration", stageMetrics);
+    WriteMetrics.register("testRegistration", stageMetrics);
+    WriteMetrics metrics = new WriteMetrics("testRegistration");
+    // Writers of another run of a stage with the same name don't report to this one.
+    WriteMetrics otherRun = new WriteMetrics("testRegistration:other");
+
+    WriteMetrics.unregister("testRegistration");
+    Assert.assertTrue(WriteMetrics.isRegistered("testRegistration"));
+    WriteMetrics.unregister("testRegistration");
+    Assert.assertFalse(WriteMetrics.isRegistered("testRegistration"));
+
+    // Writers keep the metrics they were created with to report once more when they are closed.
+    metrics.increment(WriteMetrics.Counter.RETRIES);
+    metrics.report();
+    otherRun.increment(WriteMetrics.Counter.RETRIES);
+    otherRun.report();
+    Assert.assertEquals(1L, (long) stageMetrics.counts.get("retries"));
+  }
+
+  private static final class MockStageMetrics implements StageMetrics {
+    private final Map<String, Long> counts = new HashMap<>();
+    private final Map<String, Long> gauges = new HashMap<>();
+
+    @Override
+    public void count(String metricName, int delta) {
+      counts.merge(metricName, (long) delta, Long::sum);
+    }
+
+    @Override
+    public void gauge(String metricName, long value) {
+      gauges.put(metricName, value);
+    }
+
+    @Override
+    public void pipelineCount(String metricName, int delta) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void pipelineGauge(String metricName, long value) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}